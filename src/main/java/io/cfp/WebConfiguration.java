@@ -22,6 +22,7 @@ package io.cfp;
 
 import io.cfp.config.filter.AuthFilter;
 import io.cfp.config.filter.CorsFilter;
+import io.cfp.multitenant.TenantBulkheadFilter;
 import io.cfp.multitenant.TenantFilter;
 import io.cfp.multitenant.TenantIdHandlerMethodArgumentResolver;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
@@ -73,6 +74,16 @@ public class WebConfiguration extends WebMvcConfigurerAdapter {
         return registrationBean;
     }
 
+    @Bean
+    public FilterRegistrationBean tenantBulkheadFilter() {
+        FilterRegistrationBean registrationBean = new FilterRegistrationBean();
+        registrationBean.setFilter(new TenantBulkheadFilter());
+        registrationBean.setUrlPatterns(Arrays.asList("/v0/*", "/api/*", "/v1/*"));
+        // after CORS headers are set, so browsers can read the 429
+        registrationBean.setOrder(3);
+        return registrationBean;
+    }
+
     @Bean
     public FilterRegistrationBean authFilter() {
         FilterRegistrationBean registrationBean = new FilterRegistrationBean();
@@ -89,7 +100,8 @@ public class WebConfiguration extends WebMvcConfigurerAdapter {
         Filter authFilter = new CorsFilter();
         registrationBean.setFilter(authFilter);
         registrationBean.setUrlPatterns(Arrays.asList("/v0/*", "/api/*", "/v1/*"));
-        registrationBean.setOrder(2);
+        // before the tenant filter, so browsers can read the 404 of an unknown event
+        registrationBean.setOrder(0);
         return registrationBean;
     }
 }
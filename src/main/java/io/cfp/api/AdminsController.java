@@ -26,6 +26,8 @@ import io.cfp.model.Role;
 import io.cfp.model.User;
 import io.cfp.model.queries.RoleQuery;
 import io.cfp.multitenant.TenantId;
+import io.cfp.service.auth.RoleCache;
+import io.cfp.service.email.MailContexts;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.annotation.Secured;
@@ -44,6 +46,12 @@ public class AdminsController {
     @Autowired
     private RoleMapper roles;
 
+    @Autowired
+    private RoleCache roleCache;
+
+    @Autowired
+    private MailContexts mailContexts;
+
     @GetMapping
     public List<String> getAdmins(@TenantId String eventId) {
         return users.findEmailByRole(Role.ADMIN, eventId);
@@ -75,6 +83,8 @@ public class AdminsController {
     		adminRole.setUser(user.getId());
     		adminRole.setEvent(eventId);
     		roles.insert(adminRole);
+    		roleCache.invalidate(eventId);
+    		mailContexts.invalidate(eventId);
     		return true;
     	}
     	return false;
@@ -91,6 +101,8 @@ public class AdminsController {
         	for (Role role : userRoles) {
         		if (Role.ADMIN.equals(role.getName())) {
         			roles.delete(role);
+        			roleCache.invalidate(eventId);
+        			mailContexts.invalidate(eventId);
         			return true;
         		}
         	}
@@ -27,6 +27,7 @@ import io.cfp.entity.Role;
 import io.cfp.mapper.EventMapper;
 import io.cfp.model.Event;
 import io.cfp.multitenant.TenantId;
+import io.cfp.service.EventCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
@@ -47,6 +48,10 @@ public class ApplicationController {
     @Autowired
     private EventMapper events;
 
+    @Autowired
+    private EventCache eventCache;
+
+
     /**
      * Obtain application settings, (name, dates, ...)
      * @return
@@ -54,7 +59,7 @@ public class ApplicationController {
     @GetMapping
     public ApplicationSettings getApplicationSettings(@TenantId String eventId) throws NotFoundException {
 
-        Event event = events.findOne(eventId);
+        Event event = eventCache.get(eventId);
         if (event == null) {
             throw new NotFoundException("No event with ID: "+eventId);
         }
@@ -92,5 +97,6 @@ public class ApplicationController {
             throw new BadRequestException("Invalid data " + e.getMessage());
         }
         events.update(event);
+        eventCache.evict(eventId);
     }
 }
@@ -9,7 +9,7 @@ import io.cfp.model.Proposal;
 import io.cfp.model.User;
 import io.cfp.model.queries.CommentQuery;
 import io.cfp.multitenant.TenantId;
-import io.cfp.service.email.EmailingService;
+import io.cfp.service.email.CommentDigests;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,7 +38,7 @@ public class CommentsController {
     private ProposalMapper proposals;
 
     @Autowired
-    private EmailingService emailingService;
+    private CommentDigests commentDigests;
 
     @GetMapping
     @Secured(Role.AUTHENTICATED)
@@ -91,12 +91,12 @@ public class CommentsController {
         comments.insert(comment);
 
         if (comment.isInternal()) {
-            emailingService.sendNewCommentToAdmins(user, proposal, comment.getComment());
+            commentDigests.notifyAdmins(user, proposal, comment);
         } else {
             if (user.getEmail().equals(proposal.getSpeaker().getEmail())) {
-                emailingService.sendNewCommentToAdmins(user, proposal, comment.getComment());
+                commentDigests.notifyAdmins(user, proposal, comment);
             } else {
-                emailingService.sendNewCommentToSpeaker(proposal.getSpeaker(), proposal, comment.getComment());
+                commentDigests.notifySpeaker(proposal, comment);
             }
         }
         return comment;
@@ -135,12 +135,12 @@ public class CommentsController {
         comments.update(comment);
 
         if (comment.isInternal()) {
-            emailingService.sendNewCommentToAdmins(user, proposal, comment.getComment());
+            commentDigests.notifyAdmins(user, proposal, comment);
         } else {
             if (user.getEmail().equals(proposal.getSpeaker().getEmail())) {
-                emailingService.sendNewCommentToAdmins(user, proposal, comment.getComment());
+                commentDigests.notifyAdmins(user, proposal, comment);
             } else {
-                emailingService.sendNewCommentToSpeaker(proposal.getSpeaker(), proposal, comment.getComment());
+                commentDigests.notifySpeaker(proposal, comment);
             }
         }
     }
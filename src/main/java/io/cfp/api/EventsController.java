@@ -28,6 +28,14 @@ import io.cfp.model.queries.CommentQuery;
 import io.cfp.model.queries.ProposalQuery;
 import io.cfp.model.queries.RateQuery;
 import io.cfp.model.queries.RoleQuery;
+import io.cfp.multitenant.TenantRegistry;
+import io.cfp.service.EventCache;
+import io.cfp.service.ProposalCountService;
+import io.cfp.service.ReferenceDataService;
+import io.cfp.service.ReviewCoverageService;
+import io.cfp.service.ScheduleSnapshotService;
+import io.cfp.service.auth.RoleCache;
+import io.cfp.service.email.MailContexts;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -51,6 +59,18 @@ public class EventsController {
     @Autowired
     private RoleMapper roles;
 
+    @Autowired
+    private RoleCache roleCache;
+
+    @Autowired
+    private MailContexts mailContexts;
+
+    @Autowired
+    private TenantRegistry tenantRegistry;
+
+    @Autowired
+    private EventCache eventCache;
+
     @Autowired
     private EventMapper events;
 
@@ -69,12 +89,24 @@ public class EventsController {
     @Autowired
     private ProposalMapper proposals;
 
+    @Autowired
+    private ProposalCountService proposalCounts;
+
     @Autowired
     private RateMapper rates;
 
     @Autowired
     private CommentMapper comments;
 
+    @Autowired
+    private ReviewCoverageService reviewCoverage;
+
+    @Autowired
+    private ReferenceDataService referenceData;
+
+    @Autowired
+    private ScheduleSnapshotService publicSchedule;
+
 
     @RequestMapping(value = "/events", method = RequestMethod.GET)
     public List<Event> all(@RequestParam(name = "state", required = false, defaultValue = "open") String state) throws BadRequestException {
@@ -125,6 +157,10 @@ public class EventsController {
             .setName(OWNER)
             .setEvent(id)
             .setUser(u.getId()));
+        roleCache.invalidate(id);
+        mailContexts.invalidate(id);
+        tenantRegistry.refresh();
+        eventCache.evict(id);
 
         return e;
     }
@@ -154,6 +190,11 @@ public class EventsController {
             role.setEvent(archive);
             roles.insert(role);
         }
+        roleCache.invalidate(archive);
+        mailContexts.invalidate(archive);
+        tenantRegistry.refresh();
+        eventCache.evict(id);
+        eventCache.evict(archive);
 
         // Move formats|themes|room|roles to archive event
         // Then re-create for the 'new' one
@@ -177,6 +218,8 @@ public class EventsController {
         for (Proposal proposal : proposals.findAll(new ProposalQuery().setEventId(id))) {
             proposals.updateEventId(proposal.getId(), archive);
         }
+        proposalCounts.recount(id);
+        proposalCounts.recount(archive);
 
         for (Rate rate : rates.findAll(new RateQuery().setEventId(id))) {
             rates.updateEventId(rate.getId(), archive);
@@ -185,6 +228,13 @@ public class EventsController {
         for (Comment comment : comments.findAll(new CommentQuery().setEventId(id))) {
             comments.updateEventId(comment.getId(), archive);
         }
+
+        reviewCoverage.invalidate(id);
+        reviewCoverage.invalidate(archive);
+        referenceData.invalidate(id);
+        referenceData.invalidate(archive);
+        publicSchedule.invalidate(id);
+        publicSchedule.invalidate(archive);
     }
 
 }
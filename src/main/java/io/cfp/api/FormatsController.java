@@ -6,6 +6,7 @@ import io.cfp.mapper.ThemeMapper;
 import io.cfp.model.Format;
 import io.cfp.model.Theme;
 import io.cfp.multitenant.TenantId;
+import io.cfp.service.ReferenceDataService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.transaction.annotation.Transactional;
@@ -30,9 +31,12 @@ public class FormatsController {
     @Autowired
     private FormatMapper formats;
 
+    @Autowired
+    private ReferenceDataService referenceData;
+
     @RequestMapping(method = GET)
     public Collection<Format> all(@TenantId String eventId) {
-        return formats.findByEvent(eventId);
+        return referenceData.get(eventId).getFormats();
     }
 
     @RequestMapping(method = POST)
@@ -40,6 +44,7 @@ public class FormatsController {
     @Secured(Role.OWNER)
     public Format create(@RequestBody Format format, @TenantId String eventId) {
         formats.insert(format.setEvent(eventId));
+        referenceData.invalidate(eventId);
         return format;
     }
 
@@ -48,6 +53,7 @@ public class FormatsController {
     @Secured(Role.OWNER)
     public void update(@PathVariable int id, @RequestBody Format format, @TenantId String eventId) {
         formats.updateForEvent(format.setId(id), eventId);
+        referenceData.invalidate(eventId);
     }
 
     @RequestMapping(value = "/{id}", method = DELETE)
@@ -55,6 +61,7 @@ public class FormatsController {
     @Secured(Role.OWNER)
     public void delete(@PathVariable int id, @TenantId String eventId) {
         formats.deleteForEvent(id, eventId);
+        referenceData.invalidate(eventId);
     }
 
 }
@@ -30,12 +30,21 @@ import io.cfp.entity.Role;
 import io.cfp.mapper.*;
 import io.cfp.model.Event;
 import io.cfp.model.Proposal;
+import io.cfp.model.ProposalStateChange;
 import io.cfp.model.Rate;
+import io.cfp.model.RateSummary;
 import io.cfp.model.User;
+import io.cfp.model.queries.ProposalCursor;
 import io.cfp.model.queries.ProposalQuery;
 import io.cfp.model.queries.RateQuery;
 import io.cfp.multitenant.TenantId;
+import io.cfp.service.EventCache;
 import io.cfp.service.PdfCardService;
+import io.cfp.service.ProposalCountService;
+import io.cfp.service.ProposalStateService;
+import io.cfp.service.RateService;
+import io.cfp.service.ScheduleSnapshotService;
+import io.cfp.service.ReviewCoverageService;
 import io.cfp.service.email.EmailingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,14 +72,29 @@ public class ProposalsController {
     private static final Logger LOGGER = LoggerFactory.getLogger(ProposalsController.class);
 
     @Autowired
-    private EventMapper eventMapper;
+    private EventCache eventCache;
 
     @Autowired
     private ProposalMapper proposals;
 
+    @Autowired
+    private ProposalStateService proposalStates;
+
+    @Autowired
+    private ProposalCountService proposalCounts;
+
     @Autowired
     private RateMapper rates;
 
+    @Autowired
+    private RateService rateService;
+
+    @Autowired
+    private ScheduleSnapshotService publicSchedule;
+
+    @Autowired
+    private ReviewCoverageService reviewCoverage;
+
     @Autowired
     private CoSpeakerMapper cospeakers;
 
@@ -90,7 +114,11 @@ public class ProposalsController {
                                  @RequestParam(name = "states", required = false) String states,
                                  @RequestParam(name = "userId", required = false) Integer userId,
                                  @RequestParam(name = "sort", required = false, defaultValue = "added") String sort,
-                                 @RequestParam(name = "order", required = false, defaultValue = "asc") String order
+                                 @RequestParam(name = "order", required = false, defaultValue = "asc") String order,
+                                 @RequestParam(name = "size", required = false) Integer size,
+                                 @RequestParam(name = "cursor", required = false) String cursor,
+                                 @RequestParam(name = "unrated", required = false, defaultValue = "false") boolean unrated,
+                                 HttpServletResponse response
     ) {
 
         List<Proposal.State> stateList = new ArrayList<>();
@@ -112,36 +140,26 @@ public class ProposalsController {
             .setStates(stateList)
             .setUserId(userId)
             .setSort(sortList)
-            .setOrder(order.equalsIgnoreCase("desc") ? "desc" : "asc");
+            .setOrder(order.equalsIgnoreCase("desc") ? "desc" : "asc")
+            .page(size, cursor);
+
+        if (unrated) {
+            query.setExcludedIds(reviewCoverage.ratedBy(event, user.getId()).stream().boxed().collect(Collectors.toList()));
+        }
 
         LOGGER.info("Search Proposals : {}", query);
-        List<Proposal> p = proposals.findAll(query);
+        List<Proposal> p = proposals.search(query);
 
         LOGGER.debug("Found {} Proposals", p.size());
 
-        List<Rate> rates = this.rates.findAllWithTalk(event);
-        Map<Integer, List<Rate>> ratesByTalk = rates.stream().collect(Collectors.groupingBy(rate -> rate.getTalk().getId()));
-
-        for (Proposal proposal : p) {
-            List<String> emails = new ArrayList<>();
-            float total = 0;
-            int votes = 0;
-            List<Rate> ratesOfProposal = ratesByTalk.get(proposal.getId());
-            if (ratesOfProposal != null) {
-                for (Rate rate : ratesOfProposal) {
-                    emails.add(rate.getUser().getEmail());
-                    if (rate.getRate() > 0) {
-                        total += rate.getRate();
-                        votes++;
-                    }
-                }
-                proposal.setVoteUsersEmail(emails);
-                if (votes > 0) {
-                    proposal.setMean(String.valueOf(total / votes));
-                }
-            }
+        String next = query.nextCursor(p);
+        if (next != null) {
+            response.setHeader(ProposalCursor.NEXT_CURSOR_HEADER, next);
         }
 
+        Map<Integer, String> voters = rateService.voterEmails(p);
+        p.forEach(proposal -> applyRating(proposal, voters));
+
         return p;
     }
 
@@ -151,12 +169,21 @@ public class ProposalsController {
     public Proposal getNextToRate(@AuthenticationPrincipal User user,
                                   @TenantId String event) {
 
-        List<Proposal> p = this.search(user, event, null, null, "added", "asc");
+        List<Integer> ids = proposals.findIds(new ProposalQuery()
+            .setEventId(event)
+            .addSort("added")
+            .setOrder("asc"));
+
+        Integer next = reviewCoverage.nextUnrated(event, user.getId(), ids);
+        if (next == null) {
+            throw new NotFoundException();
+        }
 
-        Proposal nextProposalToVote = p.stream()
-            .filter(prop -> !prop.getVoteUsersEmail().contains(user.getEmail()))
-            .findFirst()
-            .orElseThrow(NotFoundException::new);
+        Proposal nextProposalToVote = proposals.findById(next, event);
+        if (nextProposalToVote == null) {
+            throw new NotFoundException();
+        }
+        applyRating(nextProposalToVote, rateService.voterEmails(Collections.singletonList(nextProposalToVote)));
 
         return nextProposalToVote;
     }
@@ -194,7 +221,7 @@ public class ProposalsController {
         LOGGER.info("User {} create a proposal : {}", user.getId(), proposal.getName());
         proposal.setEventId(eventId);
 
-        Event event = eventMapper.findOne(eventId);
+        Event event = eventCache.get(eventId);
 
         if (!event.isOpen()) {
             throw new BadRequestException("Submissions disabled");
@@ -213,6 +240,7 @@ public class ProposalsController {
         proposal.setState(Proposal.State.DRAFT) // when created, a talk is a Draft.
             .setAdded(new Date());
         proposals.insert(proposal);
+        proposalCounts.add(eventId, proposal.getSpeaker().getId(), proposal.getState());
 
         createCospeakers(proposal);
 
@@ -253,19 +281,39 @@ public class ProposalsController {
 
         // A non-admin user can only update his proposals
         Integer userId = !user.hasRole(ADMIN) ? user.getId() : null;
-        proposals.updateForEvent(proposal, event, userId);
+        List<Proposal> previous = proposals.lockStates(Collections.singleton(id), event);
+        if (proposals.updateForEvent(proposal, event, userId) > 0 && !previous.isEmpty()) {
+            countSpeakerChange(event, previous.get(0), proposal.getSpeaker().getId());
+        }
 
         createCospeakers(proposal);
+        publicSchedule.invalidate(event);
+    }
+
+    private void countSpeakerChange(String event, Proposal previous, int speakerId) {
+        if (previous.getSpeaker() == null || previous.getSpeaker().getId() != speakerId) {
+            if (previous.getSpeaker() != null) {
+                proposalCounts.remove(event, previous.getSpeaker().getId(), previous.getState());
+            }
+            proposalCounts.add(event, speakerId, previous.getState());
+        }
     }
 
     @DeleteMapping("/proposals/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @Secured(ADMIN)
+    @Transactional
     public void delete(@AuthenticationPrincipal User user,
                        @TenantId String event,
                        @PathVariable Integer id) {
         LOGGER.info("User {} delete the Proposal {}", user.getId(), id);
-        proposals.deleteForEvent(id, event);
+        for (Proposal proposal : proposals.lockStates(Collections.singleton(id), event)) {
+            proposals.deleteForEvent(id, event);
+            if (proposal.getSpeaker() != null) {
+                proposalCounts.remove(event, proposal.getSpeaker().getId(), proposal.getState());
+            }
+        }
+        publicSchedule.invalidate(event);
     }
 
     /**
@@ -274,8 +322,11 @@ public class ProposalsController {
     @DeleteMapping(value = "/proposals")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @Secured(Role.ADMIN)
+    @Transactional
     public void deleteAll(@TenantId String event) {
         proposals.deleteAllByEventId(event);
+        proposalCounts.clear(event);
+        publicSchedule.invalidate(event);
     }
 
 
@@ -288,15 +339,9 @@ public class ProposalsController {
 
         LOGGER.info("Proposal {} change state to CONFIRMED", id);
 
-        Proposal proposal = proposals.findById(id, event);
-        proposal.setId(id);
-        proposal.setEventId(event);
-        proposal.setState(Proposal.State.CONFIRMED);
-
-        //FIXME check proposal is in DRAFT state
-        proposals.updateState(proposal);
-
-        emailingService.sendConfirmed(user, proposal);
+        if (proposalStates.transition(id, event, Proposal.Transition.CONFIRM)) {
+            emailingService.sendConfirmed(user, proposals.findById(id, event));
+        }
     }
 
     @PutMapping("/proposals/{id}/back-to-edit")
@@ -307,15 +352,9 @@ public class ProposalsController {
 
         LOGGER.info("Proposal {} change state to DRAFT", id);
 
-        Proposal proposal = proposals.findById(id, event);
-        proposal.setId(id);
-        proposal.setEventId(event);
-        proposal.setState(Proposal.State.DRAFT);
-
-        //FIXME check proposal is in CONFIRMED state
-        proposals.updateState(proposal);
-
-        emailingService.sendBackToEdit(proposal);
+        if (proposalStates.transition(id, event, Proposal.Transition.BACK_TO_EDIT)) {
+            emailingService.sendBackToEdit(proposals.findById(id, event));
+        }
     }
 
     @PutMapping("/proposals/{id}/confirmPresence")
@@ -327,14 +366,10 @@ public class ProposalsController {
 
         LOGGER.info("Proposal {} change state to CONFIRMED_PRESENCE", id);
 
-        Proposal proposal = proposals.findById(id, event);
-        proposal.setId(id);
-        proposal.setEventId(event);
-        proposal.setState(Proposal.State.PRESENT);
-
-        proposals.updateState(proposal);
-
-        emailingService.sendConfirmedPresence(user, proposal);
+        if (proposalStates.transition(id, event, Proposal.Transition.CONFIRM_PRESENCE)) {
+            publicSchedule.invalidate(event);
+            emailingService.sendConfirmedPresence(user, proposals.findById(id, event));
+        }
     }
 
 
@@ -345,12 +380,9 @@ public class ProposalsController {
                        @PathVariable int id) {
 
         LOGGER.info("Proposal {} change state to ACCEPTED", id);
-        Proposal proposal = proposals.findById(id, event);
-        proposal.setId(id);
-        proposal.setEventId(event);
-        proposal.setState(Proposal.State.ACCEPTED);
-
-        proposals.updateState(proposal);
+        if (proposalStates.transition(id, event, Proposal.Transition.ACCEPT)) {
+            publicSchedule.invalidate(event);
+        }
     }
 
     @PutMapping("/proposals/{id}/backup")
@@ -359,12 +391,9 @@ public class ProposalsController {
     public void backup(@TenantId String event,
                        @PathVariable int id) {
         LOGGER.info("Proposal {} change state to BACKUP", id);
-        Proposal proposal = proposals.findById(id, event);
-        proposal.setId(id);
-        proposal.setEventId(event);
-        proposal.setState(Proposal.State.BACKUP);
-
-        proposals.updateState(proposal);
+        if (proposalStates.transition(id, event, Proposal.Transition.BACKUP)) {
+            publicSchedule.invalidate(event);
+        }
     }
 
     @PutMapping("/proposals/{id}/reject")
@@ -373,12 +402,9 @@ public class ProposalsController {
     public void reject(@TenantId String event,
                        @PathVariable int id) {
         LOGGER.info("Proposal {} change state to REJECT", id);
-        Proposal proposal = proposals.findById(id, event);
-        proposal.setId(id);
-        proposal.setEventId(event);
-        proposal.setState(Proposal.State.REFUSED);
-
-        proposals.updateState(proposal);
+        if (proposalStates.transition(id, event, Proposal.Transition.REJECT)) {
+            publicSchedule.invalidate(event);
+        }
     }
 
     @PutMapping("/proposals/{id}/retract")
@@ -387,20 +413,41 @@ public class ProposalsController {
     public void retract(@TenantId String event,
                         @PathVariable int id) {
         LOGGER.info("Proposal {} change state to CONFIRMED", id);
-        Proposal proposal = proposals.findById(id, event);
-        proposal.setId(id);
-        proposal.setEventId(event);
-        proposal.setState(Proposal.State.CONFIRMED);
+        if (proposalStates.transition(id, event, Proposal.Transition.RETRACT)) {
+            publicSchedule.invalidate(event);
+        }
+    }
 
-        proposals.updateState(proposal);
+    /**
+     * Move many proposals to the same state, reporting for each one if it was updated, was already in this state or
+     * its current state doesn't allow it
+     */
+    @PutMapping("/proposals/state")
+    @Secured(ADMIN)
+    @Transactional
+    public Map<Integer, ProposalStateChange.Outcome> changeStates(@TenantId String event,
+                                                                  @Valid @RequestBody ProposalStateChange change) {
+        Proposal.Transition transition = Proposal.Transition.triage(change.getState());
+        if (transition == null) {
+            throw new BadRequestException("Proposals can't be triaged to " + change.getState());
+        }
+
+        LOGGER.info("{} Proposals change state to {}", change.getIds().size(), change.getState());
+        Map<Integer, ProposalStateChange.Outcome> outcomes = proposalStates.transitionAll(new LinkedHashSet<>(change.getIds()), event, transition);
+        publicSchedule.invalidate(event);
+        return outcomes;
     }
 
     @PutMapping("/proposals/rejectOthers")
     @Secured(ADMIN)
     @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Transactional
     public void rejectOthers(@TenantId String event) {
         LOGGER.info("All CONFIRMED Proposals change state to REJECT");
         int updatedProposals = proposals.updateAllStateWhere(event, Proposal.State.REFUSED, Proposal.State.CONFIRMED);
+        if (updatedProposals > 0) {
+            proposalCounts.recount(event);
+        }
         LOGGER.info("{} Proposals have changed to REJECT", updatedProposals);
     }
 
@@ -417,7 +464,7 @@ public class ProposalsController {
         rate.setUser(user);
         rate.setTalk(new Proposal().setId(proposalId));
         rate.setAdded(new Date());
-        rates.insert(rate);
+        rateService.add(rate);
         return rate;
     }
 
@@ -436,7 +483,7 @@ public class ProposalsController {
         rate.setEventId(eventId);
         rate.setTalk(new Proposal().setId(proposalId));
         rate.setAdded(new Date());
-        rates.update(rate);
+        rateService.update(rate);
         return rate;
     }
 
@@ -454,6 +501,22 @@ public class ProposalsController {
         return rates.findAll(rateQuery);
     }
 
+    /**
+     * Create or replace my rating, in a single request
+     */
+    @PutMapping("/proposals/{proposalId}/rates/me")
+    @Secured({REVIEWER, ADMIN})
+    public Rate saveMyRate(@PathVariable int proposalId,
+                           @AuthenticationPrincipal User user,
+                           @Valid @RequestBody Rate rate,
+                           @TenantId String eventId) {
+        rate.setUser(user);
+        rate.setEventId(eventId);
+        rate.setTalk(new Proposal().setId(proposalId));
+        rate.setAdded(new Date());
+        return rateService.save(rate);
+    }
+
     /**
      * Get a specific rating
      */
@@ -473,5 +536,12 @@ public class ProposalsController {
         pdfCardService.export(eventId, response.getOutputStream());
     }
 
+    private void applyRating(Proposal proposal, Map<Integer, String> voters) {
+        RateSummary rating = proposal.getRating();
+        if (rating != null) {
+            proposal.setVoteUsersEmail(rating.getVoterEmails(voters));
+            proposal.setMean(rating.getMean());
+        }
+    }
 
 }
@@ -6,6 +6,7 @@ import io.cfp.model.Rate;
 import io.cfp.model.Stat;
 import io.cfp.model.queries.RateQuery;
 import io.cfp.multitenant.TenantId;
+import io.cfp.service.RateService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.web.bind.annotation.*;
@@ -24,6 +25,9 @@ public class RatesController {
     @Autowired
     private RateMapper rates;
 
+    @Autowired
+    private RateService rateService;
+
     /**
      * Get all ratings
      */
@@ -40,7 +44,7 @@ public class RatesController {
     @DeleteMapping
     @Secured(Role.ADMIN)
     public void deleteRates(@TenantId String eventId) {
-        rates.deleteAllForEvent(eventId);
+        rateService.deleteAll(eventId);
     }
 
     /**
@@ -49,7 +53,7 @@ public class RatesController {
     @DeleteMapping("/{rateId}")
     @Secured(Role.ADMIN)
     public void deleteRate(@PathVariable int rateId, @TenantId String eventId) {
-        rates.deleteForEvent(rateId, eventId);
+        rateService.delete(rateId, eventId);
     }
 
 
@@ -26,6 +26,7 @@ import io.cfp.model.Role;
 import io.cfp.model.User;
 import io.cfp.model.queries.RoleQuery;
 import io.cfp.multitenant.TenantId;
+import io.cfp.service.auth.RoleCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.annotation.Secured;
@@ -44,6 +45,9 @@ public class ReviewersController {
     @Autowired
     private RoleMapper roles;
 
+    @Autowired
+    private RoleCache roleCache;
+
     @GetMapping
     public List<String> getReviewers(@TenantId String eventId) {
         return users.findEmailByRole(Role.REVIEWER, eventId);
@@ -75,6 +79,7 @@ public class ReviewersController {
     		adminRole.setUser(user.getId());
     		adminRole.setEvent(eventId);
     		roles.insert(adminRole);
+    		roleCache.invalidate(eventId);
     		return true;
     	}
     	return false;
@@ -91,6 +96,7 @@ public class ReviewersController {
         	for (Role role : userRoles) {
         		if (Role.REVIEWER.equals(role.getName())) {
         			roles.delete(role);
+        			roleCache.invalidate(eventId);
         			return true;
         		}
         	}
@@ -5,6 +5,7 @@ import io.cfp.entity.Role;
 import io.cfp.mapper.RoomMapper;
 import io.cfp.model.Room;
 import io.cfp.multitenant.TenantId;
+import io.cfp.service.ReferenceDataService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.transaction.annotation.Transactional;
@@ -29,9 +30,12 @@ public class RoomsController {
     @Autowired
     private RoomMapper rooms;
 
+    @Autowired
+    private ReferenceDataService referenceData;
+
     @RequestMapping(method = GET)
     public Collection<Room> all(@TenantId String eventId) {
-        return rooms.findByEvent(eventId);
+        return referenceData.get(eventId).getRooms();
     }
 
     @RequestMapping(method = POST)
@@ -39,6 +43,7 @@ public class RoomsController {
     @Secured(Role.OWNER)
     public Room create(@RequestBody Room room, @TenantId String eventId) {
         rooms.insert(room.setEvent(eventId));
+        referenceData.invalidate(eventId);
         return room;
     }
 
@@ -47,6 +52,7 @@ public class RoomsController {
     @Secured(Role.OWNER)
     public void update(@PathVariable int id, @RequestBody Room room, @TenantId String eventId) {
         rooms.updateForEvent(room.setId(id), eventId);
+        referenceData.invalidate(eventId);
     }
 
     @RequestMapping(value = "/{id}", method = DELETE)
@@ -54,6 +60,7 @@ public class RoomsController {
     @Secured(Role.OWNER)
     public void delete(@PathVariable int id, @TenantId String eventId) {
         rooms.deleteForEvent(id, eventId);
+        referenceData.invalidate(eventId);
     }
 
 }
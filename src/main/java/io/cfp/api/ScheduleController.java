@@ -22,15 +22,18 @@ package io.cfp.api;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.cfp.domain.exception.CospeakerNotFoundException;
+import io.cfp.domain.exception.NotFoundException;
 import io.cfp.dto.user.Schedule;
-import io.cfp.mapper.FormatMapper;
 import io.cfp.mapper.ProposalMapper;
-import io.cfp.mapper.RoomMapper;
-import io.cfp.mapper.ThemeMapper;
 import io.cfp.model.*;
 import io.cfp.model.queries.ProposalQuery;
 import io.cfp.multitenant.TenantId;
+import io.cfp.service.ReferenceDataService;
+import io.cfp.service.ScheduleService;
+import io.cfp.service.ScheduleSnapshotService;
 import io.cfp.service.email.EmailingService;
+import io.cfp.service.email.MailJob;
+import io.cfp.service.email.MailOutbox;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -39,17 +42,15 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
-import java.util.Date;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.toList;
@@ -65,57 +66,34 @@ public class ScheduleController {
     private ProposalMapper proposals;
 
     @Autowired
-    private FormatMapper formats;
+    private ReferenceDataService referenceData;
 
     @Autowired
-    private ThemeMapper themes;
+    private ScheduleSnapshotService publicSchedule;
 
     @Autowired
-    private RoomMapper rooms;
+    private ScheduleService scheduleService;
 
     @Autowired
     private EmailingService emailingService;
 
-    @GetMapping
-    public List<Schedule> getSchedule(@TenantId String eventId) {
-        final List<Proposal> all = proposals.findAll(new ProposalQuery().setEventId(eventId).setStates(Arrays.asList(Proposal.State.ACCEPTED, Proposal.State.PRESENT)));
-
-        return all.stream().
-            filter(t -> t.getSchedule() != null)
-            .map(t -> {
-                Schedule schedule = new Schedule(t.getId(), t.getName(), t.getDescription());
-
-                // speakers
-                String speakers = t.getSpeaker().getFirstname() + " " + t.getSpeaker().getLastname();
-                if (isNotEmpty(t.getCospeakers())) {
-                    speakers += ", " + t.getCospeakers().stream().map(c -> c.getFirstname() + " " + c.getLastname()).collect(Collectors.joining(", "));
-                }
-                schedule.setSpeakers(speakers);
-
-                schedule.setEventType(t.getTrackLabel());
-                Format format = formats.findById(t.getFormat());
-
-                schedule.setFormat(format.getName());
-
-                schedule.setEventStart(DateTimeFormatter.ISO_INSTANT.format(t.getSchedule().toInstant()));
-                schedule.setEventEnd(DateTimeFormatter.ISO_INSTANT.format(t.getSchedule().toInstant().plus(format.getDuration(), ChronoUnit.MINUTES)));
-
-                Room room = rooms.findById(t.getRoomId());
-
-                schedule.setVenue(room != null ? room.getName() : "TBD");
-                schedule.setVenueId(room != null ? String.valueOf(room.getId()) : null);
-                schedule.setMedia(t.getVideo() != null ? t.getVideo() : t.getSlides());
-
-                final Map<String, Object> p = schedule.getAdditionalProperties();
-                if (t.getVideo() != null) {
-                    p.put("video", t.getVideo());
-                }
-                if (t.getSlides() != null) {
-                    p.put("slides", t.getSlides());
-                }
+    @Autowired
+    private MailOutbox mailOutbox;
 
-                return schedule;
-            }).collect(toList());
+    /**
+     * Public schedule, answered from a prebuilt snapshot. Clients polling with <code>If-None-Match</code> get a 304
+     * until it changes.
+     */
+    @GetMapping
+    public ResponseEntity<byte[]> getSchedule(@TenantId String eventId, WebRequest request) {
+        ScheduleSnapshotService.Snapshot snapshot = publicSchedule.get(eventId);
+        if (request.checkNotModified(snapshot.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+            .eTag(snapshot.getEtag())
+            .contentType(MediaType.APPLICATION_JSON_UTF8)
+            .body(snapshot.getJson());
     }
 
     @GetMapping(value = "fullcalendar/unscheduled")
@@ -124,24 +102,11 @@ public class ScheduleController {
         final List<Proposal> all = proposals.findAll(new ProposalQuery().setEventId(eventId).setStates(Arrays.asList(Proposal.State.ACCEPTED, Proposal.State.PRESENT)));
         LOGGER.info("Found {} accepted Proposals", all.size());
 
-        final List<Theme> allThemes = themes.findByEvent(eventId);
-        final List<Format> allFormats = formats.findByEvent(eventId);
+        final ReferenceData reference = referenceData.get(eventId);
 
         final List<FullCalendar.Event> events = all.stream()
             .filter(t -> t.getRoomId() == null || t.getSchedule() == null)
-            .map(t -> {
-
-                Format format = allFormats.stream()
-                    .filter(f -> f.getId() == t.getFormat())
-                    .findFirst()
-                    .orElse(new Format());
-
-                Theme theme = allThemes.stream()
-                    .filter(th -> th.getId() == t.getTrackId())
-                    .findFirst()
-                    .orElse(new Theme());
-                return new FullCalendar.Event(t, format, theme);
-            })
+            .map(t -> new FullCalendar.Event(t, reference))
             .collect(Collectors.toList());
         LOGGER.info("Found {} unscheduled Proposals", events.size());
         return events;
@@ -150,34 +115,25 @@ public class ScheduleController {
     @GetMapping(value = "fullcalendar")
     public FullCalendar getFullCalendar(@TenantId String eventId) {
         LOGGER.info("Get schedule Calendar");
-        final List<Room> roomList = rooms.findByEvent(eventId);
         final List<Proposal> all = proposals.findAll(new ProposalQuery().setEventId(eventId).setStates(Arrays.asList(Proposal.State.ACCEPTED, Proposal.State.PRESENT)));
-        final List<Theme> allThemes = themes.findByEvent(eventId);
-        final List<Format> allFormats = formats.findByEvent(eventId);
-        return new FullCalendar(all, roomList, allFormats, allThemes);
+        return new FullCalendar(all, referenceData.get(eventId));
     }
 
+    /**
+     * Save the whole calendar at once, only writing sessions which moved
+     */
     @PutMapping(value = "fullcalendar")
-    public void getFullCalendar(@RequestBody FullCalendar calendar,
-                                @TenantId String eventId) {
+    public ScheduleSaveSummary getFullCalendar(@RequestBody FullCalendar calendar,
+                                               @TenantId String eventId) {
         LOGGER.info("Update all events of Calendar");
-        calendar.getEvents().forEach(
-            e -> {
-
-                LocalDateTime eventStart = LocalDateTime.parse(e.getStart(), DateTimeFormatter.ISO_OFFSET_DATE_TIME);
-                Date eventDate = Date.from(eventStart.atZone(ZoneId.systemDefault()).toInstant());
-
-                String hour = eventStart.format(DateTimeFormatter.ofPattern("HH:mm"));
-
-                Proposal talk = proposals.findById(Integer.parseInt(e.getId()), eventId);
-                talk.setState(Proposal.State.ACCEPTED);
-                talk.setSchedule(eventDate);
-                talk.setScheduleHour(hour);
-                if (e.getResourceId() != null) {
-                    talk.setRoomId(Integer.parseInt(e.getResourceId()));
-                }
-                proposals.updateSchedule(talk);
-            });
+        List<ScheduleChange> changes = calendar.getEvents().stream()
+            .map(e -> ScheduleChange.of(
+                Integer.parseInt(e.getId()),
+                LocalDateTime.parse(e.getStart(), DateTimeFormatter.ISO_OFFSET_DATE_TIME),
+                e.getResourceId(),
+                Proposal.State.ACCEPTED))
+            .collect(toList());
+        return scheduleService.save(eventId, changes);
     }
 
 
@@ -189,23 +145,12 @@ public class ScheduleController {
         // sanity check
         if (!String.valueOf(talkId).equals(e.getId())) throw new IllegalArgumentException("wrong event ID "+e.getId());
 
-
-
-        LocalDateTime eventStart = LocalDateTime.parse(e.getStart(), DateTimeFormatter.ISO_OFFSET_DATE_TIME);
-        Date eventDate = Date.from(eventStart.atZone(ZoneId.systemDefault()).toInstant());
-
-        String hour = eventStart.format(DateTimeFormatter.ofPattern("HH:mm"));
-
-        Proposal talk = proposals.findById(talkId, eventId);
-        talk.setState(Proposal.State.PRESENT);
-        talk.setSchedule(eventDate);
-        talk.setScheduleHour(hour);
-        if (e.getResourceId() != null) {
-            talk.setRoomId(Integer.parseInt(e.getResourceId()));
+        ScheduleChange change = ScheduleChange.of(talkId, LocalDateTime.parse(e.getStart(), DateTimeFormatter.ISO_OFFSET_DATE_TIME), e.getResourceId(), Proposal.State.PRESENT);
+        LOGGER.info("Schedule Proposal {} at {} on {}", talkId, change.getScheduleHour(), change.getSchedule());
+        ScheduleSaveSummary summary = scheduleService.save(eventId, Collections.singletonList(change));
+        if (!summary.getNotFound().isEmpty()) {
+            throw new NotFoundException("No proposal with ID: " + talkId);
         }
-        LOGGER.info("Schedule Proposal {} at {} on {}", talk.getId(), talk.getScheduleHour(), talk.getSchedule());
-        proposals.updateSchedule(talk);
-
     }
 
 
@@ -258,103 +203,93 @@ public class ScheduleController {
 
     @PostMapping(consumes = {"multipart/form-data", "multipart/mixed"})
     @Secured(Role.ADMIN)
-    public ResponseEntity uploadSchedule(@RequestParam("file") MultipartFile file,
-                                         @TenantId String eventId) throws IOException {
+    public ResponseEntity<ScheduleSaveSummary> uploadSchedule(@RequestParam("file") MultipartFile file,
+                                                              @TenantId String eventId) throws IOException {
 
         final Schedule[] schedules = new ObjectMapper().readValue(file.getBytes(), Schedule[].class);
-        for (Schedule schedule : schedules) {
-
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("YYYY-MM-ddTHH:mm:ss");
-            LocalDateTime eventStart = LocalDateTime.parse(schedule.getEventStart(), formatter);
-            Date eventDate = Date.from(eventStart.atZone(ZoneId.systemDefault()).toInstant());
-
-            String hour = eventStart.format(DateTimeFormatter.ofPattern("HH:mm"));
-
-            Proposal talk = proposals.findById(schedule.getId(), eventId);
-            talk.setState(Proposal.State.ACCEPTED);
-            talk.setSchedule(eventDate);
-            talk.setScheduleHour(hour);
-            if (schedule.getVenueId() != null) {
-                talk.setRoomId(Integer.parseInt(schedule.getVenueId()));
-            }
-            proposals.updateSchedule(talk);
-
-        }
-        return new ResponseEntity<>(HttpStatus.CREATED);
+        List<ScheduleChange> changes = Arrays.stream(schedules)
+            .map(schedule -> ScheduleChange.of(
+                schedule.getId(),
+                LocalDateTime.parse(schedule.getEventStart(), DateTimeFormatter.ISO_OFFSET_DATE_TIME),
+                schedule.getVenueId(),
+                Proposal.State.ACCEPTED))
+            .collect(toList());
+        return new ResponseEntity<>(scheduleService.save(eventId, changes), HttpStatus.CREATED);
     }
 
 
 
 
     /**
-     * Notify by mails scheduling result.
+     * Notify by mails scheduling result. Mails are queued and sent in background at a controlled pace.
      * @param filter , can be "accepted" or "refused", default is "all"
-     *
+     * @return the notification job, whose progress is available at <code>/notification/{jobId}</code>
      */
     @PostMapping(value = "/notification")
     @Secured(Role.ADMIN)
-    public void notifyScheduling(@RequestParam(defaultValue = "all", name = "filter") String filter,
-                                 @RequestBody List<Integer> ids,
-                                 @TenantId String eventId) {
-        switch (filter) {
-            case  "refused" :
-                List<Proposal> refused = proposals.findAll(new ProposalQuery().setEventId(eventId).setStates(Arrays.asList(Proposal.State.REFUSED)));
-                LOGGER.debug("Found {} refused talks", refused.size());
-                if (ids != null && !ids.isEmpty()) {
-                    LOGGER.info("Filter notification for talks {}", ids);
-
-                    refused = refused.stream()
-                        .filter(p -> ids.contains(p.getId()))
-                        .collect(toList());
-                }
-                LOGGER.info("Send notifications for {} refused talks", refused.size());
-                sendRefusedMailsWithTempo(refused);
-                break;
-            case "accepted"  :
-                List<Proposal> accepted = proposals.findAll(new ProposalQuery().setEventId(eventId).setStates(Arrays.asList(Proposal.State.ACCEPTED)));
-                LOGGER.debug("Found {} accepted talks", accepted.size());
-                if (ids != null && !ids.isEmpty()) {
-                    LOGGER.info("Filter notification for talks {}", ids);
-                    accepted = accepted.stream()
-                        .filter(p -> ids.contains(p.getId()))
-                        .collect(toList());
-                }
-                LOGGER.info("Send notifications for {} accepted talks", accepted.size());
-                sendAcceptedMailsWithTempo(accepted);
-                break;
-            case "all"  :
-                sendAcceptedMailsWithTempo(proposals.findAll(new ProposalQuery().setEventId(eventId).setStates(Arrays.asList(Proposal.State.ACCEPTED))));
-                sendRefusedMailsWithTempo(proposals.findAll(new ProposalQuery().setEventId(eventId).setStates(Arrays.asList(Proposal.State.REFUSED))));
-                break;
+    public MailJobStatus notifyScheduling(@RequestParam(defaultValue = "all", name = "filter") String filter,
+                                          @RequestBody List<Integer> ids,
+                                          @TenantId String eventId) {
+        String jobId = MailJob.run(eventId, () -> {
+            switch (filter) {
+                case  "refused" :
+                    List<Proposal> refused = proposals.findAll(new ProposalQuery().setEventId(eventId).setStates(Arrays.asList(Proposal.State.REFUSED)));
+                    LOGGER.debug("Found {} refused talks", refused.size());
+                    if (ids != null && !ids.isEmpty()) {
+                        LOGGER.info("Filter notification for talks {}", ids);
+
+                        refused = refused.stream()
+                            .filter(p -> ids.contains(p.getId()))
+                            .collect(toList());
+                    }
+                    LOGGER.info("Send notifications for {} refused talks", refused.size());
+                    sendRefusedMails(refused);
+                    break;
+                case "accepted"  :
+                    List<Proposal> accepted = proposals.findAll(new ProposalQuery().setEventId(eventId).setStates(Arrays.asList(Proposal.State.ACCEPTED)));
+                    LOGGER.debug("Found {} accepted talks", accepted.size());
+                    if (ids != null && !ids.isEmpty()) {
+                        LOGGER.info("Filter notification for talks {}", ids);
+                        accepted = accepted.stream()
+                            .filter(p -> ids.contains(p.getId()))
+                            .collect(toList());
+                    }
+                    LOGGER.info("Send notifications for {} accepted talks", accepted.size());
+                    sendAcceptedMails(accepted);
+                    break;
+                case "all"  :
+                    sendAcceptedMails(proposals.findAll(new ProposalQuery().setEventId(eventId).setStates(Arrays.asList(Proposal.State.ACCEPTED))));
+                    sendRefusedMails(proposals.findAll(new ProposalQuery().setEventId(eventId).setStates(Arrays.asList(Proposal.State.REFUSED))));
+                    break;
 
+            }
+        });
+
+        MailJobStatus status = mailOutbox.status(jobId, eventId);
+        return status != null ? status : new MailJobStatus().setJobId(jobId);
+    }
+
+    @GetMapping(value = "/notification/{jobId}")
+    @Secured(Role.ADMIN)
+    public MailJobStatus getNotificationStatus(@PathVariable String jobId, @TenantId String eventId) {
+        MailJobStatus status = mailOutbox.status(jobId, eventId);
+        if (status == null) {
+            throw new NotFoundException("Notification job not found");
         }
+        return status;
     }
 
-    /**
-     * To help Google Compute Engine we wait 2 s between 2 mails.
-     * @param accepted
-     */
-    private void sendAcceptedMailsWithTempo(List<Proposal> accepted) {
+    private void sendAcceptedMails(List<Proposal> accepted) {
         accepted.forEach(t -> {
                 LOGGER.info("Envoi du mail accepté pour {}:{}", t.getId(), t.getName());
-                try {
-                    Thread.sleep(2000);
-                } catch (InterruptedException e) {
-                    LOGGER.warn("Thread Interrupted Exception", e);
-                }
                 emailingService.sendSelectionned(t, t.getSpeaker().getLocale());
             }
         );
     }
 
-    private void sendRefusedMailsWithTempo(List<Proposal> refused) {
+    private void sendRefusedMails(List<Proposal> refused) {
         refused.forEach(t -> {
             LOGGER.info("Envoi de mail refusé pour {}:{}", t.getId(), t.getName());
-            try {
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                LOGGER.warn("Thread Interrupted Exception", e);
-            }
             emailingService.sendNotSelectionned(t, t.getSpeaker().getLocale());
         });
     }
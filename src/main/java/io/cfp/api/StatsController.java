@@ -3,10 +3,11 @@ package io.cfp.api;
 import io.cfp.domain.admin.meter.AdminMeter;
 import io.cfp.dto.RestrictedMeter;
 import io.cfp.mapper.ProposalMapper;
+import io.cfp.model.Proposal;
 import io.cfp.model.Role;
 import io.cfp.model.User;
-import io.cfp.model.queries.ProposalQuery;
 import io.cfp.multitenant.TenantId;
+import io.cfp.service.ProposalCountService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -17,6 +18,7 @@ import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.io.Serializable;
+import java.util.Map;
 
 import static io.cfp.model.Proposal.State.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8_VALUE;
@@ -28,6 +30,9 @@ public class StatsController {
     @Autowired
     private ProposalMapper proposals;
 
+    @Autowired
+    private ProposalCountService proposalCounts;
+
     /**
      * Get meter stats (talks count, draft count, ...)
      */
@@ -39,8 +44,8 @@ public class StatsController {
                            @TenantId String event) {
         RestrictedMeter meter = new RestrictedMeter();
 
-        ProposalQuery mine = new ProposalQuery().setEventId(event).setUserId(user.getId()).addStates(CONFIRMED, ACCEPTED, REFUSED, BACKUP);
-        meter.setTalks(proposals.count(mine));
+        Map<Proposal.State, Integer> counts = proposalCounts.countStates(event, user.getId());
+        meter.setTalks(sum(counts, CONFIRMED, ACCEPTED, REFUSED, BACKUP));
         return meter;
     }
 
@@ -51,26 +56,24 @@ public class StatsController {
         AdminMeter meter = new AdminMeter();
         meter.setSpeakers(proposals.countSubmissionsByEventId(event));
 
-        ProposalQuery totalQuery = new ProposalQuery().setEventId(event).addStates(CONFIRMED, ACCEPTED, REFUSED, BACKUP);
-        meter.setTalks(proposals.count(totalQuery));
-
-        ProposalQuery draftQuery = new ProposalQuery().setEventId(event).addStates(DRAFT);
-        meter.setDrafts(proposals.count(draftQuery));
-
-        ProposalQuery submittedQuery = new ProposalQuery().setEventId(event).addStates(CONFIRMED);
-        meter.setSubmitted(proposals.count(submittedQuery));
-
-        ProposalQuery acceptedQuery = new ProposalQuery().setEventId(event).addStates(ACCEPTED);
-        meter.setAccepted(proposals.count(acceptedQuery));
-
-        ProposalQuery rejectedQuery = new ProposalQuery().setEventId(event).addStates(REFUSED);
-        meter.setRejected(proposals.count(rejectedQuery));
-
-        ProposalQuery backupQuery = new ProposalQuery().setEventId(event).addStates(BACKUP);
-        meter.setBackup(proposals.count(backupQuery));
+        Map<Proposal.State, Integer> counts = proposalCounts.countStates(event, null);
+        meter.setTalks(sum(counts, CONFIRMED, ACCEPTED, REFUSED, BACKUP));
+        meter.setDrafts(counts.get(DRAFT));
+        meter.setSubmitted(counts.get(CONFIRMED));
+        meter.setAccepted(counts.get(ACCEPTED));
+        meter.setRejected(counts.get(REFUSED));
+        meter.setBackup(counts.get(BACKUP));
 
         return meter;
 
     }
 
+    private static int sum(Map<Proposal.State, Integer> counts, Proposal.State... states) {
+        int sum = 0;
+        for (Proposal.State state : states) {
+            sum += counts.get(state);
+        }
+        return sum;
+    }
+
 }
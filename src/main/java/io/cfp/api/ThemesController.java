@@ -5,6 +5,7 @@ import io.cfp.mapper.ThemeMapper;
 import io.cfp.model.Stat;
 import io.cfp.model.Theme;
 import io.cfp.multitenant.TenantId;
+import io.cfp.service.ReferenceDataService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.transaction.annotation.Transactional;
@@ -28,9 +29,12 @@ public class ThemesController {
     @Autowired
     private ThemeMapper themes;
 
+    @Autowired
+    private ReferenceDataService referenceData;
+
     @RequestMapping(method = GET)
     public Collection<Theme> all(@TenantId String eventId) {
-        return themes.findByEvent(eventId);
+        return referenceData.get(eventId).getThemes();
     }
 
     @RequestMapping(method = POST)
@@ -38,6 +42,7 @@ public class ThemesController {
     @Secured(Role.OWNER)
     public Theme create(@RequestBody Theme theme, @TenantId String eventId) {
         themes.insert(theme.setEvent(eventId));
+        referenceData.invalidate(eventId);
         return theme;
     }
 
@@ -46,6 +51,7 @@ public class ThemesController {
     @Secured(Role.OWNER)
     public void update(@PathVariable int id, @RequestBody Theme theme, @TenantId String eventId) {
         themes.updateForEvent(theme.setId(id), eventId);
+        referenceData.invalidate(eventId);
     }
 
     @RequestMapping(value = "/{id}", method = DELETE)
@@ -53,6 +59,7 @@ public class ThemesController {
     @Secured(Role.OWNER)
     public void delete(@PathVariable int id, @TenantId String eventId) {
         themes.deleteForEvent(id, eventId);
+        referenceData.invalidate(eventId);
     }
 
     @GetMapping(value = "/stats")
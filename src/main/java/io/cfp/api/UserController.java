@@ -26,8 +26,10 @@ import io.cfp.mapper.ProposalMapper;
 import io.cfp.mapper.UserMapper;
 import io.cfp.model.Proposal;
 import io.cfp.model.User;
+import io.cfp.model.queries.ProposalCursor;
 import io.cfp.model.queries.ProposalQuery;
 import io.cfp.multitenant.TenantId;
+import io.cfp.service.auth.AuthUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,6 +38,7 @@ import org.springframework.security.access.annotation.Secured;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -52,6 +55,9 @@ public class UserController {
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private AuthUtils authUtils;
+
     @Autowired
     private ProposalMapper proposals;
 
@@ -67,7 +73,10 @@ public class UserController {
                                  @TenantId String event,
                                  @RequestParam(name = "states", required = false) String states,
                                  @RequestParam(name = "sort", required = false, defaultValue = "added") String sort,
-                                 @RequestParam(name = "order", required = false, defaultValue = "asc") String order) {
+                                 @RequestParam(name = "order", required = false, defaultValue = "asc") String order,
+                                 @RequestParam(name = "size", required = false) Integer size,
+                                 @RequestParam(name = "cursor", required = false) String cursor,
+                                 HttpServletResponse response) {
 
         List<Proposal.State> stateList = new ArrayList<>();
         if (states != null) {
@@ -88,11 +97,17 @@ public class UserController {
             .setStates(stateList)
             .setUserId(user.getId())
             .setSort(sortList)
-            .setOrder(order.equalsIgnoreCase("desc") ? "desc" : "asc");
+            .setOrder(order.equalsIgnoreCase("desc") ? "desc" : "asc")
+            .page(size, cursor);
 
         LOGGER.info("Get user {} proposals : {}", user.getId(), query);
-        List<Proposal> p = proposals.findAll(query);
+        List<Proposal> p = proposals.search(query);
         LOGGER.debug("Found {} Proposals", p.size());
+
+        String next = query.nextCursor(p);
+        if (next != null) {
+            response.setHeader(ProposalCursor.NEXT_CURSOR_HEADER, next);
+        }
         return p;
     }
 
@@ -118,6 +133,7 @@ public class UserController {
         userUpdate.setId(user.getId()).setEmail(user.getEmail());
 
         userMapper.update(userUpdate);
+        authUtils.invalidate(user.getId());
     }
 
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor rendering the mails reserved in the outbox, see {@link io.cfp.service.email.EmailingService}, so that user
+ * facing writes don't wait for it. Also runs <code>@Async</code> methods. The queue is bounded: when full, the task
+ * runs on the caller's thread rather than being lost.
+ * Its state is published as <code>mail.executor.*</code> metrics.
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig implements AsyncConfigurer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncConfig.class);
+
+    @Value("${cfp.email.executor.threads:2}")
+    private int threads;
+
+    @Value("${cfp.email.executor.queue-capacity:500}")
+    private int queueCapacity;
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    @Bean
+    public ThreadPoolTaskExecutor mailExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("mail-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setTaskDecorator(new ThreadContextTaskDecorator());
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy() {
+            @Override
+            public void rejectedExecution(Runnable task, ThreadPoolExecutor pool) {
+                rejected.incrementAndGet();
+                LOGGER.warn("Mail executor is full, running task on caller thread");
+                super.rejectedExecution(task, pool);
+            }
+        });
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    @Override
+    public ThreadPoolTaskExecutor getAsyncExecutor() {
+        // proxied configuration, returns the mailExecutor bean
+        return mailExecutor();
+    }
+
+    @Override
+    public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+        return (e, method, params) -> LOGGER.error("Asynchronous call to {} failed", method.getName(), e);
+    }
+
+    @Bean
+    public PublicMetrics mailExecutorMetrics() {
+        return () -> {
+            List<Metric<?>> metrics = new ArrayList<>();
+            ThreadPoolExecutor pool = getAsyncExecutor().getThreadPoolExecutor();
+            metrics.add(new Metric<>("mail.executor.queue", pool.getQueue().size()));
+            metrics.add(new Metric<>("mail.executor.active", pool.getActiveCount()));
+            metrics.add(new Metric<>("mail.executor.completed", pool.getCompletedTaskCount()));
+            metrics.add(new Metric<>("mail.executor.rejected", rejected.get()));
+            return metrics;
+        };
+    }
+}
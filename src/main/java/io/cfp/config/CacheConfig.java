@@ -33,6 +33,8 @@ import java.util.concurrent.TimeUnit;
 
 /**
  * Created by Nicolas on 12/12/2015.
+ * <p>
+ * Caches record their statistics, published by actuator as <code>cache.{name}.*</code> metrics.
  */
 @Configuration
 public class CacheConfig {
@@ -42,11 +44,14 @@ public class CacheConfig {
         // configure and return an implementation of Spring's CacheManager SPI
         SimpleCacheManager cacheManager = new SimpleCacheManager();
 
-        Cache<Object, Object> applicationSettings = CacheBuilder.newBuilder().expireAfterWrite(1, TimeUnit.HOURS).build();
+        // events by id, see EventCache. Evicted on change, on every node through CacheInvalidationBus
+        Cache<Object, Object> events = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(5, TimeUnit.MINUTES)
+            .recordStats()
+            .build();
 
-        Cache<Object, Object> isCfpOpen = CacheBuilder.newBuilder().expireAfterWrite(1, TimeUnit.HOURS).build();
-
-        cacheManager.setCaches(Arrays.asList(new GuavaCache("applicationSettings", applicationSettings), new GuavaCache("isCfpOpen", isCfpOpen)));
+        cacheManager.setCaches(Arrays.asList(new GuavaCache("events", events)));
 
         return cacheManager;
     }
@@ -16,6 +16,8 @@ public class MailConfig {
         config.setClassForTemplateLoading(MailConfig.class, "/mails/");
         config.setDefaultEncoding("UTF-8");
         config.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
+        // templates are packaged, no need to check them for changes once cached
+        config.setTemplateUpdateDelayMilliseconds(Long.MAX_VALUE);
 
         return config;
     }
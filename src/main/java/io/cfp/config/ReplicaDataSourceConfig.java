@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.cfp.config.filter.ReplicaRoutingFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceBuilder;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Read replica, enabled by setting <code>cfp.datasource.replica.url</code>. The replica pool is configured as the
+ * primary one, with <code>cfp.datasource.replica.*</code> properties and <code>cfp.datasource.replica.hikari.*</code>.
+ * Reads of a client stay on the primary for <code>cfp.datasource.replica.read-your-writes-seconds</code> after it
+ * wrote. The replica is expected to be read-only, so that a write routed to it fails rather than diverges.
+ */
+@Configuration
+@ConditionalOnProperty("cfp.datasource.replica.url")
+public class ReplicaDataSourceConfig {
+
+    @Value("${cfp.datasource.replica.url}")
+    private String replicaUrl;
+
+    @Value("${cfp.datasource.replica.username:${spring.datasource.username:}}")
+    private String replicaUsername;
+
+    @Value("${cfp.datasource.replica.password:${spring.datasource.password:}}")
+    private String replicaPassword;
+
+    @Value("${cfp.datasource.replica.read-your-writes-seconds:5}")
+    private int readYourWritesSeconds;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return (HikariDataSource) properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("cfp.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties) {
+        return (HikariDataSource) DataSourceBuilder.create(properties.getClassLoader())
+            .type(HikariDataSource.class)
+            .driverClassName(properties.determineDriverClassName())
+            .url(replicaUrl)
+            .username(replicaUsername)
+            .password(replicaPassword)
+            .build();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primaryDataSource(properties), replicaDataSource(properties));
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @Bean
+    public FilterRegistrationBean replicaRoutingFilter() {
+        FilterRegistrationBean registrationBean = new FilterRegistrationBean();
+        registrationBean.setFilter(new ReplicaRoutingFilter(readYourWritesSeconds));
+        registrationBean.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registrationBean;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Sends reads to the replica when the current thread allows it, see {@link io.cfp.config.filter.ReplicaRoutingFilter}:
+ * read-only transactions, and statements run outside of any transaction. Everything else goes to the primary.
+ * <p>
+ * Must be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, so that the
+ * connection is only looked up once the transaction read-only flag is known.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+    static final String REPLICA = "replica";
+
+    private static final ThreadLocal<Boolean> REPLICA_ALLOWED = new ThreadLocal<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        targets.put(REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    public static void setReplicaAllowed(boolean allowed) {
+        REPLICA_ALLOWED.set(allowed);
+    }
+
+    public static boolean isReplicaAllowed() {
+        return Boolean.TRUE.equals(REPLICA_ALLOWED.get());
+    }
+
+    public static void reset() {
+        REPLICA_ALLOWED.remove();
+    }
+
+    /**
+     * Run an action outside of a transaction on the primary, whatever the current thread allows. Needed for writes,
+     * and for loads of caches: a load from a lagging replica right after an eviction would cache the stale value
+     * until the next change.
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        Boolean allowed = REPLICA_ALLOWED.get();
+        REPLICA_ALLOWED.remove();
+        try {
+            return action.get();
+        } finally {
+            if (allowed != null) {
+                REPLICA_ALLOWED.set(allowed);
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!isReplicaAllowed()) {
+            return PRIMARY;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? REPLICA : PRIMARY;
+        }
+        return REPLICA;
+    }
+}
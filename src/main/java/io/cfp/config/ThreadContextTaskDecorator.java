@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.config;
+
+import io.cfp.entity.Event;
+import io.cfp.service.email.MailJob;
+import org.slf4j.MDC;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.Map;
+
+/**
+ * Carries the submitting thread's logging context (<code>event.id</code>, <code>user</code>), current event and mail
+ * job to the thread running the task. The running thread's own context is restored afterwards, as a rejected task
+ * may run on the caller's thread.
+ */
+public class ThreadContextTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable task) {
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        String event = Event.getCurrent();
+        MailJob job = MailJob.current();
+
+        return () -> {
+            Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+            String previousEvent = Event.getCurrent();
+            MailJob previousJob = MailJob.current();
+            apply(mdc, event, job);
+            try {
+                task.run();
+            } finally {
+                apply(previousMdc, previousEvent, previousJob);
+            }
+        };
+    }
+
+    private static void apply(Map<String, String> mdc, String event, MailJob job) {
+        if (mdc == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(mdc);
+        }
+        if (event == null) {
+            Event.unsetCurrent();
+        } else {
+            Event.setCurrent(event);
+        }
+        MailJob.setCurrent(job);
+    }
+}
@@ -21,6 +21,7 @@
 package io.cfp.config.exception;
 
 import io.cfp.domain.exception.BadRequestException;
+import io.cfp.domain.exception.ConflictException;
 import io.cfp.domain.exception.CospeakerNotFoundException;
 import io.cfp.domain.exception.EntityExistsException;
 import io.cfp.domain.exception.ErrorResponse;
@@ -29,6 +30,7 @@ import io.cfp.domain.exception.NotFoundException;
 import io.cfp.domain.exception.NotVerifiedException;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -108,6 +110,27 @@ public class GlobalControllerExceptionHandler {
         return new ResponseEntity<>(resp, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(ConflictException.class)
+    public ResponseEntity<Object> handleException(ConflictException e) {
+        logger.warn("Conflict", e);
+
+        ErrorResponse resp = new ErrorResponse(e);
+        resp.setStatus(HttpStatus.CONFLICT.value());
+        resp.setError(HttpStatus.CONFLICT.getReasonPhrase());
+        resp.setMessage(e.getMessage());
+        return new ResponseEntity<>(resp, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(DuplicateKeyException.class)
+    public ResponseEntity<Object> handleException(DuplicateKeyException e) {
+        logger.warn("Duplicate key", e);
+
+        ErrorResponse resp = new ErrorResponse(e);
+        resp.setStatus(HttpStatus.CONFLICT.value());
+        resp.setError(HttpStatus.CONFLICT.getReasonPhrase());
+        return new ResponseEntity<>(resp, HttpStatus.CONFLICT);
+    }
+
     @ExceptionHandler(ForbiddenException.class)
     public ResponseEntity<Object> handleException(ForbiddenException e) {
         logger.warn("Forbidden", e);
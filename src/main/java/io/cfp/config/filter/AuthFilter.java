@@ -21,14 +21,14 @@
 package io.cfp.config.filter;
 
 import com.google.common.annotations.VisibleForTesting;
-import io.cfp.domain.common.UserAuthentication;
+import io.cfp.domain.common.LazyUserAuthentication;
 import io.cfp.entity.Event;
-import io.cfp.mapper.RoleMapper;
 import io.cfp.model.Role;
 import io.cfp.model.User;
-import io.cfp.model.queries.RoleQuery;
 import io.cfp.service.auth.AuthUtils;
+import io.cfp.service.auth.RoleCache;
 import org.apache.log4j.MDC;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.context.support.WebApplicationContextUtils;
@@ -36,24 +36,24 @@ import org.springframework.web.context.support.WebApplicationContextUtils;
 import javax.servlet.*;
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
-import java.util.List;
 
 /**
- * Filter reading auth token (JWT) to verify if user is correctly logged
+ * Filter reading auth token (JWT) to verify if user is correctly logged.
+ * The token is only verified, and the user and its roles loaded, once the request needs its principal.
  */
 public class AuthFilter implements Filter {
 
     private static final String USER = "user";
 
     private AuthUtils authUtils;
-    private RoleMapper roleMapper;
+    private RoleCache roleCache;
 
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
         ServletContext servletContext = filterConfig.getServletContext();
         WebApplicationContext webApplicationContext = WebApplicationContextUtils.getWebApplicationContext(servletContext);
         authUtils = webApplicationContext.getBean(AuthUtils.class);
-        roleMapper = webApplicationContext.getBean(RoleMapper.class);
+        roleCache = webApplicationContext.getBean(RoleCache.class);
     }
 
     /**
@@ -65,19 +65,11 @@ public class AuthFilter implements Filter {
 
         HttpServletRequest httpRequest = (HttpServletRequest) request;
 
-        User user = authUtils.getAuthUser(httpRequest);
-
-        if (user != null) {
-            List<io.cfp.model.Role> roles = roleMapper.findAll(new RoleQuery().setEventId(Event.current()).setUserId(user.getId()));
-            for (io.cfp.model.Role role : roles) {
-                if (Role.ADMIN.equals(role.getName())) {
-                    // until exact roles are well set on API, Admin implies reviewer role
-                    user.addRole(Role.REVIEWER);
-                }
-            	user.addRole(role.getName());
-            }
-            MDC.put(USER, user.toLog());
-            SecurityContextHolder.getContext().setAuthentication(new UserAuthentication(user));
+        if (authUtils.hasCredentials(httpRequest)) {
+            // user is resolved on first access, for the event the request was made on
+            String eventId = Event.current();
+            SecurityContext context = SecurityContextHolder.getContext();
+            context.setAuthentication(new LazyUserAuthentication(() -> resolve(httpRequest, eventId), context.getAuthentication()));
         }
 
         try {
@@ -88,6 +80,22 @@ public class AuthFilter implements Filter {
         }
     }
 
+    private User resolve(HttpServletRequest httpRequest, String eventId) {
+        User user = authUtils.getAuthUser(httpRequest);
+        if (user == null) {
+            return null;
+        }
+        for (String role : roleCache.get(eventId, user.getId())) {
+            if (Role.ADMIN.equals(role)) {
+                // until exact roles are well set on API, Admin implies reviewer role
+                user.addRole(Role.REVIEWER);
+            }
+            user.addRole(role);
+        }
+        MDC.put(USER, user.toLog());
+        return user;
+    }
+
     @Override
     public void destroy() { /* unused */ }
 
@@ -97,7 +105,7 @@ public class AuthFilter implements Filter {
     }
 
     @VisibleForTesting
-    public void setRoleMapper(RoleMapper roleMapper) {
-        this.roleMapper = roleMapper;
+    public void setRoleCache(RoleCache roleCache) {
+        this.roleCache = roleCache;
     }
 }
@@ -20,6 +20,7 @@
 
 package io.cfp.config.filter;
 
+import io.cfp.model.queries.ProposalCursor;
 import org.springframework.http.HttpHeaders;
 import org.springframework.web.cors.CorsUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -44,6 +45,7 @@ public class CorsFilter extends OncePerRequestFilter {
             response.addHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS, "DELETE,GET,HEAD,PATCH,POST,PUT");
             response.addHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_HEADERS, request.getHeader(HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS)); // todo filter ?
             response.addHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS, "true");
+            response.addHeader(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, ProposalCursor.NEXT_CURSOR_HEADER);
             response.addHeader(HttpHeaders.ACCESS_CONTROL_MAX_AGE, "1");
         }
         filterChain.doFilter(request, response);
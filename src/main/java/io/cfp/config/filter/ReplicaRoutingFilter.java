@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.config.filter;
+
+import io.cfp.config.ReplicaRoutingDataSource;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Allows GET requests to read from the replica, unless the client wrote recently: a write request sets a short
+ * lived cookie, and while it is present reads go to the primary so the client sees its own writes despite the
+ * replication lag. Being held by the client, the window also applies when its next request hits another node.
+ */
+public class ReplicaRoutingFilter extends OncePerRequestFilter {
+
+    static final String RECENT_WRITE_COOKIE = "cfp-recent-write";
+
+    private static final Set<String> WRITES = new HashSet<>(Arrays.asList("POST", "PUT", "PATCH", "DELETE"));
+
+    private final int readYourWritesSeconds;
+
+    public ReplicaRoutingFilter(int readYourWritesSeconds) {
+        this.readYourWritesSeconds = readYourWritesSeconds;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        boolean read = "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+        if (WRITES.contains(request.getMethod())) {
+            Cookie cookie = new Cookie(RECENT_WRITE_COOKIE, "1");
+            cookie.setPath("/");
+            cookie.setMaxAge(readYourWritesSeconds);
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+        }
+
+        ReplicaRoutingDataSource.setReplicaAllowed(read && WebUtils.getCookie(request, RECENT_WRITE_COOKIE) == null);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.reset();
+        }
+    }
+}
@@ -32,12 +32,15 @@ import io.cfp.mapper.ProposalMapper;
 import io.cfp.mapper.RoomMapper;
 import io.cfp.mapper.UserMapper;
 import io.cfp.model.Proposal;
+import io.cfp.model.ScheduleChange;
 import io.cfp.model.queries.ProposalQuery;
 import io.cfp.model.queries.UserQuery;
 import io.cfp.multitenant.TenantId;
 import io.cfp.repository.TalkRepo;
+import io.cfp.service.ScheduleService;
 import io.cfp.service.TalkUserService;
 import io.cfp.service.email.EmailingService;
+import io.cfp.service.email.MailJob;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -53,6 +56,7 @@ import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -83,19 +87,23 @@ public class ScheduleController {
 
     private final EmailingService emailingService;
 
+    private final ScheduleService scheduleService;
+
     @Autowired
     public ScheduleController(TalkUserService talkUserService,
                               ProposalMapper proposalMapper,
                               TalkRepo talks,
                               RoomMapper roomMapper,
                               UserMapper userMapper,
-                              EmailingService emailingService) {
+                              EmailingService emailingService,
+                              ScheduleService scheduleService) {
         this.proposalMapper = proposalMapper;
         this.talkUserService = talkUserService;
         this.talks = talks;
         this.roomMapper = roomMapper;
         this.userMapper = userMapper;
         this.emailingService = emailingService;
+        this.scheduleService = scheduleService;
     }
 
     @RequestMapping(method = RequestMethod.GET)
@@ -155,14 +163,14 @@ public class ScheduleController {
     @Secured(Role.ADMIN)
     public void getFullCalendar(@RequestBody FullCalendar calendar,
                                 @TenantId String eventId) {
-        calendar.getEvents().forEach(
-            e -> {
-                talkUserService.updateConfirmedTalk(
-                    Integer.parseInt(e.getId()),
-                    LocalDateTime.parse(e.getStart(), DateTimeFormatter.ISO_OFFSET_DATE_TIME),
-                    e.getResourceId(),
-                    eventId);
-            });
+        List<ScheduleChange> changes = calendar.getEvents().stream()
+            .map(e -> ScheduleChange.of(
+                Integer.parseInt(e.getId()),
+                LocalDateTime.parse(e.getStart(), DateTimeFormatter.ISO_OFFSET_DATE_TIME),
+                e.getResourceId(),
+                Proposal.State.ACCEPTED))
+            .collect(toList());
+        scheduleService.save(eventId, changes);
     }
 
 
@@ -240,9 +248,14 @@ public class ScheduleController {
                                          @TenantId String eventId) throws IOException {
 
         final Schedule[] schedules = new ObjectMapper().readValue(file.getBytes(), Schedule[].class);
-        for (Schedule talk : schedules) {
-            talkUserService.updateConfirmedTalk(talk.getId(), LocalDateTime.parse(talk.getEventStart(), DateTimeFormatter.ISO_OFFSET_DATE_TIME), talk.getVenueId(), eventId);
-        }
+        List<ScheduleChange> changes = Arrays.stream(schedules)
+            .map(talk -> ScheduleChange.of(
+                talk.getId(),
+                LocalDateTime.parse(talk.getEventStart(), DateTimeFormatter.ISO_OFFSET_DATE_TIME),
+                talk.getVenueId(),
+                Proposal.State.ACCEPTED))
+            .collect(toList());
+        scheduleService.save(eventId, changes);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
@@ -250,7 +263,7 @@ public class ScheduleController {
 
 
     /**
-     * Notify by mails scheduling result.
+     * Notify by mails scheduling result. Mails are queued and sent in background at a controlled pace.
      * @param filter , can be "accepted" or "refused", default is "all"
      *
      */
@@ -258,48 +271,29 @@ public class ScheduleController {
     @Secured(Role.ADMIN)
     public void notifyScheduling(@RequestParam(defaultValue = "all", name = "filter") String filter,
                                  @TenantId String eventId) {
-        switch (filter) {
-           case  "refused" :
-               List<Proposal> refused = proposalMapper.findAll(new ProposalQuery().setEventId(eventId).addStates(Proposal.State.REFUSED));
-               sendRefusedMailsWithTempo(refused);
-               break;
-            case "accepted"  :
-               List<Proposal> accepted = proposalMapper.findAll(new ProposalQuery().setEventId(eventId).addStates(Proposal.State.ACCEPTED));
-               sendAcceptedMailsWithTempo(accepted);
-               break;
-            case "all"  :
-               sendAcceptedMailsWithTempo(proposalMapper.findAll(new ProposalQuery().setEventId(eventId).addStates(Proposal.State.ACCEPTED)));
-               sendRefusedMailsWithTempo(proposalMapper.findAll(new ProposalQuery().setEventId(eventId).addStates(Proposal.State.REFUSED)));
-               break;
-
-        }
+        MailJob.run(eventId, () -> {
+            switch (filter) {
+                case  "refused" :
+                    sendRefusedMails(proposalMapper.findAll(new ProposalQuery().setEventId(eventId).addStates(Proposal.State.REFUSED)));
+                    break;
+                case "accepted"  :
+                    sendAcceptedMails(proposalMapper.findAll(new ProposalQuery().setEventId(eventId).addStates(Proposal.State.ACCEPTED)));
+                    break;
+                case "all"  :
+                    sendAcceptedMails(proposalMapper.findAll(new ProposalQuery().setEventId(eventId).addStates(Proposal.State.ACCEPTED)));
+                    sendRefusedMails(proposalMapper.findAll(new ProposalQuery().setEventId(eventId).addStates(Proposal.State.REFUSED)));
+                    break;
+
+            }
+        });
     }
 
-    /**
-     * To help Google Compute Engine we wait 2 s between 2 mails.
-     * @param accepted
-     */
-    private void sendAcceptedMailsWithTempo(List<Proposal> accepted) {
-        accepted.forEach(p -> {
-                    try {
-                        Thread.sleep(2000);
-                    } catch (InterruptedException e) {
-                        LOG.warn("Thread Interrupted Exception", e);
-                    }
-                    emailingService.sendSelectionned(p, p.getSpeaker().getLocale());
-                }
-        );
+    private void sendAcceptedMails(List<Proposal> accepted) {
+        accepted.forEach(p -> emailingService.sendSelectionned(p, p.getSpeaker().getLocale()));
     }
 
-    private void sendRefusedMailsWithTempo(List<Proposal> refused) {
-        refused.forEach(p -> {
-            try {
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                LOG.warn("Thread Interrupted Exception", e);
-            }
-            emailingService.sendNotSelectionned(p, p.getSpeaker().getLocale());
-        });
+    private void sendRefusedMails(List<Proposal> refused) {
+        refused.forEach(p -> emailingService.sendNotSelectionned(p, p.getSpeaker().getLocale()));
     }
 
 
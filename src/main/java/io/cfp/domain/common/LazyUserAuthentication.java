@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.domain.common;
+
+import io.cfp.model.User;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Authentication of a request carrying a token, resolved to its user only once security checks or a controller
+ * ask for it. Public endpoints never do, so they pay neither the token verification nor the user and roles lookup.
+ * When the token resolves to no user, the authentication the request had before applies, anonymous by default.
+ */
+public class LazyUserAuthentication implements Authentication {
+
+    private static final Authentication ANONYMOUS =
+        new AnonymousAuthenticationToken("anonymous", "anonymousUser", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
+
+    private final Supplier<User> resolver;
+    private final Authentication fallback;
+    private Authentication resolved;
+
+    public LazyUserAuthentication(Supplier<User> resolver, Authentication fallback) {
+        this.resolver = resolver;
+        this.fallback = fallback != null ? fallback : ANONYMOUS;
+    }
+
+    /**
+     * @return whether the user has been looked up yet
+     */
+    public boolean isResolved() {
+        return resolved != null;
+    }
+
+    private Authentication resolve() {
+        // a request is handled by a single thread, no need to synchronize
+        if (resolved == null) {
+            User user = resolver.get();
+            resolved = user != null ? new UserAuthentication(user) : fallback;
+        }
+        return resolved;
+    }
+
+    @Override
+    public String getName() {
+        return resolve().getName();
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return resolve().getAuthorities();
+    }
+
+    @Override
+    public Object getCredentials() {
+        return resolve().getCredentials();
+    }
+
+    @Override
+    public Object getDetails() {
+        return resolve().getDetails();
+    }
+
+    @Override
+    public Object getPrincipal() {
+        return resolve().getPrincipal();
+    }
+
+    @Override
+    public boolean isAuthenticated() {
+        return resolve().isAuthenticated();
+    }
+
+    @Override
+    public void setAuthenticated(boolean authenticated) {
+        resolve().setAuthenticated(authenticated);
+    }
+}
@@ -86,6 +86,13 @@ public class Event {
 
     private boolean open = true;
 
+    /**
+     * @return current event, or null when not set
+     */
+    public static String getCurrent() {
+        return current.get();
+    }
+
     public static void setCurrent(String tenant) {
         current.set(tenant);
     }
@@ -0,0 +1,25 @@
+package io.cfp.mapper;
+
+import io.cfp.model.CacheVersion;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+
+@Mapper
+public interface CacheVersionMapper {
+
+    List<CacheVersion> findAll();
+
+    /**
+     * Bump the version of a cache region for a scope, creating it on first change
+     */
+    int increment(@Param("name") String name, @Param("scope") String scope);
+
+    /**
+     * Current version of a cache region for a scope, null if it never changed
+     */
+    Long findVersion(@Param("name") String name, @Param("scope") String scope);
+
+}
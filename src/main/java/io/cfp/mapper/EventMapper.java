@@ -21,6 +21,8 @@ public interface EventMapper {
 
     List<Event> findAll(EventQuery eventQuery);
 
+    List<String> findIds();
+
     boolean exists(String id);
 
     int insert(Event event);
@@ -0,0 +1,71 @@
+package io.cfp.mapper;
+
+import io.cfp.model.OutboundMail;
+import io.cfp.model.Stat;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
+
+
+@Mapper
+public interface MailOutboxMapper {
+
+    int insert(OutboundMail mail);
+
+    OutboundMail findOne(@Param("id") int id);
+
+    /**
+     * Pending mail of a digest, locked until the end of the transaction, null when it has none or is being sent
+     */
+    OutboundMail findPendingDigest(@Param("digestKey") String digestKey);
+
+    /**
+     * Replace the message and items of a pending digest mail, returns 0 once it is claimed
+     */
+    int updateDigest(OutboundMail mail);
+
+    /**
+     * Set the content of a mail stored while RENDERING, making it PENDING, returns 0 when it isn't rendering anymore
+     */
+    int rendered(@Param("id") int id, @Param("replyTo") String replyTo, @Param("content") String content, @Param("now") Date now);
+
+    /**
+     * Give up mails which are still RENDERING, e.g. when rendering failed or was lost with the instance
+     */
+    int failRendering(@Param("id") Integer id, @Param("createdBefore") Date createdBefore, @Param("error") String error);
+
+    /**
+     * Pending mails whose next attempt is due, oldest first
+     */
+    List<OutboundMail> findDue(@Param("now") Date now, @Param("limit") int limit);
+
+    /**
+     * Move a pending mail to SENDING under this claim token, returns 0 when another dispatcher got it first
+     */
+    int claim(@Param("id") int id, @Param("token") String token, @Param("now") Date now);
+
+    /**
+     * Push back the staleness of a claim right before sending, returns 0 when the claim was lost, the mail having
+     * been released as stale in the meantime
+     */
+    int renewClaim(@Param("id") int id, @Param("token") String token, @Param("now") Date now);
+
+    // the following ones only apply while the claim is still held, and return 0 otherwise
+
+    int markSent(@Param("id") int id, @Param("token") String token, @Param("now") Date now);
+
+    int reschedule(@Param("id") int id, @Param("token") String token, @Param("attempts") int attempts,
+                   @Param("nextAttempt") Date nextAttempt, @Param("error") String error);
+
+    int markFailed(@Param("id") int id, @Param("token") String token, @Param("attempts") int attempts, @Param("error") String error);
+
+    /**
+     * Give back mails claimed before the given date by a dispatcher which never reported
+     */
+    int releaseStale(@Param("claimedBefore") Date claimedBefore);
+
+    List<Stat> countByStatus(@Param("jobId") String jobId, @Param("eventId") String eventId);
+
+}
@@ -21,30 +21,120 @@
 package io.cfp.mapper;
 
 import io.cfp.model.Proposal;
+import io.cfp.model.StateCount;
 import io.cfp.model.queries.ProposalQuery;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Mapper
 public interface ProposalMapper {
 
     List<Proposal> findAll(ProposalQuery proposalQuery);
+
+    /**
+     * Load a page of proposals in two phases with {@link #findAllInTwoPhases(ProposalQuery)}, and full listings with
+     * the cospeakers join of {@link #findAll(ProposalQuery)}: on 2,000 proposals (see ProposalFetchBenchmark), two
+     * phases load a page of 50 in 43 ms instead of 58 ms, but the full list in 338 ms instead of 311 ms.
+     */
+    default List<Proposal> search(ProposalQuery proposalQuery) {
+        return proposalQuery.getLimit() != null ? findAllInTwoPhases(proposalQuery) : findAll(proposalQuery);
+    }
+
+    /**
+     * Two phases alternative to {@link #findAll(ProposalQuery)} : proposals are loaded without joining their
+     * cospeakers, which repeats each proposal row once per cospeaker, then cospeakers of all of them are loaded
+     * with a single batched query.
+     */
+    default List<Proposal> findAllInTwoPhases(ProposalQuery proposalQuery) {
+        List<Proposal> proposals = findAll(proposalQuery.copy().setJoinCospeakers(false));
+        if (proposals.isEmpty()) {
+            return proposals;
+        }
+
+        Map<Integer, Proposal> byId = new HashMap<>();
+        for (Proposal proposal : proposals) {
+            byId.put(proposal.getId(), proposal);
+        }
+        for (Proposal withCospeakers : findCospeakers(byId.keySet())) {
+            byId.get(withCospeakers.getId()).setCospeakers(withCospeakers.getCospeakers());
+        }
+        return proposals;
+    }
+
+    /**
+     * @return proposals among these ones having cospeakers, with only their id and cospeakers set
+     */
+    List<Proposal> findCospeakers(@Param("proposalIds") Collection<Integer> proposalIds);
+
+    /**
+     * Same as {@link #findAll(ProposalQuery)}, only loading ids
+     */
+    List<Integer> findIds(ProposalQuery proposalQuery);
+
     Proposal findById(@Param("id") int id, @Param("eventId") String eventId);
     int insert(Proposal proposal);
     int updateForEvent(@Param("it") Proposal proposal, @Param("eventId") String eventId, @Param("userId") Integer userId);
     int deleteForEvent(@Param("id") int id, @Param("eventId") String eventId);
     int updateState(Proposal proposal);
 
+    /**
+     * @return number of updated proposals, 0 if not found or not in one of the <code>from</code> states
+     */
+    int updateStateFrom(@Param("id") int id, @Param("eventId") String eventId,
+                        @Param("state") Proposal.State state, @Param("from") Collection<Proposal.State> from);
+
+    /**
+     * @return id, state and speaker id of these proposals, locked until the end of the transaction
+     */
+    List<Proposal> lockStates(@Param("ids") Collection<Integer> ids, @Param("eventId") String eventId);
+
+    int updateAllStateFrom(@Param("ids") Collection<Integer> ids, @Param("eventId") String eventId,
+                           @Param("state") Proposal.State state, @Param("from") Collection<Proposal.State> from);
+
     int updateAllStateWhere(@Param("eventId") String event, @Param("newState") Proposal.State refused, @Param("oldState") Proposal.State confirmed);
 
     int count(ProposalQuery proposalQuery);
     int countSubmissionsByEventId(@Param("eventId") String eventId);
 
+    /**
+     * Count proposals per state with a single lookup of <code>proposal_counts</code>
+     * @param userId only count proposals of this speaker, all of them when null
+     * @see io.cfp.service.ProposalCountService
+     */
+    List<StateCount> countByState(@Param("eventId") String eventId, @Param("userId") Integer userId);
+
+    /**
+     * Add <code>delta</code> to the number of proposals of this speaker in this state
+     */
+    int adjustCount(@Param("eventId") String eventId, @Param("userId") int userId,
+                    @Param("state") Proposal.State state, @Param("delta") int delta);
+
+    /**
+     * Add <code>delta</code> to the number of proposals in this state of the speaker of this proposal
+     */
+    int adjustProposalCount(@Param("id") int id, @Param("eventId") String eventId,
+                            @Param("state") Proposal.State state, @Param("delta") int delta);
+
+    int deleteCounts(@Param("eventId") String eventId);
+
+    /**
+     * Count again all proposals of the event, once its counts are deleted
+     */
+    int insertCounts(@Param("eventId") String eventId);
+
     int deleteAllByEventId(String event);
 
     void updateEventId(@Param("id") int id, @Param("eventId") String eventId);
 
     int updateSchedule(Proposal proposal);
+
+    /**
+     * Only load the state, speaker id, schedule and room of these proposals
+     */
+    List<Proposal> findSchedules(@Param("ids") Collection<Integer> ids, @Param("eventId") String eventId);
 }
@@ -1,6 +1,7 @@
 package io.cfp.mapper;
 
 import io.cfp.model.Rate;
+import io.cfp.model.RateSummary;
 import io.cfp.model.Stat;
 import io.cfp.model.queries.RateQuery;
 import org.apache.ibatis.annotations.Mapper;
@@ -14,14 +15,28 @@ public interface RateMapper {
 
 
     List<Rate> findAll(RateQuery rateQuery);
-    List<Rate> findAllWithTalk(@Param("eventId") String eventId);
 
 
     Rate findMyRate(@Param("proposalId") int proposalId, @Param("user") int userId, @Param("eventId") String eventId);
     int insert(Rate rate);
     int update(Rate rate);
+
+    /**
+     * Insert the reviewer's rate for a proposal, or overwrite the existing one
+     */
+    int upsert(Rate rate);
     int deleteForEvent(@Param("id") int id, @Param("eventId") String eventId);
     int deleteAllForEvent(@Param("eventId") String eventId);
+    Integer findProposalId(@Param("id") int id, @Param("eventId") String eventId);
+
+    /**
+     * Lock proposal row so concurrent ratings of the same proposal update its summary one after the other
+     */
+    Integer lockProposal(@Param("proposalId") int proposalId, @Param("eventId") String eventId);
+    RateSummary findSummary(@Param("proposalId") int proposalId);
+    int insertSummary(RateSummary summary);
+    int updateSummary(RateSummary summary);
+    int deleteSummariesForEvent(@Param("eventId") String eventId);
 
 
     List<Stat> getRateByEmailUsers(String eventId);
@@ -5,6 +5,7 @@ import io.cfp.model.queries.UserQuery;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
@@ -19,7 +20,17 @@ public interface UserMapper {
 
     int insert(User user);
 
+    /**
+     * Insert a user with only its email, unless one already has it. The user id is set either way
+     */
+    int provision(User user);
+
     User findByEmail(@Param("email") String email);
     List<String> findEmailByRole(@Param("role") String role, @Param("eventId") String eventId);
 
+    /**
+     * Only load id and email of these users
+     */
+    List<User> findEmails(@Param("ids") Collection<Integer> ids);
+
 }
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.Accessors;
+import org.springframework.beans.BeanUtils;
 
 import java.util.Date;
 
@@ -38,4 +39,10 @@ public class Event {
     private Date decisionDate;
 
     private boolean open = true;
+
+    public Event copy() {
+        Event copy = new Event();
+        BeanUtils.copyProperties(this, copy);
+        return copy;
+    }
 }
@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Data @NoArgsConstructor
@@ -17,29 +18,15 @@ public class FullCalendar {
     private List<Event> events;
 
 
-    public FullCalendar(List<Proposal> talks, List<Room> rooms, List<Format> formats, List<Theme> themes) {
+    public FullCalendar(List<Proposal> talks, ReferenceData reference) {
 
-        resources = rooms.stream()
+        resources = reference.getRooms().stream()
             .map(Resource::new)
             .collect(Collectors.toList());
 
         events = talks.stream()
             .filter(t -> t.getSchedule() != null && t.getRoomId() != null)
-            .map(p -> {
-
-                Format format = formats.stream()
-                    .filter(f -> f.getId() == p.getFormat())
-                    .findFirst()
-                    .orElse(new Format());
-
-                Theme theme = themes.stream()
-                    .filter(th -> th.getId() == p.getTrackId())
-                    .findFirst()
-                    .orElse(new Theme());
-
-                Event event = new Event(p, format, theme);
-                return event;
-            })
+            .map(p -> new Event(p, reference))
             .collect(Collectors.toList());
     }
 
@@ -70,6 +57,12 @@ public class FullCalendar {
         private String slides;
         private String videos;
 
+        public Event(Proposal proposal, ReferenceData reference) {
+            this(proposal,
+                Optional.ofNullable(reference.format(proposal.getFormat())).orElse(new Format()),
+                Optional.ofNullable(reference.theme(proposal.getTrackId())).orElse(new Theme()));
+        }
+
         public Event(Proposal proposal, Format format, Theme theme) {
             this.id = String.valueOf(proposal.getId());
             this.title = proposal.getName();
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A mail waiting in the outbox, or already delivered.
+ * Copy recipients are stored comma separated, as are the ids of the items merged into a digest mail.
+ */
+@Data
+@NoArgsConstructor
+@Accessors(chain = true)
+public class OutboundMail {
+
+    public enum Status {
+        RENDERING, PENDING, SENDING, SENT, FAILED
+    }
+
+    private Integer id;
+    private String jobId;
+    private String eventId;
+    private String replyTo;
+    private String recipient;
+    private String cc;
+    private String bcc;
+    private String subject;
+    private String content;
+    private Status status;
+    private int attempts;
+    private Date nextAttempt;
+    private Date claimed;
+    private String claimToken;
+    private String lastError;
+    private Date created;
+    private Date sent;
+    private String digestKey;
+    private String digestItems;
+
+    public List<String> getCcList() {
+        return split(cc);
+    }
+
+    public List<String> getBccList() {
+        return split(bcc);
+    }
+
+    public static String join(List<String> addresses) {
+        return addresses == null || addresses.isEmpty() ? null : String.join(",", addresses);
+    }
+
+    public List<Integer> getDigestItemList() {
+        return split(digestItems).stream().map(Integer::valueOf).collect(Collectors.toList());
+    }
+
+    private static List<String> split(String addresses) {
+        return addresses == null || addresses.isEmpty() ? Collections.emptyList() : Arrays.asList(addresses.split(","));
+    }
+}
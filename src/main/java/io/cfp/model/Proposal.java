@@ -38,10 +38,67 @@ import static org.apache.commons.collections4.CollectionUtils.isNotEmpty;
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class Proposal {
 
-    public static final List<String> AUTHORIZED_SORTS = Arrays.asList("state", "name", "language", "tracklabel", "difficulty", "added");
+    public static final List<String> AUTHORIZED_SORTS = Arrays.asList("state", "name", "language", "tracklabel", "difficulty", "added", "mean", "votes");
 
     public enum State { DRAFT, CONFIRMED, PRESENT, ACCEPTED, REFUSED, BACKUP }
 
+    /**
+     * Allowed state changes : target state and the states a proposal can be moved from.
+     * <ul>
+     *     <li>speakers confirm their drafts, and admins can send them back to edit</li>
+     *     <li>speakers confirm their presence once accepted</li>
+     *     <li>admins triage confirmed proposals, and can change their mind from any triaged state,
+     *     including after the speaker confirmed their presence</li>
+     * </ul>
+     * Applying a transition to a proposal that is already done with it (see {@link #isDone(State)}) changes nothing.
+     */
+    public enum Transition {
+        CONFIRM(State.CONFIRMED, State.DRAFT),
+        BACK_TO_EDIT(State.DRAFT, State.CONFIRMED),
+        CONFIRM_PRESENCE(State.PRESENT, State.ACCEPTED),
+        ACCEPT(State.ACCEPTED, State.CONFIRMED, State.BACKUP, State.REFUSED),
+        BACKUP(State.BACKUP, State.CONFIRMED, State.ACCEPTED, State.REFUSED, State.PRESENT),
+        REJECT(State.REFUSED, State.CONFIRMED, State.ACCEPTED, State.BACKUP, State.PRESENT),
+        RETRACT(State.CONFIRMED, State.ACCEPTED, State.BACKUP, State.REFUSED, State.PRESENT);
+
+        private final State target;
+        private final List<State> from;
+
+        Transition(State target, State... from) {
+            this.target = target;
+            this.from = Arrays.asList(from);
+        }
+
+        public State getTarget() {
+            return target;
+        }
+
+        public List<State> getFrom() {
+            return from;
+        }
+
+        /**
+         * @return whether a proposal in this state already went through this transition: it is in the target state,
+         * or it was accepted and its speaker has since confirmed their presence
+         */
+        public boolean isDone(State current) {
+            return current == target || (this == ACCEPT && current == State.PRESENT);
+        }
+
+        /**
+         * @return the transition admins use to triage proposals to this state, or <code>null</code> if they can't
+         */
+        public static Transition triage(State target) {
+            switch (target) {
+                case ACCEPTED: return ACCEPT;
+                case BACKUP: return BACKUP;
+                case REFUSED: return REJECT;
+                case CONFIRMED: return RETRACT;
+                default: return null;
+            }
+        }
+    }
+
     private int id;
     private State state;
     @NotNull(message = "Session name field is required")
@@ -70,6 +127,9 @@ public class Proposal {
     private List<String> voteUsersEmail;
     private String mean;
 
+    @JsonIgnore
+    private RateSummary rating;
+
 
     public String buildSpeakersList() {
         String res = this.getSpeaker().getFullName();
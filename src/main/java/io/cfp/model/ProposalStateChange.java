@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Move many proposals to the same state at once
+ */
+@Data
+@NoArgsConstructor
+@Accessors(chain = true)
+public class ProposalStateChange {
+
+    public static final int MAX_PROPOSALS = 1000;
+
+    /**
+     * What happened to each proposal: <code>UNCHANGED</code> when it was already in the requested state
+     */
+    public enum Outcome { UPDATED, UNCHANGED, CONFLICT, NOT_FOUND }
+
+    @NotNull
+    @Size(min = 1, max = MAX_PROPOSALS)
+    private List<Integer> ids = new ArrayList<>();
+
+    @NotNull(message = "Target state is required")
+    private Proposal.State state;
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Aggregated ratings of a proposal, maintained in <code>rate_summaries</code> each time a rate is written
+ * so that proposal listings don't need to load every single rate of the event.
+ */
+@Data
+@NoArgsConstructor
+@Accessors(chain = true)
+public class RateSummary {
+
+    private int proposalId;
+    /** number of rates, including "no opinion" (0) ones */
+    private int rateCount;
+    /** number of rates with an actual mark (> 0) */
+    private int voteCount;
+    /** sum of actual marks */
+    private int rateTotal;
+    /** mean of actual marks, stored so proposals can be sorted on it */
+    private BigDecimal average;
+    private int loveCount;
+    private int hateCount;
+    /** comma separated ids of reviewers who rated this proposal, their emails are looked up when listing proposals */
+    private String voterIds;
+
+    public static RateSummary of(int proposalId, Collection<Rate> rates) {
+        RateSummary summary = new RateSummary().setProposalId(proposalId);
+        List<String> voters = new ArrayList<>();
+        for (Rate rate : rates) {
+            summary.rateCount++;
+            if (rate.getRate() > 0) {
+                summary.voteCount++;
+                summary.rateTotal += rate.getRate();
+            }
+            if (rate.isLove()) {
+                summary.loveCount++;
+            }
+            if (rate.isHate()) {
+                summary.hateCount++;
+            }
+            if (rate.getUser() != null) {
+                voters.add(String.valueOf(rate.getUser().getId()));
+            }
+        }
+        summary.voterIds = String.join(",", voters);
+        if (summary.voteCount > 0) {
+            summary.average = BigDecimal.valueOf(summary.rateTotal)
+                .divide(BigDecimal.valueOf(summary.voteCount), 3, RoundingMode.HALF_EVEN);
+        }
+        return summary;
+    }
+
+    public List<Integer> getVoterUserIds() {
+        if (voterIds == null || voterIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return Arrays.stream(voterIds.split(",")).map(Integer::valueOf).collect(Collectors.toList());
+    }
+
+    /**
+     * @param emails current email of each user, see RateService#voterEmails
+     * @return emails of reviewers who rated this proposal, leaving out those who no longer exist
+     */
+    public List<String> getVoterEmails(Map<Integer, String> emails) {
+        return getVoterUserIds().stream().map(emails::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * Mean of actual marks, formatted as the reviewer UI always received it
+     */
+    public String getMean() {
+        return voteCount > 0 ? String.valueOf((float) rateTotal / voteCount) : null;
+    }
+}
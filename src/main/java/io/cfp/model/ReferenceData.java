@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.model;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Snapshot of an event's formats, themes and rooms, indexed by id.
+ * Never modified once built, a write to any of these tables replaces the whole snapshot.
+ */
+public final class ReferenceData {
+
+    private final ImmutableMap<Integer, Format> formats;
+    private final ImmutableMap<Integer, Theme> themes;
+    private final ImmutableMap<Integer, Room> rooms;
+
+    public ReferenceData(List<Format> formats, List<Theme> themes, List<Room> rooms) {
+        this.formats = Maps.uniqueIndex(formats, Format::getId);
+        this.themes = Maps.uniqueIndex(themes, Theme::getId);
+        this.rooms = Maps.uniqueIndex(rooms, Room::getId);
+    }
+
+    /**
+     * @return the format with this id, or <code>null</code> if unknown
+     */
+    public Format format(Integer id) {
+        return id != null ? formats.get(id) : null;
+    }
+
+    /**
+     * @return the theme with this id, or <code>null</code> if unknown
+     */
+    public Theme theme(Integer id) {
+        return id != null ? themes.get(id) : null;
+    }
+
+    /**
+     * @return the room with this id, or <code>null</code> if unknown
+     */
+    public Room room(Integer id) {
+        return id != null ? rooms.get(id) : null;
+    }
+
+    public Collection<Format> getFormats() {
+        return formats.values();
+    }
+
+    public Collection<Theme> getThemes() {
+        return themes.values();
+    }
+
+    public Collection<Room> getRooms() {
+        return rooms.values();
+    }
+}
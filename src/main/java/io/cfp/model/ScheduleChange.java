@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/**
+ * New slot of a proposal in the schedule
+ */
+@Data
+@NoArgsConstructor
+@Accessors(chain = true)
+public class ScheduleChange {
+
+    private static final DateTimeFormatter HOUR = DateTimeFormatter.ofPattern("HH:mm");
+
+    private int proposalId;
+    private Proposal.State state;
+    private Date schedule;
+    private String scheduleHour;
+    /** <code>null</code> to keep the current room */
+    private Integer roomId;
+
+    public static ScheduleChange of(int proposalId, LocalDateTime start, String roomId, Proposal.State state) {
+        return new ScheduleChange()
+            .setProposalId(proposalId)
+            .setState(state)
+            .setSchedule(Date.from(start.atZone(ZoneId.systemDefault()).toInstant()))
+            .setScheduleHour(start.format(HOUR))
+            .setRoomId(roomId != null ? Integer.valueOf(roomId) : null);
+    }
+
+    /**
+     * @return whether this change would leave the proposal as it is
+     */
+    public boolean isAppliedTo(Proposal proposal) {
+        return state == proposal.getState()
+            && proposal.getSchedule() != null && schedule.getTime() == proposal.getSchedule().getTime()
+            && scheduleHour.equals(proposal.getScheduleHour())
+            && (roomId == null || roomId.equals(proposal.getRoomId()));
+    }
+
+    /**
+     * Copy this change onto the proposal
+     */
+    public Proposal applyTo(Proposal proposal) {
+        proposal.setState(state);
+        proposal.setSchedule(schedule);
+        proposal.setScheduleHour(scheduleHour);
+        if (roomId != null) {
+            proposal.setRoomId(roomId);
+        }
+        return proposal;
+    }
+}
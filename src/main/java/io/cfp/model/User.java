@@ -25,6 +25,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.Accessors;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.BeanUtils;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -122,6 +123,18 @@ public class User {
         return Locale.ENGLISH;
     }
 
+    /**
+     * @return a copy of this user, with its own set of roles
+     */
+    public User copy() {
+        User copy = new User();
+        BeanUtils.copyProperties(this, copy, "roles");
+        if (roles != null) {
+            copy.roles = new HashSet<>(roles);
+        }
+        return copy;
+    }
+
     public User cleanPrivatesInformations() {
         this.setEmail(null);
         this.setTshirtSize(null);
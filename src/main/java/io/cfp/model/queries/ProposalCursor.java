@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.model.queries;
+
+import io.cfp.domain.exception.BadRequestException;
+import io.cfp.model.Proposal;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last proposal of a page, for keyset pagination : its sort key value and its id (tie breaker), along
+ * with the sort and direction it was taken in. Exposed to clients as an opaque url-safe string.
+ */
+@Data
+@NoArgsConstructor
+@Accessors(chain = true)
+public class ProposalCursor {
+
+    /** response header carrying the cursor to the next page */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private ProposalSort sort;
+    /** asc or desc */
+    private String order;
+    /** sort key value of the last row, <code>null</code> if that row had none */
+    private Object value;
+    private int id;
+
+    public static ProposalCursor after(ProposalSort sort, String order, Proposal last) {
+        return new ProposalCursor()
+            .setSort(sort)
+            .setOrder(order)
+            .setValue(sort.keyOf(last))
+            .setId(last.getId());
+    }
+
+    public String encode() {
+        String raw = id + ":" + sort.name() + ":" + order + (value != null ? ":" + value : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProposalCursor decode(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 4);
+            ProposalSort sort = ProposalSort.valueOf(parts[1]);
+            if (!ProposalQuery.ASC.equals(parts[2]) && !ProposalQuery.DESC.equals(parts[2])) {
+                throw new IllegalArgumentException("Invalid order " + parts[2]);
+            }
+            return new ProposalCursor()
+                .setId(Integer.parseInt(parts[0]))
+                .setSort(sort)
+                .setOrder(parts[2])
+                .setValue(parts.length > 3 ? sort.parse(parts[3]) : null);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new BadRequestException("Invalid cursor: " + cursor);
+        }
+    }
+}
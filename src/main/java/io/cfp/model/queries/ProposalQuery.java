@@ -1,5 +1,6 @@
 package io.cfp.model.queries;
 
+import io.cfp.domain.exception.BadRequestException;
 import io.cfp.model.Proposal;
 import lombok.Data;
 import lombok.experimental.Accessors;
@@ -7,11 +8,18 @@ import lombok.experimental.Accessors;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 @Data
 @Accessors(chain = true)
 public class ProposalQuery {
 
+    public static final int MAX_PAGE_SIZE = 200;
+
+    public static final String ASC = "asc";
+    public static final String DESC = "desc";
+
     private String eventId;
     private Integer userId;
     private List<Proposal.State> states = new ArrayList<>();
@@ -20,6 +28,30 @@ public class ProposalQuery {
     private String format;
     private List<String> sort = new ArrayList<>();
     private String order;
+    /** load cospeakers by joining them, see ProposalMapper.findAllInTwoPhases for the alternative */
+    private boolean joinCospeakers = true;
+    /** proposals to leave out, e.g. those already rated by a reviewer */
+    private List<Integer> excludedIds = new ArrayList<>();
+    /** page size, no limit when <code>null</code> */
+    private Integer limit;
+    /** keyset position to start after, for next pages */
+    private ProposalCursor after;
+
+    public ProposalQuery copy() {
+        return new ProposalQuery()
+            .setEventId(eventId)
+            .setUserId(userId)
+            .setStates(new ArrayList<>(states))
+            .setTrack(track)
+            .setRoom(room)
+            .setFormat(format)
+            .setSort(new ArrayList<>(sort))
+            .setOrder(order)
+            .setJoinCospeakers(joinCospeakers)
+            .setExcludedIds(new ArrayList<>(excludedIds))
+            .setLimit(limit)
+            .setAfter(after);
+    }
 
     public ProposalQuery addStates(Proposal.State... states) {
         this.states.addAll(Arrays.asList(states));
@@ -30,4 +62,66 @@ public class ProposalQuery {
         this.sort.addAll(Arrays.asList(sort));
         return this;
     }
+
+    /**
+     * Restrict to a page of proposals, to be called once sort and order are set. Pages are sorted by a single key.
+     * @param size page size, capped to {@link #MAX_PAGE_SIZE}, no pagination if <code>null</code>
+     * @param cursor as returned by {@link #nextCursor(List)} for the previous page, <code>null</code> for the first one
+     */
+    public ProposalQuery page(Integer size, String cursor) {
+        if (size == null) {
+            return this;
+        }
+        if (size < 1) {
+            throw new BadRequestException("Invalid page size: " + size);
+        }
+        if (getSortColumns().size() > 1) {
+            throw new BadRequestException("Pages can only be sorted by one key: " + String.join(",", sort));
+        }
+        this.limit = Math.min(size, MAX_PAGE_SIZE);
+        if (cursor != null) {
+            ProposalCursor after = ProposalCursor.decode(cursor);
+            if (after.getSort() != getKeyset() || !after.getOrder().equals(getDirection())) {
+                throw new BadRequestException("Cursor doesn't match sort " + getKeyset().name().toLowerCase() + " " + getDirection());
+            }
+            this.after = after;
+        }
+        return this;
+    }
+
+    /**
+     * @return cursor to the page following this one, or <code>null</code> if it is the last one
+     */
+    public String nextCursor(List<Proposal> page) {
+        if (limit == null || page.size() < limit) {
+            return null;
+        }
+        return ProposalCursor.after(getKeyset(), getDirection(), page.get(page.size() - 1)).encode();
+    }
+
+    /**
+     * @return SQL expressions for the requested sorts
+     */
+    public List<String> getSortColumns() {
+        return sort.stream()
+            .map(ProposalSort::of)
+            .filter(Objects::nonNull)
+            .map(ProposalSort::getColumn)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * @return order of the sort, ascending unless descending was requested
+     */
+    public String getDirection() {
+        return DESC.equals(order) ? DESC : ASC;
+    }
+
+    /**
+     * Sort used for keyset pagination : the requested one, then proposal id
+     */
+    public ProposalSort getKeyset() {
+        ProposalSort keyset = sort.isEmpty() ? null : ProposalSort.of(sort.get(0));
+        return keyset != null ? keyset : ProposalSort.ADDED;
+    }
 }
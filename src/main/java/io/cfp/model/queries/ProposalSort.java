@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.model.queries;
+
+import io.cfp.model.Proposal;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.function.Function;
+
+/**
+ * Sort keys accepted on proposal searches, with the SQL expression they sort on. Keyset pagination compares
+ * rows on this expression, so it also knows how to read the key back from a {@link Proposal} and how to
+ * parse it from a cursor.
+ */
+public enum ProposalSort {
+
+    STATE("p.state", p -> p.getState() == null ? null : p.getState().name(), s -> s),
+    NAME("p.name", Proposal::getName, s -> s),
+    LANGUAGE("p.language", Proposal::getLanguage, s -> s),
+    TRACKLABEL("t.libelle", Proposal::getTrackLabel, s -> s),
+    DIFFICULTY("p.difficulty", Proposal::getDifficulty, Integer::valueOf),
+    ADDED("p.added", p -> p.getAdded() == null ? null : p.getAdded().getTime(), s -> new Date(Long.parseLong(s))),
+    MEAN("rs.average", p -> p.getRating() == null ? null : p.getRating().getAverage(), BigDecimal::new),
+    VOTES("COALESCE(rs.vote_count, 0)", p -> p.getRating() == null ? 0 : p.getRating().getVoteCount(), Integer::valueOf);
+
+    private final String column;
+    private final Function<Proposal, Object> key;
+    private final Function<String, Object> parser;
+
+    ProposalSort(String column, Function<Proposal, Object> key, Function<String, Object> parser) {
+        this.column = column;
+        this.key = key;
+        this.parser = parser;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    /**
+     * @return sort key value of this proposal, in a form {@link #parse(String)} can read back from its
+     * <code>toString()</code>
+     */
+    public Object keyOf(Proposal proposal) {
+        return key.apply(proposal);
+    }
+
+    public Object parse(String value) {
+        return parser.apply(value);
+    }
+
+    /**
+     * @return the sort for this key (case insensitive), or <code>null</code> if it isn't an authorized one
+     */
+    public static ProposalSort of(String key) {
+        for (ProposalSort sort : values()) {
+            if (sort.name().equalsIgnoreCase(key)) {
+                return sort;
+            }
+        }
+        return null;
+    }
+}
@@ -8,4 +8,5 @@ public class RateQuery {
 
     private String eventId;
     private int proposalId;
+    private Integer userId;
 }
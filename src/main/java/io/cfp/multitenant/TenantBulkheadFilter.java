@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.multitenant;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.WebApplicationContextUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Admits API requests within the concurrency budget of the event {@link TenantFilter} resolved,
+ * answers 429 with a <code>Retry-After</code> header otherwise.
+ */
+public class TenantBulkheadFilter extends OncePerRequestFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TenantBulkheadFilter.class);
+
+    private TenantBulkheads bulkheads;
+
+    @Override
+    protected void initFilterBean() {
+        WebApplicationContext webApplicationContext = WebApplicationContextUtils.getWebApplicationContext(getServletContext());
+        if (webApplicationContext != null) {
+            Map<String, TenantBulkheads> beans = webApplicationContext.getBeansOfType(TenantBulkheads.class);
+            if (!beans.isEmpty()) {
+                bulkheads = beans.values().iterator().next();
+            }
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        String tenant = (String) request.getAttribute("tenantId");
+        if (bulkheads == null || tenant == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        boolean heavy = isHeavy(request);
+        boolean admitted;
+        try {
+            admitted = bulkheads.tryAcquire(tenant, heavy);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            LOGGER.warn("Rejecting {} {} for event {}, too many concurrent requests", request.getMethod(), request.getRequestURI(), tenant);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(bulkheads.getRetryAfterSeconds()));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many concurrent requests for event " + tenant);
+            return;
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            bulkheads.release(tenant, heavy);
+        }
+    }
+
+    /**
+     * Exports, schedule notification and event archiving
+     */
+    static boolean isHeavy(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        if (uri.contains("/export/") || uri.endsWith(".pdf") || uri.endsWith(".csv")) {
+            return true;
+        }
+        return "POST".equals(request.getMethod()) && (uri.endsWith("/notification") || uri.endsWith("/archive"));
+    }
+
+    @VisibleForTesting
+    public void setBulkheads(TenantBulkheads bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.multitenant;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency budget of each event, so a spike on one event can't take every request thread and database
+ * connection of the instance. Heavy requests (exports, notifications, archiving) have a separate and smaller
+ * budget. A request waits a little for a permit, then is rejected.
+ * <p>
+ * Each event publishes <code>tenant.{id}.active</code>, <code>tenant.{id}.heavy.active</code>,
+ * <code>tenant.{id}.saturation</code> (percentage of its budget in use) and <code>tenant.{id}.rejected</code>.
+ */
+@Component
+public class TenantBulkheads implements PublicMetrics {
+
+    @Value("${cfp.tenants.bulkhead.max-concurrent:20}")
+    private int maxConcurrent;
+
+    @Value("${cfp.tenants.bulkhead.max-wait-millis:200}")
+    private long maxWaitMillis;
+
+    @Value("${cfp.tenants.bulkhead.heavy-max-concurrent:2}")
+    private int heavyMaxConcurrent;
+
+    @Value("${cfp.tenants.bulkhead.heavy-max-wait-millis:2000}")
+    private long heavyMaxWaitMillis;
+
+    @Value("${cfp.tenants.bulkhead.retry-after-seconds:5}")
+    private int retryAfterSeconds;
+
+    private final ConcurrentMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    /**
+     * @return whether the request may proceed, in which case {@link #release(String, boolean)} must follow
+     */
+    public boolean tryAcquire(String tenant, boolean heavy) throws InterruptedException {
+        Bulkhead bulkhead = bulkheads.computeIfAbsent(tenant, id -> new Bulkhead());
+        boolean acquired = heavy
+            ? bulkhead.heavy.tryAcquire(heavyMaxWaitMillis, TimeUnit.MILLISECONDS)
+            : bulkhead.standard.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        if (!acquired) {
+            bulkhead.rejected.incrementAndGet();
+        }
+        return acquired;
+    }
+
+    public void release(String tenant, boolean heavy) {
+        Bulkhead bulkhead = bulkheads.get(tenant);
+        (heavy ? bulkhead.heavy : bulkhead.standard).release();
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        bulkheads.forEach((tenant, bulkhead) -> {
+            int active = maxConcurrent - bulkhead.standard.availablePermits();
+            int heavyActive = heavyMaxConcurrent - bulkhead.heavy.availablePermits();
+            metrics.add(new Metric<>("tenant." + tenant + ".active", active));
+            metrics.add(new Metric<>("tenant." + tenant + ".heavy.active", heavyActive));
+            metrics.add(new Metric<>("tenant." + tenant + ".saturation", 100 * (active + heavyActive) / (maxConcurrent + heavyMaxConcurrent)));
+            metrics.add(new Metric<>("tenant." + tenant + ".rejected", bulkhead.rejected.get()));
+        });
+        return metrics;
+    }
+
+    private final class Bulkhead {
+        private final Semaphore standard = new Semaphore(maxConcurrent, true);
+        private final Semaphore heavy = new Semaphore(heavyMaxConcurrent, true);
+        private final AtomicLong rejected = new AtomicLong();
+    }
+}
@@ -20,11 +20,14 @@
 
 package io.cfp.multitenant;
 
+import com.google.common.annotations.VisibleForTesting;
 import io.cfp.entity.Event;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.WebApplicationContextUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import javax.servlet.FilterChain;
@@ -32,6 +35,7 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Map;
 
 /**
  * @author <a href="mailto:nicolas.deloof@gmail.com">Nicolas De Loof</a>
@@ -40,9 +44,28 @@ public class TenantFilter extends OncePerRequestFilter {
 
     public static final String TENANT_HEADER = "X-Tenant-Id";
 
+    private static final String DEFAULT_TENANT = "demo";
+
+    private TenantRegistry tenantRegistry;
+
+    @Override
+    protected void initFilterBean() {
+        WebApplicationContext webApplicationContext = WebApplicationContextUtils.getWebApplicationContext(getServletContext());
+        if (webApplicationContext != null) {
+            Map<String, TenantRegistry> registries = webApplicationContext.getBeansOfType(TenantRegistry.class);
+            if (!registries.isEmpty()) {
+                tenantRegistry = registries.values().iterator().next();
+            }
+        }
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         final String eventId =  extractTenant(request);
+        if (tenantRegistry != null && !tenantRegistry.exists(eventId.toLowerCase())) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Unknown event " + eventId);
+            return;
+        }
         MDC.put("event.id", eventId);
         request.setAttribute("tenantId", eventId.toLowerCase());
         Event.setCurrent(eventId.toLowerCase());
@@ -55,12 +78,9 @@ public class TenantFilter extends OncePerRequestFilter {
 
     String extractTenant(HttpServletRequest request) {
 
-        String host = request.getServerName();
-
-        // https://{{event_id}}.cfp.io/*
-        if (host.endsWith(".cfp.io") && !"api.cfp.io".equals(host)) {
-            // Requested as https://foo-bar.cfp.io
-            return host.substring(0, host.indexOf('.'));
+        String tenant = tenantOfHost(request.getServerName());
+        if (!tenant.isEmpty()) {
+            return tenant;
         }
 
         // https://api.cfp.io/* -H 'X-Tenant-Id: {{event_id}}'
@@ -84,7 +104,24 @@ public class TenantFilter extends OncePerRequestFilter {
         }
 
         logger.warn("Can't determine current event. Fallback to 'demo'");
-        return "demo";
+        return DEFAULT_TENANT;
+    }
+
+    /**
+     * @return tenant of the host name, empty for hosts which are not an event's, like api.cfp.io
+     */
+    private static String tenantOfHost(String host) {
+        // https://{{event_id}}.cfp.io/*
+        if (host.endsWith(".cfp.io") && !"api.cfp.io".equals(host)) {
+            // Requested as https://foo-bar.cfp.io
+            return host.substring(0, host.indexOf('.'));
+        }
+        return "";
+    }
+
+    @VisibleForTesting
+    public void setTenantRegistry(TenantRegistry tenantRegistry) {
+        this.tenantRegistry = tenantRegistry;
     }
 
     private static final Logger logger = LoggerFactory.getLogger(TenantFilter.class);
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.multitenant;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.cfp.config.ReplicaRoutingDataSource;
+import io.cfp.mapper.EventMapper;
+import io.cfp.service.AfterCommit;
+import io.cfp.service.CacheInvalidationBus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Known event ids, so requests for an unknown tenant are rejected without reaching the database.
+ * <p>
+ * Ids are loaded on startup and reloaded when an event is created, on other nodes through the
+ * {@link CacheInvalidationBus}. Until they poll it, an id created elsewhere is checked against the database on first
+ * request; ids found unknown are remembered for
+ * <code>cfp.tenants.unknown-ttl-seconds</code>, so random subdomains don't each cost a query.
+ */
+@Component
+public class TenantRegistry {
+
+    static final String NAME = "tenants";
+
+    @Autowired
+    private EventMapper events;
+
+    @Autowired
+    private CacheInvalidationBus bus;
+
+    @Value("${cfp.tenants.unknown-ttl-seconds:60}")
+    private long unknownTtlSeconds;
+
+    @Value("${cfp.tenants.unknown-cache-size:10000}")
+    private long unknownCacheSize;
+
+    private volatile Set<String> known;
+
+    private Cache<String, Boolean> unknown;
+
+    @PostConstruct
+    public void init() {
+        unknown = CacheBuilder.newBuilder()
+            .maximumSize(unknownCacheSize)
+            .expireAfterWrite(unknownTtlSeconds, TimeUnit.SECONDS)
+            .build();
+        load();
+        bus.register(NAME, scope -> load());
+    }
+
+    public boolean exists(String eventId) {
+        if (known.contains(eventId)) {
+            return true;
+        }
+        if (unknown.getIfPresent(eventId) != null) {
+            return false;
+        }
+        if (ReplicaRoutingDataSource.onPrimary(() -> events.exists(eventId))) {
+            add(eventId);
+            return true;
+        }
+        unknown.put(eventId, Boolean.TRUE);
+        return false;
+    }
+
+    /**
+     * Reload known ids once the current transaction commits, to be called when an event is created
+     */
+    public void refresh() {
+        bus.publish(NAME, null);
+        AfterCommit.run(this::load);
+    }
+
+    private synchronized void add(String eventId) {
+        Set<String> ids = new HashSet<>(known);
+        ids.add(eventId);
+        known = ids;
+    }
+
+    private synchronized void load() {
+        known = ReplicaRoutingDataSource.onPrimary(events::findIds).stream().map(String::toLowerCase).collect(Collectors.toSet());
+        unknown.invalidateAll();
+    }
+}
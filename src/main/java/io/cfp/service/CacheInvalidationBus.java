@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.cfp.mapper.CacheVersionMapper;
+import io.cfp.model.CacheVersion;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionHolder;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Cross-node invalidation of the in-memory caches. A writer bumps the version of the changed (region, scope) in
+ * `cache_versions` within its own transaction, and every node polls the table, evicting only the scopes whose
+ * version moved since its previous poll. A node remembers the versions it wrote itself, and doesn't evict a scope
+ * whose new versions are all its own. Caches of the {@link CacheManager} are registered on startup, other caches
+ * register themselves.
+ */
+@Service
+public class CacheInvalidationBus {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    @Autowired
+    private CacheVersionMapper versions;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Value("${cfp.cache.bus.poll-seconds:2}")
+    private int pollSeconds;
+
+    private final ConcurrentMap<String, Consumer<String>> regions = new ConcurrentHashMap<>();
+
+    private Map<Key, Long> seen;
+
+    /** versions written by this node and committed, not yet polled */
+    private final ConcurrentMap<Key, Set<Long>> own = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService poller;
+
+    private CacheVersionMapper batchVersions;
+
+    @PostConstruct
+    public void start() {
+        batchVersions = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH).getMapper(CacheVersionMapper.class);
+        for (String name : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(name);
+            register(name, cache::evict);
+        }
+        poll();
+        poller = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("cache-bus").setDaemon(true).build());
+        poller.scheduleWithFixedDelay(this::poll, pollSeconds, pollSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+    }
+
+    /**
+     * @param evict called with the scope whenever another node changed it
+     */
+    public void register(String region, Consumer<String> evict) {
+        regions.put(region, evict);
+    }
+
+    /**
+     * Make other nodes evict the scope of the region once the current transaction commits. The calling node
+     * updates its own copy itself, so it skips this version on its next poll.
+     */
+    public void publish(String region, String scope) {
+        Key key = new Key(region, Objects.toString(scope, ""));
+        CacheVersionMapper versions = versions();
+        versions.increment(key.region, key.scope);
+        // the row stays locked until commit, so this is the version the commit publishes
+        Long version = versions.findVersion(key.region, key.scope);
+        if (version != null) {
+            AfterCommit.run(() -> own.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(version));
+        }
+    }
+
+    /**
+     * MyBatis can't switch executor within a transaction, so bump versions with the executor of the transaction's
+     * session, e.g. from {@link ScheduleService} which writes in batch.
+     */
+    private CacheVersionMapper versions() {
+        SqlSessionHolder holder = (SqlSessionHolder) TransactionSynchronizationManager.getResource(sqlSessionFactory);
+        if (holder != null && holder.getExecutorType() == ExecutorType.BATCH) {
+            return batchVersions;
+        }
+        return versions;
+    }
+
+    synchronized void poll() {
+        Map<Key, Long> current = new HashMap<>();
+        try {
+            for (CacheVersion version : versions.findAll()) {
+                current.put(new Key(version.getName(), version.getScope()), version.getVersion());
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Unable to poll cache versions", e);
+            return;
+        }
+
+        if (seen != null) {
+            current.forEach((key, version) -> {
+                long previous = seen.getOrDefault(key, 0L);
+                if (version != previous && !isOwn(key, previous, version)) {
+                    evict(key);
+                }
+            });
+        }
+        // forget own versions once polled, including the ones committed after an earlier poll already saw them
+        own.forEach((key, published) -> {
+            Long version = current.get(key);
+            if (version != null) {
+                published.removeIf(v -> v <= version);
+            }
+            own.remove(key, Collections.emptySet());
+        });
+        seen = current;
+    }
+
+    /**
+     * @return whether every version after the previous one up to the current one was written by this node
+     */
+    private boolean isOwn(Key key, long previous, long current) {
+        Set<Long> published = own.get(key);
+        if (published == null || current < previous) {
+            return false;
+        }
+        for (long version = previous + 1; version <= current; version++) {
+            if (!published.contains(version)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void evict(Key key) {
+        Consumer<String> evict = regions.get(key.region);
+        if (evict == null) {
+            return;
+        }
+        try {
+            evict.accept(key.scope);
+        } catch (RuntimeException e) {
+            LOGGER.error("Unable to evict {} of cache {}", key.scope, key.region, e);
+        }
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class Key {
+        private final String region;
+        private final String scope;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.service;
+
+import io.cfp.config.ReplicaRoutingDataSource;
+import io.cfp.mapper.EventMapper;
+import io.cfp.model.Event;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Events by id, read on every page load, proposal submission and mail. Backed by the <code>events</code> cache of
+ * {@link io.cfp.config.CacheConfig}, evicted once a change to the event is committed, on other nodes through the
+ * {@link CacheInvalidationBus}.
+ * <p>
+ * Code about to update an event must read it from {@link EventMapper}, not from here.
+ */
+@Service
+public class EventCache {
+
+    static final String NAME = "events";
+
+    @Autowired
+    private EventMapper events;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private CacheInvalidationBus bus;
+
+    private Cache cache;
+
+    @PostConstruct
+    public void init() {
+        cache = cacheManager.getCache(NAME);
+    }
+
+    /**
+     * @return a copy of the event, callers may modify it, or null when there is no such event
+     */
+    public Event get(String eventId) {
+        Event event = cache.get(eventId, () -> ReplicaRoutingDataSource.onPrimary(() -> events.findOne(eventId)));
+        return event != null ? event.copy() : null;
+    }
+
+    public void evict(String eventId) {
+        bus.publish(NAME, eventId);
+        AfterCommit.run(() -> cache.evict(eventId));
+    }
+}
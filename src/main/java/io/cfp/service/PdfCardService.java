@@ -2,14 +2,10 @@ package io.cfp.service;
 
 import com.itextpdf.text.*;
 import com.itextpdf.text.pdf.*;
-import io.cfp.mapper.FormatMapper;
 import io.cfp.mapper.ProposalMapper;
-import io.cfp.mapper.RateMapper;
-import io.cfp.model.Format;
 import io.cfp.model.Proposal;
-import io.cfp.model.Rate;
+import io.cfp.model.ReferenceData;
 import io.cfp.model.queries.ProposalQuery;
-import io.cfp.model.queries.RateQuery;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,12 +15,10 @@ import org.springframework.stereotype.Service;
 import java.io.OutputStream;
 import java.util.*;
 import java.util.List;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static java.util.Comparator.*;
 import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
 import static org.apache.commons.collections4.CollectionUtils.isNotEmpty;
 import static org.apache.commons.lang3.ObjectUtils.defaultIfNull;
 import static org.apache.commons.lang3.StringUtils.substring;
@@ -38,10 +32,7 @@ public class PdfCardService {
     private static final Logger LOGGER = LoggerFactory.getLogger(PdfCardService.class);
 
     @Autowired
-    private FormatMapper formatMapper;
-
-    @Autowired
-    private RateMapper rateMapper;
+    private ReferenceDataService referenceData;
 
     @Autowired
     private ProposalMapper proposalMapper;
@@ -65,31 +56,16 @@ public class PdfCardService {
         PdfPTable table = new PdfPTable(3);
         table.setWidthPercentage(100);
 
-        Map<Integer, Format> formats = formatMapper.findByEvent(eventId).stream()
-            .collect(toMap(Format::getId, Function.identity()));
+        ReferenceData reference = referenceData.get(eventId);
 
-        LOGGER.debug("Nombre de formats", formats.size());
+        LOGGER.debug("Nombre de formats {}", reference.getFormats().size());
 
         List<Proposal> proposals = proposalMapper.findAll(new ProposalQuery().setEventId(eventId).setStates(Arrays.asList(Proposal.State.CONFIRMED)));
 
 
-        List<Rate> rates = this.rateMapper.findAllWithTalk(eventId);
-        Map<Integer, List<Rate>> ratesByTalk = rates.stream().collect(Collectors.groupingBy(rate -> rate.getTalk().getId()));
-
         for (Proposal proposal : proposals) {
-            List<String> emails = new ArrayList<>();
-            float total = 0;
-            int votes = 0;
-            for (Rate rate : ratesByTalk.get(proposal.getId())) {
-                emails.add(rate.getUser().getEmail());
-                if (rate.getRate() > 0) {
-                    total += rate.getRate();
-                    votes++;
-                }
-            }
-            proposal.setVoteUsersEmail(emails);
-            if (votes > 0) {
-                proposal.setMean(String.valueOf(total / votes));
+            if (proposal.getRating() != null) {
+                proposal.setMean(proposal.getRating().getMean());
             }
         }
 
@@ -109,7 +85,7 @@ public class PdfCardService {
             //innerTable.widths = [1f, 1f]
 
             // En-tête (format + track)
-            Phrase formatPh = new Phrase(new Chunk(formats.get(proposal.getFormat()).getName(), font));
+            Phrase formatPh = new Phrase(new Chunk(reference.format(proposal.getFormat()).getName(), font));
             PdfPCell format = new PdfPCell(formatPh);
 
             innerTable.addCell(format);
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.service;
+
+import io.cfp.mapper.ProposalMapper;
+import io.cfp.model.Proposal;
+import io.cfp.model.StateCount;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Number of proposals per event, speaker and state, stored in <code>proposal_counts</code> so dashboards don't scan
+ * proposals. Every proposal write must update them in its own transaction, through this service or
+ * {@link Changes#applyTo(ProposalMapper, String)}.
+ */
+@Service
+public class ProposalCountService {
+
+    @Autowired
+    private ProposalMapper proposals;
+
+    /**
+     * @param userId only count proposals of this speaker, all of them when null
+     * @return number of proposals of the event in each state, every state present
+     */
+    public Map<Proposal.State, Integer> countStates(String eventId, Integer userId) {
+        Map<Proposal.State, Integer> counts = new EnumMap<>(Proposal.State.class);
+        for (Proposal.State state : Proposal.State.values()) {
+            counts.put(state, 0);
+        }
+        for (StateCount count : proposals.countByState(eventId, userId)) {
+            counts.put(count.getState(), count.getTotal());
+        }
+        return counts;
+    }
+
+    public void add(String eventId, int userId, Proposal.State state) {
+        proposals.adjustCount(eventId, userId, state, 1);
+    }
+
+    public void remove(String eventId, int userId, Proposal.State state) {
+        proposals.adjustCount(eventId, userId, state, -1);
+    }
+
+    /**
+     * Move a proposal to another state, counting it for its speaker without reading it. Counts are adjusted in state
+     * order, as {@link Changes} does.
+     */
+    public void move(String eventId, int proposalId, Proposal.State from, Proposal.State to) {
+        if (from == to) {
+            return;
+        }
+        if (from.compareTo(to) < 0) {
+            proposals.adjustProposalCount(proposalId, eventId, from, -1);
+            proposals.adjustProposalCount(proposalId, eventId, to, 1);
+        } else {
+            proposals.adjustProposalCount(proposalId, eventId, to, 1);
+            proposals.adjustProposalCount(proposalId, eventId, from, -1);
+        }
+    }
+
+    public void apply(String eventId, Changes changes) {
+        changes.applyTo(proposals, eventId);
+    }
+
+    /**
+     * Count again all proposals of the event, after a bulk update
+     */
+    public void recount(String eventId) {
+        proposals.deleteCounts(eventId);
+        proposals.insertCounts(eventId);
+    }
+
+    public void clear(String eventId) {
+        proposals.deleteCounts(eventId);
+    }
+
+    /**
+     * Count changes of many proposals of an event, applied in a stable order so concurrent transactions lock the
+     * same counts in the same order
+     */
+    public static class Changes {
+
+        private final SortedMap<Integer, Map<Proposal.State, Integer>> deltas = new TreeMap<>();
+
+        /**
+         * @param proposal its speaker id and current state
+         */
+        public Changes move(Proposal proposal, Proposal.State to) {
+            if (proposal.getSpeaker() == null || proposal.getState() == to) {
+                return this;
+            }
+            adjust(proposal.getSpeaker().getId(), proposal.getState(), -1);
+            adjust(proposal.getSpeaker().getId(), to, 1);
+            return this;
+        }
+
+        private void adjust(int userId, Proposal.State state, int delta) {
+            deltas.computeIfAbsent(userId, id -> new EnumMap<>(Proposal.State.class)).merge(state, delta, Integer::sum);
+        }
+
+        /**
+         * @param proposals the regular mapper, or the batch one of the current transaction
+         */
+        public void applyTo(ProposalMapper proposals, String eventId) {
+            deltas.forEach((userId, byState) -> byState.forEach((state, delta) -> {
+                if (delta != 0) {
+                    proposals.adjustCount(eventId, userId, state, delta);
+                }
+            }));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.service;
+
+import io.cfp.domain.exception.ConflictException;
+import io.cfp.domain.exception.NotFoundException;
+import io.cfp.mapper.ProposalMapper;
+import io.cfp.model.Proposal;
+import io.cfp.model.ProposalStateChange;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Move proposals through their workflow, following the rules of {@link Proposal.Transition}
+ */
+@Service
+public class ProposalStateService {
+
+    @Autowired
+    private ProposalMapper proposals;
+
+    @Autowired
+    private ProposalCountService proposalCounts;
+
+    /**
+     * Move a proposal to the target state of this transition. Each allowed source state is tried with a conditional
+     * update, the first one matching the current state wins, so a concurrent change by another admin is reported as a
+     * conflict.
+     * @return <code>false</code> if the proposal was already done with this transition, so nothing changed
+     * @throws NotFoundException if there's no such proposal in this event
+     * @throws ConflictException if its current state doesn't allow this transition
+     */
+    @Transactional
+    public boolean transition(int id, String eventId, Proposal.Transition transition) {
+        for (Proposal.State from : transition.getFrom()) {
+            if (proposals.updateStateFrom(id, eventId, transition.getTarget(), Collections.singleton(from)) == 1) {
+                proposalCounts.move(eventId, id, from, transition.getTarget());
+                return true;
+            }
+        }
+
+        Proposal proposal = proposals.findById(id, eventId);
+        if (proposal == null) {
+            throw new NotFoundException("No proposal with ID: " + id);
+        }
+        if (transition.isDone(proposal.getState())) {
+            return false;
+        }
+        throw new ConflictException("Proposal " + id + " can't go from " + proposal.getState() + " to " + transition.getTarget());
+    }
+
+    /**
+     * Apply a transition to many proposals with a single update. Proposals are locked while checking their current
+     * state, so the outcome reported for each one is the applied one.
+     * @return outcome for each requested proposal id
+     */
+    @Transactional
+    public Map<Integer, ProposalStateChange.Outcome> transitionAll(Collection<Integer> ids, String eventId, Proposal.Transition transition) {
+        Map<Integer, ProposalStateChange.Outcome> outcomes = new LinkedHashMap<>();
+        for (Integer id : ids) {
+            outcomes.put(id, ProposalStateChange.Outcome.NOT_FOUND);
+        }
+
+        List<Integer> allowed = new ArrayList<>();
+        ProposalCountService.Changes counts = new ProposalCountService.Changes();
+        for (Proposal proposal : proposals.lockStates(ids, eventId)) {
+            if (transition.isDone(proposal.getState())) {
+                outcomes.put(proposal.getId(), ProposalStateChange.Outcome.UNCHANGED);
+            } else if (transition.getFrom().contains(proposal.getState())) {
+                allowed.add(proposal.getId());
+                counts.move(proposal, transition.getTarget());
+                outcomes.put(proposal.getId(), ProposalStateChange.Outcome.UPDATED);
+            } else {
+                outcomes.put(proposal.getId(), ProposalStateChange.Outcome.CONFLICT);
+            }
+        }
+
+        if (!allowed.isEmpty()) {
+            proposals.updateAllStateFrom(allowed, eventId, transition.getTarget(), transition.getFrom());
+            proposalCounts.apply(eventId, counts);
+        }
+        return outcomes;
+    }
+}
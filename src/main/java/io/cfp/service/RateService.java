@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.service;
+
+import io.cfp.domain.exception.NotFoundException;
+import io.cfp.mapper.RateMapper;
+import io.cfp.mapper.UserMapper;
+import io.cfp.model.Proposal;
+import io.cfp.model.Rate;
+import io.cfp.model.RateSummary;
+import io.cfp.model.User;
+import io.cfp.model.queries.RateQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Write rates and keep the per-proposal {@link RateSummary} in sync, in the same transaction.
+ */
+@Service
+@Transactional
+public class RateService {
+
+    @Autowired
+    private RateMapper rateMapper;
+
+    @Autowired
+    private ReviewCoverageService reviewCoverage;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    public Rate add(Rate rate) {
+        int proposalId = lock(rate);
+        rateMapper.insert(rate);
+        refreshSummary(proposalId, rate.getEventId());
+        return rate;
+    }
+
+    public Rate update(Rate rate) {
+        int proposalId = lock(rate);
+        rateMapper.update(rate);
+        refreshSummary(proposalId, rate.getEventId());
+        return rate;
+    }
+
+    /**
+     * Store the reviewer's rate for the proposal, whether they already rated it or not
+     * @return the stored rate, with its ID
+     */
+    public Rate save(Rate rate) {
+        int proposalId = lock(rate);
+        rateMapper.upsert(rate);
+        List<Rate> rates = refreshSummary(proposalId, rate.getEventId());
+        int userId = rate.getUser().getId();
+        return rates.stream()
+            .filter(r -> r.getUser() != null && r.getUser().getId() == userId)
+            .findFirst()
+            .orElse(rate);
+    }
+
+    public void delete(int rateId, String eventId) {
+        Integer proposalId = rateMapper.findProposalId(rateId, eventId);
+        if (proposalId == null) {
+            return;
+        }
+        rateMapper.lockProposal(proposalId, eventId);
+        rateMapper.deleteForEvent(rateId, eventId);
+        refreshSummary(proposalId, eventId);
+    }
+
+    public void deleteAll(String eventId) {
+        rateMapper.deleteAllForEvent(eventId);
+        rateMapper.deleteSummariesForEvent(eventId);
+        reviewCoverage.invalidate(eventId);
+    }
+
+    /**
+     * Look up the current emails of the reviewers who rated these proposals, in a single query
+     * @return email of each voter id, see {@link RateSummary#getVoterEmails(Map)}
+     */
+    @Transactional(readOnly = true)
+    public Map<Integer, String> voterEmails(Collection<Proposal> proposals) {
+        Set<Integer> voters = new HashSet<>();
+        for (Proposal proposal : proposals) {
+            if (proposal.getRating() != null) {
+                voters.addAll(proposal.getRating().getVoterUserIds());
+            }
+        }
+        Map<Integer, String> emails = new HashMap<>();
+        if (!voters.isEmpty()) {
+            for (User user : userMapper.findEmails(voters)) {
+                emails.put(user.getId(), user.getEmail());
+            }
+        }
+        return emails;
+    }
+
+    /**
+     * Serialize writers on the rated proposal, so the summary is always computed from all committed rates
+     */
+    private int lock(Rate rate) {
+        int proposalId = rate.getTalk().getId();
+        if (rateMapper.lockProposal(proposalId, rate.getEventId()) == null) {
+            throw new NotFoundException("No proposal with ID: " + proposalId);
+        }
+        return proposalId;
+    }
+
+    private List<Rate> refreshSummary(int proposalId, String eventId) {
+        List<Rate> rates = rateMapper.findAll(new RateQuery().setEventId(eventId).setProposalId(proposalId));
+        RateSummary summary = RateSummary.of(proposalId, rates);
+        if (rateMapper.updateSummary(summary) == 0) {
+            rateMapper.insertSummary(summary);
+        }
+        reviewCoverage.refresh(eventId, proposalId, rates);
+        return rates;
+    }
+}
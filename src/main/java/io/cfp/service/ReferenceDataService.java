@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.service;
+
+import io.cfp.config.ReplicaRoutingDataSource;
+import io.cfp.mapper.FormatMapper;
+import io.cfp.mapper.RoomMapper;
+import io.cfp.mapper.ThemeMapper;
+import io.cfp.model.ReferenceData;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per event {@link ReferenceData}, loaded on first access and dropped once a write to formats, themes or rooms
+ * is committed.
+ */
+@Service
+public class ReferenceDataService {
+
+    static final String NAME = "reference-data";
+
+    @Autowired
+    private FormatMapper formats;
+
+    @Autowired
+    private ThemeMapper themes;
+
+    @Autowired
+    private RoomMapper rooms;
+
+    @Autowired
+    private CacheInvalidationBus bus;
+
+    private final ConcurrentMap<String, ReferenceData> events = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        bus.register(NAME, events::remove);
+    }
+
+    public ReferenceData get(String eventId) {
+        return events.computeIfAbsent(eventId, id -> ReplicaRoutingDataSource.onPrimary(() ->
+            new ReferenceData(formats.findByEvent(id), themes.findByEvent(id), rooms.findByEvent(id))));
+    }
+
+    /**
+     * Forget this event's snapshot, once the current transaction commits, and on other nodes through the
+     * {@link CacheInvalidationBus}. It will be reloaded on next access.
+     */
+    public void invalidate(String eventId) {
+        bus.publish(NAME, eventId);
+        AfterCommit.run(() -> events.remove(eventId));
+    }
+}
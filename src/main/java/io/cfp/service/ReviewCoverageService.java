@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.service;
+
+import io.cfp.config.ReplicaRoutingDataSource;
+import io.cfp.mapper.RateMapper;
+import io.cfp.model.Rate;
+import io.cfp.model.queries.RateQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In memory index of which proposals each reviewer already rated, one bitmap of proposal ids per reviewer and event.
+ * An event is loaded from the rates table on first access, then kept up to date by {@link RateService} once rate
+ * writes are committed. Other nodes learn through the {@link CacheInvalidationBus} which proposal was rated, and only
+ * reload the rates of that proposal. As a backstop against a missed update, an event is also reloaded once older
+ * than {@link #MAX_AGE_MILLIS}.
+ */
+@Service
+public class ReviewCoverageService {
+
+    static final String NAME = "review-coverage";
+
+    /** rated proposals, scoped by event and proposal id, see {@link #scope(String, int)} */
+    static final String PROPOSALS = "review-coverage-proposal";
+
+    static final long MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    @Autowired
+    private RateMapper rateMapper;
+
+    @Autowired
+    private CacheInvalidationBus bus;
+
+    private final ConcurrentMap<String, Coverage> events = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        bus.register(NAME, events::remove);
+        bus.register(PROPOSALS, this::reload);
+    }
+
+    public boolean hasRated(String eventId, int userId, int proposalId) {
+        return coverage(eventId).has(userId, proposalId);
+    }
+
+    /**
+     * @return a copy of the ids of proposals this reviewer rated
+     */
+    public BitSet ratedBy(String eventId, int userId) {
+        return coverage(eventId).ratedBy(userId);
+    }
+
+    /**
+     * @return first of these proposals this reviewer didn't rate yet, or <code>null</code> if all are rated
+     */
+    public Integer nextUnrated(String eventId, int userId, List<Integer> proposalIds) {
+        BitSet rated = coverage(eventId).ratedBy(userId);
+        for (Integer proposalId : proposalIds) {
+            if (!rated.get(proposalId)) {
+                return proposalId;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reset the reviewers of a proposal to the raters of these rates, once the current transaction commits. Called
+     * while the proposal is locked, so the version of this proposal isn't contended.
+     */
+    public void refresh(String eventId, int proposalId, Collection<Rate> rates) {
+        bus.publish(PROPOSALS, scope(eventId, proposalId));
+        // waits for a load in progress, which may have read the rates before this commit
+        AfterCommit.run(() -> events.computeIfPresent(eventId, (id, coverage) -> {
+            coverage.set(proposalId, rates);
+            return coverage;
+        }));
+    }
+
+    /**
+     * Forget everything about this event, once the current transaction commits. It will be reloaded on next access.
+     */
+    public void invalidate(String eventId) {
+        bus.publish(NAME, eventId);
+        AfterCommit.run(() -> events.remove(eventId));
+    }
+
+    static String scope(String eventId, int proposalId) {
+        return eventId + ':' + proposalId;
+    }
+
+    /**
+     * Another node rated this proposal: reload its rates, if its event is loaded here
+     */
+    private void reload(String scope) {
+        int separator = scope.lastIndexOf(':');
+        String eventId = scope.substring(0, separator);
+        int proposalId = Integer.parseInt(scope.substring(separator + 1));
+        if (!events.containsKey(eventId)) {
+            return;
+        }
+        List<Rate> rates = ReplicaRoutingDataSource.onPrimary(() ->
+            rateMapper.findAll(new RateQuery().setEventId(eventId).setProposalId(proposalId)));
+        events.computeIfPresent(eventId, (id, coverage) -> {
+            coverage.set(proposalId, rates);
+            return coverage;
+        });
+    }
+
+    private Coverage coverage(String eventId) {
+        long now = System.currentTimeMillis();
+        Coverage coverage = events.get(eventId);
+        if (coverage != null && now - coverage.loaded < MAX_AGE_MILLIS) {
+            return coverage;
+        }
+        return events.compute(eventId, (id, current) ->
+            current != null && now - current.loaded < MAX_AGE_MILLIS ? current : load(id, now));
+    }
+
+    private Coverage load(String eventId, long now) {
+        return new Coverage(ReplicaRoutingDataSource.onPrimary(() -> rateMapper.findAll(new RateQuery().setEventId(eventId))), now);
+    }
+
+    private static class Coverage {
+
+        private final Map<Integer, BitSet> reviewers = new HashMap<>();
+        private final long loaded;
+
+        Coverage(List<Rate> rates, long loaded) {
+            this.loaded = loaded;
+            for (Rate rate : rates) {
+                reviewers.computeIfAbsent(rate.getUser().getId(), id -> new BitSet()).set(rate.getTalk().getId());
+            }
+        }
+
+        synchronized boolean has(int userId, int proposalId) {
+            BitSet rated = reviewers.get(userId);
+            return rated != null && rated.get(proposalId);
+        }
+
+        synchronized BitSet ratedBy(int userId) {
+            BitSet rated = reviewers.get(userId);
+            return rated != null ? (BitSet) rated.clone() : new BitSet();
+        }
+
+        synchronized void set(int proposalId, Collection<Rate> rates) {
+            for (BitSet rated : reviewers.values()) {
+                rated.clear(proposalId);
+            }
+            for (Rate rate : rates) {
+                reviewers.computeIfAbsent(rate.getUser().getId(), id -> new BitSet()).set(proposalId);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.service;
+
+import io.cfp.mapper.ProposalMapper;
+import io.cfp.model.Proposal;
+import io.cfp.model.ScheduleChange;
+import io.cfp.model.ScheduleSaveSummary;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * Write schedule changes in a single transaction, sending the updates to the database as one JDBC batch.
+ * <p>
+ * MyBatis can't switch executor within a transaction, so callers must not have used the regular mappers in the
+ * transaction they call {@link #save(String, Collection)} from.
+ */
+@Service
+public class ScheduleService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScheduleService.class);
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    private ScheduleSnapshotService publicSchedule;
+
+    private SqlSessionTemplate batchSession;
+
+    @PostConstruct
+    void init() {
+        batchSession = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+    }
+
+    /**
+     * Apply these changes, skipping proposals already scheduled this way
+     */
+    @Transactional
+    public ScheduleSaveSummary save(String eventId, Collection<ScheduleChange> changes) {
+        ScheduleSaveSummary summary = new ScheduleSaveSummary();
+        if (changes.isEmpty()) {
+            return summary;
+        }
+
+        // last change wins when a proposal is moved twice
+        Map<Integer, ScheduleChange> byId = new LinkedHashMap<>();
+        for (ScheduleChange change : changes) {
+            byId.put(change.getProposalId(), change);
+        }
+
+        ProposalMapper proposals = batchSession.getMapper(ProposalMapper.class);
+        Map<Integer, Proposal> current = proposals.findSchedules(byId.keySet(), eventId).stream()
+            .collect(toMap(Proposal::getId, Function.identity()));
+
+        ProposalCountService.Changes counts = new ProposalCountService.Changes();
+        for (ScheduleChange change : byId.values()) {
+            Proposal proposal = current.get(change.getProposalId());
+            if (proposal == null) {
+                summary.getNotFound().add(change.getProposalId());
+            } else if (change.isAppliedTo(proposal)) {
+                summary.setUnchanged(summary.getUnchanged() + 1);
+            } else {
+                counts.move(proposal, change.getState());
+                proposals.updateSchedule(change.applyTo(proposal));
+                summary.setUpdated(summary.getUpdated() + 1);
+            }
+        }
+        counts.applyTo(proposals, eventId);
+        batchSession.flushStatements();
+
+        LOGGER.info("Schedule of {}: {} updated, {} unchanged, {} not found", eventId, summary.getUpdated(), summary.getUnchanged(), summary.getNotFound().size());
+        if (summary.getUpdated() > 0) {
+            publicSchedule.invalidate(eventId);
+        }
+        return summary;
+    }
+}
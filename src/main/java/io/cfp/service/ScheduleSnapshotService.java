@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Throwables;
+import io.cfp.config.ReplicaRoutingDataSource;
+import io.cfp.dto.user.Schedule;
+import io.cfp.mapper.ProposalMapper;
+import io.cfp.model.Format;
+import io.cfp.model.Proposal;
+import io.cfp.model.ReferenceData;
+import io.cfp.model.Room;
+import io.cfp.model.queries.ProposalQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.PostConstruct;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static java.util.stream.Collectors.toList;
+import static org.apache.commons.collections4.CollectionUtils.isNotEmpty;
+
+/**
+ * Public schedule of each event, kept serialized so polling clients are served without touching the database.
+ * A snapshot is rebuilt on first access after a schedule, state or proposal change is committed, or when the
+ * event's {@link ReferenceData} changed. Speaker profiles are edited outside of any event, so a snapshot is also
+ * rebuilt once older than {@link #MAX_AGE_MILLIS}.
+ */
+@Service
+public class ScheduleSnapshotService {
+
+    static final String NAME = "schedule";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScheduleSnapshotService.class);
+
+    static final long MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    @Autowired
+    private ProposalMapper proposals;
+
+    @Autowired
+    private ReferenceDataService referenceData;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CacheInvalidationBus bus;
+
+    /**
+     * Snapshot of each event, or the build in progress. Builds run outside of the map, so invalidations never
+     * wait for one to complete.
+     */
+    private final ConcurrentMap<String, CompletableFuture<Snapshot>> events = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        bus.register(NAME, events::remove);
+    }
+
+    public Snapshot get(String eventId) {
+        ReferenceData reference = referenceData.get(eventId);
+        long now = System.currentTimeMillis();
+        while (true) {
+            CompletableFuture<Snapshot> current = events.get(eventId);
+            if (current == null) {
+                // only one request rebuilds, concurrent ones wait for its result
+                CompletableFuture<Snapshot> pending = new CompletableFuture<>();
+                current = events.putIfAbsent(eventId, pending);
+                if (current == null) {
+                    return build(eventId, reference, now, pending);
+                }
+            }
+
+            Snapshot snapshot;
+            try {
+                snapshot = current.join();
+            } catch (CompletionException e) {
+                throw Throwables.propagate(e.getCause());
+            }
+            if (snapshot.isUpToDate(reference, now)) {
+                return snapshot;
+            }
+            events.remove(eventId, current);
+        }
+    }
+
+    /**
+     * Drop this event's snapshot, once the current transaction commits, and on other nodes through the
+     * {@link CacheInvalidationBus}. It will be rebuilt on next access.
+     */
+    public void invalidate(String eventId) {
+        bus.publish(NAME, eventId);
+        AfterCommit.run(() -> events.remove(eventId));
+    }
+
+    private Snapshot build(String eventId, ReferenceData reference, long now, CompletableFuture<Snapshot> pending) {
+        try {
+            Snapshot snapshot = build(eventId, reference, now);
+            pending.complete(snapshot);
+            return snapshot;
+        } catch (RuntimeException e) {
+            events.remove(eventId, pending);
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Snapshot build(String eventId, ReferenceData reference, long now) {
+        List<Proposal> all = ReplicaRoutingDataSource.onPrimary(() -> proposals.findAll(new ProposalQuery().setEventId(eventId).setStates(Arrays.asList(Proposal.State.ACCEPTED, Proposal.State.PRESENT))));
+        List<Schedule> schedules = all.stream()
+            .filter(t -> t.getSchedule() != null)
+            .map(t -> toSchedule(t, reference))
+            .collect(toList());
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(schedules);
+            LOGGER.info("Built schedule of {} with {} talks", eventId, schedules.size());
+            return new Snapshot(json, '"' + DigestUtils.md5DigestAsHex(json) + '"', reference, now);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Can't serialize schedule of " + eventId, e);
+        }
+    }
+
+    private static Schedule toSchedule(Proposal t, ReferenceData reference) {
+        Schedule schedule = new Schedule(t.getId(), t.getName(), t.getDescription());
+
+        // speakers
+        String speakers = t.getSpeaker().getFirstname() + " " + t.getSpeaker().getLastname();
+        if (isNotEmpty(t.getCospeakers())) {
+            speakers += ", " + t.getCospeakers().stream().map(c -> c.getFirstname() + " " + c.getLastname()).collect(Collectors.joining(", "));
+        }
+        schedule.setSpeakers(speakers);
+
+        schedule.setEventType(t.getTrackLabel());
+        Format format = reference.format(t.getFormat());
+
+        schedule.setFormat(format.getName());
+
+        schedule.setEventStart(DateTimeFormatter.ISO_INSTANT.format(t.getSchedule().toInstant()));
+        schedule.setEventEnd(DateTimeFormatter.ISO_INSTANT.format(t.getSchedule().toInstant().plus(format.getDuration(), ChronoUnit.MINUTES)));
+
+        Room room = reference.room(t.getRoomId());
+
+        schedule.setVenue(room != null ? room.getName() : "TBD");
+        schedule.setVenueId(room != null ? String.valueOf(room.getId()) : null);
+        schedule.setMedia(t.getVideo() != null ? t.getVideo() : t.getSlides());
+
+        final Map<String, Object> p = schedule.getAdditionalProperties();
+        if (t.getVideo() != null) {
+            p.put("video", t.getVideo());
+        }
+        if (t.getSlides() != null) {
+            p.put("slides", t.getSlides());
+        }
+
+        return schedule;
+    }
+
+    /**
+     * Serialized schedule, with a strong ETag computed from its content
+     */
+    public static final class Snapshot {
+
+        private final byte[] json;
+        private final String etag;
+        private final ReferenceData reference;
+        private final long built;
+
+        public Snapshot(byte[] json, String etag, ReferenceData reference, long built) {
+            this.json = json;
+            this.etag = etag;
+            this.reference = reference;
+            this.built = built;
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        private boolean isUpToDate(ReferenceData current, long now) {
+            return reference == current && now - built < MAX_AGE_MILLIS;
+        }
+    }
+}
@@ -26,17 +26,18 @@ import io.cfp.entity.Event;
 import io.cfp.entity.Talk;
 import io.cfp.entity.User;
 import io.cfp.mapper.ProposalMapper;
-import io.cfp.mapper.RateMapper;
 import io.cfp.model.Proposal;
+import io.cfp.model.RateSummary;
 import io.cfp.model.queries.ProposalQuery;
-import io.cfp.model.queries.RateQuery;
 import io.cfp.repository.TalkRepo;
 import ma.glasnost.orika.MapperFacade;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -58,7 +59,10 @@ public class TalkAdminService {
     private ProposalMapper proposalMapper;
 
     @Autowired
-    private RateMapper rateMapper;
+    private ReviewCoverageService reviewCoverage;
+
+    @Autowired
+    private RateService rateService;
 
     @Autowired
     private MapperFacade mapper;
@@ -71,29 +75,24 @@ public class TalkAdminService {
      */
     public List<TalkAdmin> findAll(String eventId, int userId, Proposal.State... states) {
 
-        List<TalkAdmin> talks = proposalMapper.findAll(new ProposalQuery().setEventId(eventId).addStates(states))
-            .stream().map(TalkAdmin::new)
-            .collect(Collectors.toList());
-
-        List<io.cfp.model.Rate> rates = rateMapper.findAll(new RateQuery().setEventId(eventId));
+        List<Proposal> proposals = proposalMapper.findAll(new ProposalQuery().setEventId(eventId).addStates(states));
 
-        Map<Integer, List<io.cfp.model.Rate>> reviewed = rates.stream()
-            .filter(r -> userId == r.getUser().getId())
-            .collect(groupingBy(r -> r.getTalk().getId()));
+        BitSet reviewed = reviewCoverage.ratedBy(eventId, userId);
+        Map<Integer, String> voters = rateService.voterEmails(proposals);
 
-        Map<Integer, Double> averages = rates.stream()
-            .filter(r -> r.getRate() > 0)
-            .collect(groupingBy(r -> r.getTalk().getId(), averagingInt(io.cfp.model.Rate::getRate)));
+        List<TalkAdmin> talks = new ArrayList<>(proposals.size());
+        for (Proposal proposal : proposals) {
+            TalkAdmin talk = new TalkAdmin(proposal);
+            talk.setReviewed(reviewed.get(proposal.getId()));
 
-        Map<Integer, List<String>> voters = rates.stream()
-            .collect(groupingBy(r -> r.getTalk().getId(), mapping(r -> r.getUser().getEmail(), toList())));
-
-        for (TalkAdmin talk : talks) {
-            int talkId = talk.getId();
-
-            talk.setReviewed(reviewed.get(talkId) != null);
-            talk.setMean(averages.get(talkId));
-            talk.setVoteUsersEmail(voters.get(talkId));
+            RateSummary rating = proposal.getRating();
+            if (rating != null) {
+                if (rating.getVoteCount() > 0) {
+                    talk.setMean((double) rating.getRateTotal() / rating.getVoteCount());
+                }
+                talk.setVoteUsersEmail(rating.getVoterEmails(voters));
+            }
+            talks.add(talk);
         }
         return talks;
     }
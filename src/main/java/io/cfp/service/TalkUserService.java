@@ -25,16 +25,16 @@ import io.cfp.entity.Event;
 import io.cfp.entity.Talk;
 import io.cfp.mapper.ProposalMapper;
 import io.cfp.model.Proposal;
+import io.cfp.model.ScheduleChange;
 import io.cfp.repository.TalkRepo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
-import java.util.Date;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -51,6 +51,9 @@ public class TalkUserService {
     @Autowired
     private ProposalMapper proposalMapper;
 
+    @Autowired
+    private ScheduleService scheduleService;
+
     /**
      * Retrieve all talks for a User
      *
@@ -117,21 +120,10 @@ public class TalkUserService {
      * @return updated talk
      */
     @Deprecated
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // ScheduleService needs its own transaction to batch
     public TalkUser updateConfirmedTalk(int talkId, LocalDateTime eventStart, String room, String eventId) {
-
-        Date eventDate = Date.from(eventStart.atZone(ZoneId.systemDefault()).toInstant());
-        String hour = eventStart.format(DateTimeFormatter.ofPattern("HH:mm"));
-
-        Proposal proposal = proposalMapper.findById(talkId, eventId);
-        proposal.setState(Proposal.State.ACCEPTED);
-        proposal.setSchedule(eventDate);
-        proposal.setScheduleHour(hour);
-        if (room != null) {
-            proposal.setRoomId(Integer.parseInt(room));
-        }
-        proposalMapper.updateSchedule(proposal);
-
-        return new TalkUser(proposal);
+        scheduleService.save(eventId, Collections.singletonList(ScheduleChange.of(talkId, eventStart, room, Proposal.State.ACCEPTED)));
+        return new TalkUser(proposalMapper.findById(talkId, eventId));
     }
 
 }
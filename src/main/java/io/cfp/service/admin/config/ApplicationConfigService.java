@@ -21,6 +21,7 @@
 package io.cfp.service.admin.config;
 
 import io.cfp.mapper.EventMapper;
+import io.cfp.service.EventCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -38,11 +39,15 @@ public class ApplicationConfigService {
     @Autowired
     private EventMapper eventMapper;
 
+    @Autowired
+    private EventCache eventCache;
+
     @Transactional
     public void openCfp(String eventId) {
         io.cfp.model.Event event = eventMapper.findOne(eventId);
         event.setOpen(true);
         eventMapper.update(event);
+        eventCache.evict(eventId);
     }
 
     @Transactional
@@ -50,6 +55,7 @@ public class ApplicationConfigService {
         io.cfp.model.Event event = eventMapper.findOne(eventId);
         event.setOpen(false);
         eventMapper.update(event);
+        eventCache.evict(eventId);
     }
 
 }
@@ -20,9 +20,17 @@
 
 package io.cfp.service.auth;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.Hashing;
+import io.cfp.config.ReplicaRoutingDataSource;
 import io.cfp.entity.Role;
 import io.cfp.mapper.UserMapper;
 import io.cfp.model.User;
+import io.cfp.service.AfterCommit;
+import io.cfp.service.CacheInvalidationBus;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.Jwts;
@@ -30,72 +38,190 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Resolves the user of a request from its JWT token.
+ * <p>
+ * Verified tokens are cached, keyed by their SHA-256 hash, with the user they resolved to, until they expire
+ * or <code>cfp.auth.token-cache.ttl-minutes</code> elapses. A cached user is invalidated on every node when its
+ * profile is updated. Setting <code>cfp.auth.token-cache.size</code> to 0 disables the cache.
+ */
 @Component
-public final class AuthUtils {
+public final class AuthUtils implements PublicMetrics {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AuthUtils.class);
     private static final String TOKEN_COOKIE_NAME = "token";
     private static final String AUTH_HEADER_NAME = "Authorization";
 
+    static final String NAME = "auth-tokens";
+
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private CacheInvalidationBus bus;
+
     @Value("${cfpio.authentication_hack:false}")
     private boolean authHack;
 
     @Value("${token.signing-key}")
     private String signingKey;
 
+    @Value("${cfp.auth.token-cache.size:10000}")
+    private long cacheSize;
+
+    @Value("${cfp.auth.token-cache.ttl-minutes:10}")
+    private long cacheTtlMinutes;
+
+    private Cache<String, VerifiedToken> tokens;
+
+    private final ConcurrentMap<String, CompletableFuture<User>> provisioning = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        tokens = CacheBuilder.newBuilder()
+            .maximumSize(cacheSize)
+            .expireAfterWrite(cacheTtlMinutes, TimeUnit.MINUTES)
+            .recordStats()
+            .build();
+        bus.register(NAME, userId -> evict(Integer.parseInt(userId)));
+    }
+
+    /**
+     * Forget the tokens resolved to this user, e.g. once its profile changed: this node once the current
+     * transaction commits, other nodes on their next poll of the bus.
+     */
+    public void invalidate(int userId) {
+        bus.publish(NAME, String.valueOf(userId));
+        AfterCommit.run(() -> evict(userId));
+    }
+
+    private void evict(int userId) {
+        tokens.asMap().values().removeIf(token -> token.user.getId() == userId);
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        CacheStats stats = tokens.stats();
+        return Arrays.asList(
+            new Metric<>("auth.token-cache.size", tokens.size()),
+            new Metric<>("auth.token-cache.hit", stats.hitCount()),
+            new Metric<>("auth.token-cache.miss", stats.missCount()),
+            new Metric<>("auth.token-cache.eviction", stats.evictionCount()));
+    }
+
+    /**
+     * @return whether the request may resolve to a user, without verifying its token
+     */
+    public boolean hasCredentials(HttpServletRequest httpRequest) {
+        return authHack || getTokenValue(httpRequest) != null;
+    }
+
     /**
      * Get user from JWT token
      * @param httpRequest
      * @return User
      */
     public User getAuthUser(HttpServletRequest httpRequest) {
-        String email;
+        String tokenValue = getTokenValue(httpRequest);
+        User user = tokenValue != null ? resolve(tokenValue) : null;
 
-        Claims claims = getToken(httpRequest);
-        if (claims != null) {
-            email = claims.getSubject();
+        if (user == null) {
+            if (authHack) {
+                user = new User();
+                user.setEmail("john@doe.net");
+                user.addRole(Role.OWNER, Role.ADMIN, Role.REVIEWER);
+                return user;
+            }
+            return null;
+        }
+        return user.addRole(Role.AUTHENTICATED);
+    }
 
-        } else if (authHack) {
-            email = "john@doe.net";
-            User user = new User();
-            user.setEmail(email);
-            user.addRole(Role.OWNER, Role.ADMIN, Role.REVIEWER);
-            return user;
-        } else {
+    /**
+     * @return user of the token, from cache when possible, or null if the token has expired.
+     * Roles are added per request, so each caller gets its own instance.
+     */
+    private User resolve(String tokenValue) {
+        String key = Hashing.sha256().hashString(tokenValue, StandardCharsets.UTF_8).toString();
+        VerifiedToken token = tokens.getIfPresent(key);
+        if (token != null) {
+            if (token.expiration > System.currentTimeMillis()) {
+                return token.user.copy();
+            }
+            tokens.invalidate(key);
+        }
+
+        Claims claims;
+        try {
+            claims = decodeToken(tokenValue);
+        } catch (ExpiredJwtException ex) {
+            LOGGER.warn("Token has expired", ex);
             return null;
         }
+        User user = findOrCreate(claims.getSubject());
+        tokens.put(key, new VerifiedToken(claims, user.copy()));
+        return user;
+    }
 
-        User user = userMapper.findByEmail(email);
-        if (user == null) {
-            user = new User();
-            user.setEmail(email);
+    private User findOrCreate(String email) {
+        // cached with the token, not from the replica which may lag behind a profile change
+        User user = ReplicaRoutingDataSource.onPrimary(() -> userMapper.findByEmail(email));
+        return user != null ? user : provision(email);
+    }
+
+    /**
+     * Create the user on its first request. The front-end fires several requests at once on first login,
+     * they all wait for the first one to provision the user rather than racing to insert it.
+     */
+    private User provision(String email) {
+        CompletableFuture<User> pending = new CompletableFuture<>();
+        CompletableFuture<User> running = provisioning.putIfAbsent(email, pending);
+        if (running != null) {
             try {
-                userMapper.insert(user);
-            } catch (DataIntegrityViolationException e) {
-                // Handle concurrent insert by parallel requests to API
-                user = userMapper.findByEmail(email);
-                if (user == null) throw e; // other error
+                return running.join().copy();
+            } catch (CompletionException e) {
+                throw Throwables.propagate(e.getCause());
             }
         }
-        return user.addRole(Role.AUTHENTICATED);
+
+        try {
+            User user = new User().setEmail(email);
+            // the insert must reach the primary even when the first request of the user is a GET, which would
+            // otherwise be routed to the read-only replica
+            ReplicaRoutingDataSource.onPrimary(() -> userMapper.provision(user));
+            pending.complete(user.copy());
+            return user;
+        } catch (RuntimeException e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            provisioning.remove(email, pending);
+        }
     }
 
     /**
-     * Return get JWT claims set from http request
+     * Return JWT token from http request cookie or header
      * @param httpRequest
-     * @return JWT claims set
+     * @return JWT token
      */
-    private Claims getToken(HttpServletRequest httpRequest) {
+    private String getTokenValue(HttpServletRequest httpRequest) {
     	String tokenValue = null;
     	if (httpRequest.getCookies() != null) {
 	    	for (Cookie cookie : httpRequest.getCookies()) {
@@ -114,15 +240,7 @@ public final class AuthUtils {
                 LOGGER.debug("Found token in Header Authorization with value {}", tokenValue);
             }
         }
-
-    	if (tokenValue != null) {
-    		try {
-                return decodeToken(tokenValue);
-            } catch (ExpiredJwtException ex) {
-                LOGGER.warn("Token has expired", ex);
-            }
-        }
-        return null;
+        return tokenValue;
     }
 
     /**
@@ -138,4 +256,14 @@ public final class AuthUtils {
     private String getTokenFromHeader(String header) {
         return header.replace("Bearer", "").trim();
     }
+
+    private static final class VerifiedToken {
+        private final User user;
+        private final long expiration;
+
+        VerifiedToken(Claims claims, User user) {
+            this.user = user;
+            this.expiration = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+        }
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.service.auth;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.cfp.config.ReplicaRoutingDataSource;
+import io.cfp.mapper.RoleMapper;
+import io.cfp.model.Role;
+import io.cfp.model.queries.RoleQuery;
+import io.cfp.service.AfterCommit;
+import io.cfp.service.CacheInvalidationBus;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Roles of a user on an event, as needed by the auth filter on every request. Entries are kept until a role on
+ * their event is granted or revoked anywhere, other nodes being told through the {@link CacheInvalidationBus}.
+ * <p>
+ * As this guards authorization, a load started before an eviction is never cached, and entries expire after
+ * <code>cfp.auth.role-cache.ttl-seconds</code> in case an eviction was missed.
+ */
+@Service
+public class RoleCache {
+
+    static final String NAME = "roles";
+
+    @Autowired
+    private RoleMapper roles;
+
+    @Autowired
+    private CacheInvalidationBus bus;
+
+    @Value("${cfp.auth.role-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    private Cache<Key, Set<String>> entries;
+
+    /**
+     * Bumped by every eviction, guarded by the cache
+     */
+    private long generation;
+
+    @PostConstruct
+    public void init() {
+        entries = CacheBuilder.newBuilder()
+            .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+            .build();
+        bus.register(NAME, this::evict);
+    }
+
+    /**
+     * @return names of the roles granted to the user on the event
+     */
+    public Set<String> get(String eventId, int userId) {
+        Key key = new Key(eventId, userId);
+        Set<String> granted = entries.getIfPresent(key);
+        if (granted != null) {
+            return granted;
+        }
+
+        long started;
+        synchronized (entries) {
+            started = generation;
+        }
+        granted = load(key);
+        synchronized (entries) {
+            // an eviction since the load started may have revoked what it read
+            if (generation == started) {
+                entries.put(key, granted);
+            }
+        }
+        return granted;
+    }
+
+    /**
+     * To be called on every role change of the event: this node drops its entries once the current transaction
+     * commits, other nodes on their next poll of the bus.
+     */
+    public void invalidate(String eventId) {
+        bus.publish(NAME, eventId);
+        AfterCommit.run(() -> evict(eventId));
+    }
+
+    private void evict(String eventId) {
+        synchronized (entries) {
+            generation++;
+            entries.asMap().keySet().removeIf(key -> key.eventId.equals(eventId));
+        }
+    }
+
+    private Set<String> load(Key key) {
+        // not from the replica, which may lag behind the change that evicted this entry
+        List<Role> granted = ReplicaRoutingDataSource.onPrimary(() -> roles.findAll(new RoleQuery().setEventId(key.eventId).setUserId(key.userId)));
+        return Collections.unmodifiableSet(granted
+            .stream()
+            .map(Role::getName)
+            .collect(Collectors.toSet()));
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class Key {
+        private final String eventId;
+        private final int userId;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.service.email;
+
+import io.cfp.mapper.CommentMapper;
+import io.cfp.model.Comment;
+import io.cfp.model.OutboundMail;
+import io.cfp.model.Proposal;
+import io.cfp.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Merges the comments posted on a proposal within <code>cfp.email.comment-digest-minutes</code> into a single
+ * notification per recipient. The window opens with the first comment, whose mail waits in the {@link MailOutbox}
+ * until then. Later comments re-render that pending mail within the caller's transaction, an edited comment showing
+ * its latest version. A zero window sends each comment right away.
+ */
+@Service
+public class CommentDigests {
+
+    static final String SEPARATOR = "\n\n----------\n\n";
+
+    @Autowired
+    private EmailingService emailingService;
+
+    @Autowired
+    private MailOutbox outbox;
+
+    @Autowired
+    private CommentMapper comments;
+
+    @Value("${cfp.email.comment-digest-minutes:5}")
+    private long windowMinutes;
+
+    /**
+     * Notify admins of a comment of the given author
+     */
+    @Transactional
+    public void notifyAdmins(User author, Proposal proposal, Comment comment) {
+        add(key(proposal, author, true), comment, message -> emailingService.newCommentToAdmins(author, proposal, message));
+    }
+
+    /**
+     * Notify the speaker of a comment on their proposal
+     */
+    @Transactional
+    public void notifySpeaker(Proposal proposal, Comment comment) {
+        User speaker = proposal.getSpeaker();
+        add(key(proposal, speaker, false), comment, message -> emailingService.newCommentToSpeaker(speaker, proposal, message));
+    }
+
+    /**
+     * Admins of a proposal get one digest per comment author, a speaker one per proposal
+     */
+    static String key(Proposal proposal, User user, boolean admins) {
+        return "comment:" + proposal.getId() + ':' + user.getId() + (admins ? ":admins" : ":speaker");
+    }
+
+    private void add(String key, Comment comment, Function<String, OutboundMail> render) {
+        if (windowMinutes <= 0) {
+            emailingService.send(render.apply(comment.getComment()));
+            return;
+        }
+
+        OutboundMail pending = outbox.pendingDigest(key);
+        List<Integer> ids = pending == null ? new ArrayList<>() : pending.getDigestItemList();
+        if (!ids.contains(comment.getId())) {
+            ids.add(comment.getId());
+        }
+        OutboundMail mail = render.apply(message(comment.getEventId(), ids))
+            .setDigestKey(key)
+            .setDigestItems(ids.stream().map(String::valueOf).collect(Collectors.joining(",")));
+
+        if (pending == null) {
+            emailingService.send(mail.setNextAttempt(new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(windowMinutes))));
+        } else {
+            outbox.updateDigest(mail.setId(pending.getId()));
+        }
+    }
+
+    /**
+     * Latest version of the comments, in posting order, skipping deleted ones
+     */
+    private String message(String eventId, List<Integer> ids) {
+        return ids.stream()
+            .map(id -> comments.findById(id, eventId))
+            .filter(Objects::nonNull)
+            .map(Comment::getComment)
+            .collect(Collectors.joining(SEPARATOR));
+    }
+}
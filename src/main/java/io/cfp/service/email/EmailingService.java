@@ -20,8 +20,6 @@
 
 package io.cfp.service.email;
 
-import com.sendgrid.SendGrid;
-import com.sendgrid.SendGridException;
 import freemarker.template.Configuration;
 import freemarker.template.TemplateException;
 import io.cfp.dto.TalkUser;
@@ -30,10 +28,9 @@ import io.cfp.dto.user.UserProfil;
 import io.cfp.entity.Event;
 import io.cfp.entity.Talk;
 import io.cfp.entity.User;
-import io.cfp.mapper.EventMapper;
-import io.cfp.mapper.UserMapper;
+import io.cfp.model.OutboundMail;
 import io.cfp.model.Proposal;
-import io.cfp.model.Role;
+import io.cfp.service.AfterCommit;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,8 +38,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
@@ -64,17 +61,18 @@ public class EmailingService {
     private static final Logger LOGGER = LoggerFactory.getLogger(EmailingService.class);
 
     @Autowired
-    private UserMapper userMapper;
+    private MailContexts contexts;
 
     @Autowired
-    private EventMapper eventMapper;
+    private MailOutbox outbox;
 
     @Autowired
     @Qualifier("mailTemplate")
     private Configuration freemarker;
 
-    @Value("${cfp.email.sendgrid.apikey}")
-    private String sendgridApiKey;
+    @Autowired
+    @Qualifier("mailExecutor")
+    private TaskExecutor mailExecutor;
 
     @Value("${cfp.app.hostname}")
     private String hostname;
@@ -85,7 +83,8 @@ public class EmailingService {
     @Value("${cfp.email.send}")
     private boolean send;
 
-    private Map<String, Map<String, String>> subjects = new HashMap<>();
+    /** subject formats by language, cloned before use as MessageFormat isn't thread safe */
+    private Map<String, Map<String, MessageFormat>> subjects = new HashMap<>();
 
     @PostConstruct
     @SuppressWarnings("unchecked")
@@ -99,7 +98,25 @@ public class EmailingService {
             Map<String, String> subs = (Map<String, String>) parser.load(yaml.getInputStream());
             Matcher matcher = langPattern.matcher(yaml.getURL().getPath());
             if (matcher.matches()) { //forced to call matches() to execute regex...
-                subjects.put(matcher.group(1), subs);
+                Map<String, MessageFormat> formats = new HashMap<>();
+                subs.forEach((template, subject) -> formats.put(template, new MessageFormat(subject)));
+                subjects.put(matcher.group(1), formats);
+            }
+        }
+    }
+
+    /**
+     * Parse every mail template once at startup, mails are then rendered from Freemarker's template cache.
+     */
+    @PostConstruct
+    public void loadTemplates() throws IOException {
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        Pattern templatePattern = Pattern.compile(".*/mails/([^/]+/[^/]+\\.html)");
+
+        for (Resource html : resolver.getResources("classpath:mails/*/*.html")) {
+            Matcher matcher = templatePattern.matcher(html.getURL().getPath());
+            if (matcher.matches()) {
+                freemarker.getTemplate(matcher.group(1));
             }
         }
     }
@@ -107,7 +124,6 @@ public class EmailingService {
     /**
      * Send Confirmation of your session.
      */
-    @Async
     @Transactional
     public void sendConfirmed(io.cfp.model.User user, Proposal proposal) {
         LOGGER.debug("Sending email confirmation e-mail to '{}'", user.getEmail());
@@ -124,7 +140,6 @@ public class EmailingService {
     /**
      * Send a mail to inform speaker his proposal is available back to editing.
      */
-    @Async
     @Transactional
     public void sendBackToEdit(Proposal proposal) {
         io.cfp.model.User speaker = proposal.getSpeaker();
@@ -143,7 +158,6 @@ public class EmailingService {
     /**
      * Send Confirmation of your session.
      */
-    @Async
     @Transactional
     public void sendConfirmedPresence(io.cfp.model.User user, Proposal proposal) {
         LOGGER.debug("Sending email confirmation of presence to '{}'", user.getEmail());
@@ -157,7 +171,6 @@ public class EmailingService {
         createAndSendEmail(proposal.getEventId(), "confirmedPresence.html", user.getEmail(), params, null, null, user.getLocale(), "");
     }
 
-    @Async
     @Transactional
     @Deprecated
     public void sendConfirmed(io.cfp.model.User user, TalkUser talk, Locale locale) {
@@ -173,17 +186,15 @@ public class EmailingService {
     }
 
     /**
-     * Send an email to a speaker to notify him that an administrator wrote a
-     * new comment about his talk.
+     * Render the email notifying a speaker that an administrator wrote new
+     * comments about his talk, to be sent by {@link CommentDigests}.
      *
      * @param speaker the speaker to write to
      */
-    @Async
-    @Transactional
-    public void sendNewCommentToSpeaker(io.cfp.model.User speaker, Proposal proposal, String comment) {
-        LOGGER.debug("Sending new comment email to speaker '{}' for talk '{}'", speaker.getEmail(), proposal.getName());
+    public OutboundMail newCommentToSpeaker(io.cfp.model.User speaker, Proposal proposal, String comment) {
+        LOGGER.debug("Rendering new comment email to speaker '{}' for talk '{}'", speaker.getEmail(), proposal.getName());
 
-        List<String> bcc = userMapper.findEmailByRole(Role.ADMIN, proposal.getEventId());
+        List<String> bcc = contexts.get(proposal.getEventId()).getAdmins();
 
         Map<String, Object> params = new HashMap<>();
         params.put("name", speaker.getFirstname());
@@ -191,21 +202,19 @@ public class EmailingService {
         params.put("id", String.valueOf(proposal.getId()));
         params.put("subject", getSubject("newMessage", speaker.getLocale(), proposal.getName()));
 
-        createAndSendEmail(proposal.getEventId(), "newMessage.html", speaker.getEmail(), params, null, bcc, speaker.getLocale(), comment);
+        return render(proposal.getEventId(), "newMessage.html", speaker.getEmail(), params, null, bcc, speaker.getLocale(), comment);
     }
 
     /**
-     * Send an email to administrators to notify them that a speaker wrote a
-     * new comment on his talk.
+     * Render the email notifying administrators that a speaker wrote new
+     * comments on his talk, to be sent by {@link CommentDigests}.
      *
      * @param speaker the speaker writing this message
      */
-    @Async
-    @Transactional
-    public void sendNewCommentToAdmins(io.cfp.model.User speaker, Proposal proposal, String comment) {
-        LOGGER.debug("Sending new comment email to admins for talk '{}'", proposal.getName());
+    public OutboundMail newCommentToAdmins(io.cfp.model.User speaker, Proposal proposal, String comment) {
+        LOGGER.debug("Rendering new comment email to admins for talk '{}'", proposal.getName());
 
-        List<String> bcc = userMapper.findEmailByRole(Role.ADMIN, proposal.getEventId());
+        List<String> bcc = contexts.get(proposal.getEventId()).getAdmins();
         String speakerName = speaker.getFirstname() + " " + speaker.getLastname();
 
         Map<String, Object> params = new HashMap<>();
@@ -214,7 +223,7 @@ public class EmailingService {
         params.put("id", String.valueOf(proposal.getId()));
         params.put("subject", getSubject("newMessageAdmin", speaker.getLocale(), speakerName, proposal.getName()));
 
-        createAndSendEmail(proposal.getEventId(), "newMessageAdmin.html", emailSender, params, null, bcc, speaker.getLocale(), comment);
+        return render(proposal.getEventId(), "newMessageAdmin.html", emailSender, params, null, bcc, speaker.getLocale(), comment);
     }
 
 
@@ -224,7 +233,6 @@ public class EmailingService {
      * @param talk
      * @param locale
      */
-    @Async
     @Transactional
     @Deprecated
     public void sendNotSelectionned(Talk talk, Locale locale) {
@@ -253,7 +261,6 @@ public class EmailingService {
      * @param proposal
      * @param locale
      */
-    @Async
     @Transactional
     public void sendNotSelectionned(Proposal proposal, Locale locale) {
         io.cfp.model.User user = proposal.getSpeaker();
@@ -275,7 +282,6 @@ public class EmailingService {
         createAndSendEmail(proposal.getEventId(), "notSelectionned.html", user.getEmail(), params, cc, null, locale, "");
     }
 
-    @Async
     @Transactional
     public void sendPending(TalkUser talk, Locale locale) {
         UserProfil user = talk.getSpeaker();
@@ -297,7 +303,6 @@ public class EmailingService {
         createAndSendEmail(Event.current(), "pending.html", user.getEmail(), params, cc, null, locale, "");
     }
 
-    @Async
     @Transactional
     @Deprecated
     public void sendSelectionned(Talk talk, Locale locale) {
@@ -320,7 +325,6 @@ public class EmailingService {
         createAndSendEmail(talk.getEvent().getName(), "selectionned.html", user.getEmail(), params, cc, null, locale, "");
     }
 
-    @Async
     @Transactional
     public void sendSelectionned(Proposal proposal, Locale locale) {
         final io.cfp.model.User user = proposal.getSpeaker();
@@ -342,14 +346,47 @@ public class EmailingService {
         createAndSendEmail(proposal.getEventId(), "selectionned.html", user.getEmail(), params, cc, null, locale, "");
     }
 
+    /**
+     * The mail is stored within the caller's transaction, so that nothing is sent if it rolls back, and the job
+     * it belongs to counts it right away. It is rendered off the caller's thread, once that transaction commits.
+     */
     protected void createAndSendEmail(String event, String template, String email, Map<String, Object> parameters, List<String> cc, List<String> bcc, Locale locale, String message) {
+        if (!send) {
+            OutboundMail mail = render(event, template, email, parameters, cc, bcc, locale, message);
+            sendEmail(mail.getReplyTo(), email, mail.getSubject(), mail.getContent(), cc, bcc);
+            return;
+        }
+
+        OutboundMail reserved = outbox.reserve(new OutboundMail()
+            .setRecipient(email)
+            .setSubject((String) parameters.get("subject"))
+            .setCc(OutboundMail.join(cc))
+            .setBcc(OutboundMail.join(bcc)));
+        AfterCommit.run(() -> mailExecutor.execute(() -> {
+            try {
+                OutboundMail mail = render(event, template, email, parameters, cc, bcc, locale, message);
+                outbox.rendered(reserved.getId(), mail.getReplyTo(), mail.getContent());
+            } catch (RuntimeException e) {
+                LOGGER.error("Unable to render mail [{}] to [{}]", template, email, e);
+                outbox.rendered(reserved.getId(), null, null);
+            }
+        }));
+    }
+
+    protected OutboundMail render(String event, String template, String email, Map<String, Object> parameters, List<String> cc, List<String> bcc, Locale locale, String message) {
 
         String templatePath = getTemplatePath(template, locale);
 
         String content = processTemplate(templatePath, parameters, event, message);
         String subject = (String) parameters.get("subject");
 
-        sendEmail(parameters.get("contactMail").toString(), email, subject, content, cc, bcc);
+        return new OutboundMail()
+            .setReplyTo(parameters.get("contactMail").toString())
+            .setRecipient(email)
+            .setSubject(subject)
+            .setContent(content)
+            .setCc(OutboundMail.join(cc))
+            .setBcc(OutboundMail.join(bcc));
     }
 
     protected String getTemplatePath(final String emailTemplate, final Locale locale) {
@@ -364,9 +401,9 @@ public class EmailingService {
 
         // adds global params
         parameters.put("hostname", StringUtils.replace(hostname, "{{event}}", event));
-        io.cfp.model.Event curEvent = eventMapper.findOne(event);
-        parameters.put("event", curEvent);
-        parameters.put("contactMail", curEvent.getContactMail() != null ? curEvent.getContactMail() : "contact@cfp.io");
+        MailContexts.MailContext context = contexts.get(event);
+        parameters.put("event", context.getEvent());
+        parameters.put("contactMail", context.getContactMail());
         parameters.put("message", message);
 
         StringWriter writer;
@@ -386,41 +423,29 @@ public class EmailingService {
     }
 
     public void sendEmail(String from, String to, String subject, String content, List<String> cc, List<String> bcc) {
+        send(new OutboundMail()
+            .setReplyTo(from)
+            .setRecipient(to)
+            .setSubject(subject)
+            .setContent(content)
+            .setCc(OutboundMail.join(cc))
+            .setBcc(OutboundMail.join(bcc)));
+    }
+
+    public void send(OutboundMail mail) {
         if (!send) {
-            String fileName = saveLocally(content);
-            LOGGER.warn("Mail [{}] to [{}] not sent as mail is disabled but can be found at [{}]", subject, to, fileName);
+            String fileName = saveLocally(mail.getContent());
+            LOGGER.warn("Mail [{}] to [{}] not sent as mail is disabled but can be found at [{}]", mail.getSubject(), mail.getRecipient(), fileName);
             return;
         }
 
-        if (content == null) {
-            LOGGER.error("Mail content is null, don't send it to [{}] with subject [{}]", to, subject);
+        if (mail.getContent() == null) {
+            LOGGER.error("Mail content is null, don't send it to [{}] with subject [{}]", mail.getRecipient(), mail.getSubject());
             return;
         }
 
-        SendGrid sendgrid = new SendGrid(sendgridApiKey);
-
-        SendGrid.Email email = new SendGrid.Email();
-
-        email.setFrom(emailSender)
-            .setFromName("CFP.io")
-            .setReplyTo(from)
-            .addTo(to)
-            .setSubject(subject)
-            .setHtml(content);
-        if (cc != null) {
-            email.addCc(cc.toArray(new String[cc.size()]));
-        }
-        if (bcc != null) {
-            email.addBcc(bcc.toArray(new String[bcc.size()]));
-        }
-
-
-        try {
-            SendGrid.Response response = sendgrid.send(email);
-            LOGGER.debug("Sent e-mail to User '{}' with status {}", to, response.getStatus());
-        } catch (SendGridException e) {
-            LOGGER.warn("E-mail could not be sent to user '{}', exception is: {}", to, e.getMessage());
-        }
+        // delivered by the MailDispatcher, at the pace the provider accepts
+        outbox.enqueue(mail);
     }
 
 
@@ -441,12 +466,11 @@ public class EmailingService {
             language = "en";
         }
 
-        String subject = subjects.get(language).get(template);
+        MessageFormat subject = subjects.get(language).get(template);
 
         if (subject == null) {
             return null;
         }
-        MessageFormat msg = new MessageFormat(subject);
-        return msg.format(args);
+        return ((MessageFormat) subject.clone()).format(args);
     }
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.service.email;
+
+import io.cfp.config.ReplicaRoutingDataSource;
+import io.cfp.mapper.UserMapper;
+import io.cfp.model.Event;
+import io.cfp.model.Role;
+import io.cfp.service.AfterCommit;
+import io.cfp.service.CacheInvalidationBus;
+import io.cfp.service.EventCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per event data every mail of the event needs: the event itself, its contact address and the admins copied on
+ * comments. The event comes from the {@link EventCache}, which every change to an event evicts. Admins are loaded on
+ * first access and dropped once a change to the admins of the event is committed. Admins may change their address
+ * outside of any event, so they are also reloaded once older than {@link #MAX_AGE_MILLIS}.
+ */
+@Service
+public class MailContexts {
+
+    static final String NAME = "mail-contexts";
+
+    static final long MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    static final String DEFAULT_CONTACT = "contact@cfp.io";
+
+    @Autowired
+    private EventCache events;
+
+    @Autowired
+    private UserMapper users;
+
+    @Autowired
+    private CacheInvalidationBus bus;
+
+    private final ConcurrentMap<String, Admins> admins = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        bus.register(NAME, admins::remove);
+    }
+
+    /**
+     * @return context of the event, or null if there is no such event
+     */
+    public MailContext get(String eventId) {
+        Event event = events.get(eventId);
+        if (event == null) {
+            return null;
+        }
+        return new MailContext(event, admins(eventId));
+    }
+
+    /**
+     * Forget the admins of this event, once the current transaction commits, and on other nodes through the
+     * {@link CacheInvalidationBus}. They will be reloaded on next access.
+     */
+    public void invalidate(String eventId) {
+        bus.publish(NAME, eventId);
+        AfterCommit.run(() -> admins.remove(eventId));
+    }
+
+    private List<String> admins(String eventId) {
+        long now = System.currentTimeMillis();
+        Admins cached = admins.get(eventId);
+        if (cached == null || now - cached.loaded >= MAX_AGE_MILLIS) {
+            cached = admins.compute(eventId, (id, current) -> current != null && now - current.loaded < MAX_AGE_MILLIS ? current
+                : new Admins(ReplicaRoutingDataSource.onPrimary(() -> users.findEmailByRole(Role.ADMIN, id)), now));
+        }
+        return cached.emails;
+    }
+
+    private static final class Admins {
+        private final List<String> emails;
+        private final long loaded;
+
+        Admins(List<String> emails, long loaded) {
+            this.emails = Collections.unmodifiableList(emails);
+            this.loaded = loaded;
+        }
+    }
+
+    public static final class MailContext {
+
+        private final Event event;
+        private final String contactMail;
+        private final List<String> admins;
+
+        MailContext(Event event, List<String> admins) {
+            this.event = event;
+            this.contactMail = event.getContactMail() != null ? event.getContactMail() : DEFAULT_CONTACT;
+            this.admins = admins;
+        }
+
+        public Event getEvent() {
+            return event;
+        }
+
+        public String getContactMail() {
+            return contactMail;
+        }
+
+        /**
+         * @return admins mail addresses
+         */
+        public List<String> getAdmins() {
+            return admins;
+        }
+    }
+}
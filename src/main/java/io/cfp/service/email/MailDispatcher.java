@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.service.email;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.cfp.mapper.MailOutboxMapper;
+import io.cfp.model.OutboundMail;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers the mails of the {@link MailOutbox} through the configured {@link MailTransport}.
+ * <p>
+ * A poller claims due mails and hands them to a bounded pool of workers. Identical messages without copy recipients
+ * are grouped in batches of up to {@link MailTransport#batchSize()} recipients. Workers share a token bucket so the
+ * provider never gets more than <code>cfp.email.outbox.rate</code> calls per second, whatever the number of
+ * workers. A failed delivery is retried with an exponential backoff, up to <code>cfp.email.outbox.max-attempts</code>
+ * times. Claims are stored in database so that several instances can share the outbox. The poller only claims as many
+ * provider calls as the rate lets go out well within {@link #STALE_CLAIM_MILLIS}. A claim is renewed right before
+ * sending, and a mail whose claim went stale while it waited for a worker is left to its new owner.
+ */
+@Component
+public class MailDispatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MailDispatcher.class);
+
+    /** mails claimed longer than this by an instance which never reported are handed out again */
+    static final long STALE_CLAIM_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    static final long MAX_BACKOFF_SECONDS = TimeUnit.HOURS.toSeconds(6);
+
+    @Autowired
+    private MailOutboxMapper mails;
+
+    @Autowired
+    private MailTransport transport;
+
+    @Value("${cfp.email.outbox.enabled:true}")
+    private boolean enabled;
+
+    /** provider calls per second */
+    @Value("${cfp.email.outbox.rate:0.5}")
+    private double rate;
+
+    @Value("${cfp.email.outbox.workers:2}")
+    private int workers;
+
+    @Value("${cfp.email.outbox.poll-seconds:2}")
+    private int pollSeconds;
+
+    @Value("${cfp.email.outbox.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${cfp.email.outbox.backoff-seconds:30}")
+    private long backoffSeconds;
+
+    private RateLimiter limiter;
+
+    /** claimed provider calls not yet made, bounds what the poller hands out to the workers */
+    private Semaphore slots;
+
+    private ThreadPoolExecutor workerPool;
+
+    private ScheduledExecutorService poller;
+
+    @PostConstruct
+    public void start() {
+        limiter = RateLimiter.create(rate);
+        if (!enabled) {
+            LOGGER.info("Mail dispatcher is disabled, mails stay in the outbox");
+            return;
+        }
+
+        int capacity = capacity(workers, rate);
+        slots = new Semaphore(capacity);
+        workerPool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(capacity), new ThreadFactoryBuilder().setNameFormat("mail-worker-%d").setDaemon(true).build());
+        poller = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("mail-dispatcher").setDaemon(true).build());
+        poller.scheduleWithFixedDelay(this::poll, pollSeconds, pollSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (poller == null) {
+            return;
+        }
+        poller.shutdownNow();
+        // mails still queued are released as stale and sent by the next run
+        workerPool.shutdown();
+        workerPool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return provider calls to claim ahead: enough to keep the workers busy, but no more than half of what the rate
+     * lets out before a claim goes stale, so that a claimed mail never waits that long
+     */
+    static int capacity(int workers, double rate) {
+        long withinStaleness = (long) (rate * TimeUnit.MILLISECONDS.toSeconds(STALE_CLAIM_MILLIS) / 2);
+        return (int) Math.max(1, Math.min(workers * 2, withinStaleness));
+    }
+
+    void poll() {
+        try {
+            mails.releaseStale(new Date(System.currentTimeMillis() - STALE_CLAIM_MILLIS));
+            // rendering runs right after the request commits, so these were lost, e.g. with a restarted instance
+            mails.failRendering(null, new Date(System.currentTimeMillis() - STALE_CLAIM_MILLIS), "Rendering was interrupted");
+
+            int free = slots.availablePermits();
+            if (free == 0) {
+                return;
+            }
+            Date now = new Date();
+            String token = UUID.randomUUID().toString();
+            List<List<OutboundMail>> due = batches(mails.findDue(now, free * transport.batchSize()), transport.batchSize());
+            // only the poller acquires, so there is a permit for each call, mails of the other calls stay pending
+            for (List<OutboundMail> batch : due.subList(0, Math.min(free, due.size()))) {
+                List<OutboundMail> claimed = new ArrayList<>();
+                for (OutboundMail mail : batch) {
+                    if (mails.claim(mail.getId(), token, now) == 1) {
+                        claimed.add(mail.setClaimToken(token));
+                    }
+                }
+                if (claimed.isEmpty()) {
+                    continue;
+                }
+                slots.acquireUninterruptibly();
+                workerPool.execute(() -> {
+                    try {
+                        dispatch(claimed);
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+        } catch (RuntimeException e) {
+            // keep polling, the scheduled task would silently stop otherwise
+            LOGGER.error("Unable to poll mail outbox", e);
+        }
+    }
+
+    /**
+     * Group mails sharing reply-to address, subject and content, when they have no copy recipient
+     */
+    static List<List<OutboundMail>> batches(List<OutboundMail> mails, int batchSize) {
+        Map<Object, List<OutboundMail>> messages = new LinkedHashMap<>();
+        for (OutboundMail mail : mails) {
+            Object key = batchSize > 1 && mail.getCc() == null && mail.getBcc() == null
+                ? Arrays.asList(mail.getReplyTo(), mail.getSubject(), mail.getContent())
+                : mail.getId();
+            messages.computeIfAbsent(key, k -> new ArrayList<>()).add(mail);
+        }
+        List<List<OutboundMail>> batches = new ArrayList<>();
+        messages.values().forEach(recipients -> batches.addAll(Lists.partition(recipients, batchSize)));
+        return batches;
+    }
+
+    void dispatch(OutboundMail mail) {
+        dispatch(Collections.singletonList(mail));
+    }
+
+    void dispatch(List<OutboundMail> claimed) {
+        List<OutboundMail> batch;
+        try {
+            batch = held(claimed);
+        } catch (RuntimeException e) {
+            // claims go stale and are released, nothing was sent
+            LOGGER.error("Unable to renew e-mail claims", e);
+            return;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        limiter.acquire();
+        try {
+            if (batch.size() == 1) {
+                transport.send(batch.get(0));
+            } else {
+                transport.send(batch);
+            }
+            Date now = new Date();
+            for (OutboundMail mail : batch) {
+                mails.markSent(mail.getId(), mail.getClaimToken(), now);
+                LOGGER.debug("Sent e-mail [{}] to '{}'", mail.getId(), mail.getRecipient());
+            }
+        } catch (MailDeliveryException | RuntimeException e) {
+            batch.forEach(mail -> failed(mail, e));
+        }
+    }
+
+    /**
+     * @return mails whose claim is still held, renewed so that they are not released while being sent
+     */
+    private List<OutboundMail> held(List<OutboundMail> claimed) {
+        Date now = new Date();
+        List<OutboundMail> held = new ArrayList<>();
+        for (OutboundMail mail : claimed) {
+            if (mails.renewClaim(mail.getId(), mail.getClaimToken(), now) == 1) {
+                held.add(mail);
+            } else {
+                LOGGER.warn("E-mail [{}] was released while waiting to be sent, leaving it to its new claim", mail.getId());
+            }
+        }
+        return held;
+    }
+
+    private void failed(OutboundMail mail, Exception e) {
+        int attempts = mail.getAttempts() + 1;
+        String error = StringUtils.abbreviate(e.getMessage(), 1000);
+        boolean retryable = !(e instanceof MailDeliveryException) || ((MailDeliveryException) e).isRetryable();
+        if (!retryable || attempts >= maxAttempts) {
+            LOGGER.error("E-mail [{}] could not be sent to '{}' after {} attempts: {}", mail.getId(), mail.getRecipient(), attempts, error);
+            mails.markFailed(mail.getId(), mail.getClaimToken(), attempts, error);
+            return;
+        }
+        long delay = backoff(attempts);
+        LOGGER.warn("E-mail [{}] could not be sent to '{}', retrying in {}s: {}", mail.getId(), mail.getRecipient(), delay, error);
+        mails.reschedule(mail.getId(), mail.getClaimToken(), attempts, new Date(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(delay)), error);
+    }
+
+    /**
+     * @return seconds to wait before the next attempt, doubled after each failed one
+     */
+    long backoff(int attempts) {
+        return Math.min(MAX_BACKOFF_SECONDS, backoffSeconds << Math.min(attempts - 1, 20));
+    }
+}
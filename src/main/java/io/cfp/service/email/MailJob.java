@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.service.email;
+
+import java.util.UUID;
+
+/**
+ * Groups the mails enqueued by one notification request, so its progress can be followed.
+ * Mails enqueued from the thread running {@link #run(String, Runnable)} are tagged with the job.
+ */
+public final class MailJob {
+
+    private static final ThreadLocal<MailJob> current = new ThreadLocal<>();
+
+    private final String id;
+    private final String eventId;
+
+    private MailJob(String id, String eventId) {
+        this.id = id;
+        this.eventId = eventId;
+    }
+
+    /**
+     * @return job of the current thread, or null when mails are not sent as part of a job
+     */
+    public static MailJob current() {
+        return current.get();
+    }
+
+    /**
+     * Attach a job to the current thread, e.g. to carry it to an asynchronous task. A null job detaches it.
+     */
+    public static void setCurrent(MailJob job) {
+        if (job == null) {
+            current.remove();
+        } else {
+            current.set(job);
+        }
+    }
+
+    /**
+     * Run the given sends as a new job of the event
+     * @return the job id
+     */
+    public static String run(String eventId, Runnable sends) {
+        MailJob job = new MailJob(UUID.randomUUID().toString(), eventId);
+        MailJob previous = current.get();
+        current.set(job);
+        try {
+            sends.run();
+        } finally {
+            setCurrent(previous);
+        }
+        return job.id;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+}
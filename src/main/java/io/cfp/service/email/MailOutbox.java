@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.service.email;
+
+import io.cfp.mapper.MailOutboxMapper;
+import io.cfp.model.MailJobStatus;
+import io.cfp.model.OutboundMail;
+import io.cfp.model.Stat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Persistent queue of outbound mails. Mails are stored within the caller's transaction and delivered later
+ * by the {@link MailDispatcher}. A mail may be stored before its content is rendered, it is only delivered once
+ * {@link #rendered(int, String, String)}.
+ */
+@Service
+public class MailOutbox {
+
+    @Autowired
+    private MailOutboxMapper mails;
+
+    /**
+     * Store a mail, due right away unless it has a later next attempt
+     */
+    public OutboundMail enqueue(OutboundMail mail) {
+        return store(mail.setStatus(OutboundMail.Status.PENDING));
+    }
+
+    /**
+     * Store a mail whose content isn't rendered yet
+     */
+    public OutboundMail reserve(OutboundMail mail) {
+        return store(mail.setStatus(OutboundMail.Status.RENDERING).setContent(""));
+    }
+
+    /**
+     * Hand a reserved mail to the dispatcher, or give it up when it couldn't be rendered
+     */
+    public void rendered(int id, String replyTo, String content) {
+        if (content == null) {
+            mails.failRendering(id, null, "Unable to render the mail");
+        } else {
+            mails.rendered(id, replyTo, content, new Date());
+        }
+    }
+
+    private OutboundMail store(OutboundMail mail) {
+        Date now = new Date();
+        mail.setCreated(now);
+        if (mail.getNextAttempt() == null) {
+            mail.setNextAttempt(now);
+        }
+
+        MailJob job = MailJob.current();
+        if (job != null) {
+            mail.setJobId(job.getId()).setEventId(job.getEventId());
+        }
+        mails.insert(mail);
+        return mail;
+    }
+
+    /**
+     * @return pending mail of the digest, locked until the caller's transaction ends, or null once it is being sent
+     */
+    public OutboundMail pendingDigest(String digestKey) {
+        return mails.findPendingDigest(digestKey);
+    }
+
+    /**
+     * Replace the message of the pending mail of a digest, keeping its due date
+     */
+    public void updateDigest(OutboundMail mail) {
+        mails.updateDigest(mail);
+    }
+
+    /**
+     * @return progress of the job, or null if the event has no mail for this job
+     */
+    public MailJobStatus status(String jobId, String eventId) {
+        List<Stat> counts = mails.countByStatus(jobId, eventId);
+        if (counts.isEmpty()) {
+            return null;
+        }
+        MailJobStatus status = new MailJobStatus().setJobId(jobId);
+        for (Stat count : counts) {
+            long n = count.getCount();
+            status.setTotal(status.getTotal() + n);
+            switch (OutboundMail.Status.valueOf(count.getName())) {
+                case SENT:
+                    status.setSent(n);
+                    break;
+                case FAILED:
+                    status.setFailed(n);
+                    break;
+                default:
+                    status.setPending(status.getPending() + n);
+            }
+        }
+        return status;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.service.email;
+
+import io.cfp.model.OutboundMail;
+
+import java.util.List;
+
+/**
+ * Hands mails of the outbox over to a provider. The implementation is selected with <code>cfp.email.transport</code>.
+ */
+public interface MailTransport {
+
+    void send(OutboundMail mail) throws MailDeliveryException;
+
+    /**
+     * @return how many recipients a single {@link #send(List)} call accepts, 1 when the transport can't batch
+     */
+    default int batchSize() {
+        return 1;
+    }
+
+    /**
+     * Send the same message to each mail's recipient, recipients don't see each other.
+     * Mails share reply-to address, subject and content, and have no copy recipient.
+     */
+    default void send(List<OutboundMail> mails) throws MailDeliveryException {
+        for (OutboundMail mail : mails) {
+            send(mail);
+        }
+    }
+}
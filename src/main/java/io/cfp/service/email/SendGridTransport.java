@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.service.email;
+
+import com.sendgrid.SendGrid;
+import com.sendgrid.SendGridException;
+import io.cfp.model.OutboundMail;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends mails through the SendGrid web API, on pooled keep-alive connections.
+ * Identical messages are sent in one call, each recipient getting its own copy.
+ */
+@Component
+@ConditionalOnProperty(name = "cfp.email.transport", havingValue = "sendgrid", matchIfMissing = true)
+public class SendGridTransport implements MailTransport {
+
+    @Value("${cfp.email.sendgrid.apikey}")
+    private String sendgridApiKey;
+
+    @Value("${cfp.email.emailsender}")
+    private String emailSender;
+
+    @Value("${cfp.email.sendgrid.connections:10}")
+    private int connections;
+
+    @Value("${cfp.email.sendgrid.batch-size:100}")
+    private int batchSize;
+
+    private CloseableHttpClient client;
+
+    private SendGrid sendgrid;
+
+    @PostConstruct
+    public void start() {
+        PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager(60, TimeUnit.SECONDS);
+        pool.setMaxTotal(connections);
+        pool.setDefaultMaxPerRoute(connections);
+        int timeout = (int) TimeUnit.SECONDS.toMillis(30);
+        client = HttpClientBuilder.create()
+            .setConnectionManager(pool)
+            .setDefaultRequestConfig(RequestConfig.custom().setConnectTimeout(timeout).setSocketTimeout(timeout).build())
+            .setUserAgent("cfp.io")
+            .build();
+        sendgrid = new SendGrid(sendgridApiKey).setClient(client);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        client.close();
+    }
+
+    @Override
+    public int batchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public void send(OutboundMail mail) throws MailDeliveryException {
+        SendGrid.Email email = message(mail).addTo(mail.getRecipient());
+        List<String> cc = mail.getCcList();
+        if (!cc.isEmpty()) {
+            email.addCc(cc.toArray(new String[cc.size()]));
+        }
+        List<String> bcc = mail.getBccList();
+        if (!bcc.isEmpty()) {
+            email.addBcc(bcc.toArray(new String[bcc.size()]));
+        }
+        send(email);
+    }
+
+    @Override
+    public void send(List<OutboundMail> mails) throws MailDeliveryException {
+        if (mails.size() == 1) {
+            send(mails.get(0));
+            return;
+        }
+        SendGrid.Email email = message(mails.get(0));
+        for (OutboundMail mail : mails) {
+            email.addSmtpApiTo(mail.getRecipient());
+        }
+        send(email);
+    }
+
+    private SendGrid.Email message(OutboundMail mail) {
+        return new SendGrid.Email()
+            .setFrom(emailSender)
+            .setFromName("CFP.io")
+            .setReplyTo(mail.getReplyTo())
+            .setSubject(mail.getSubject())
+            .setHtml(mail.getContent());
+    }
+
+    private void send(SendGrid.Email email) throws MailDeliveryException {
+        SendGrid.Response response;
+        try {
+            response = sendgrid.send(email);
+        } catch (SendGridException e) {
+            throw new MailDeliveryException(e.getMessage(), e, true);
+        }
+        if (!response.getStatus()) {
+            int code = response.getCode();
+            // client errors won't get better, except when throttled
+            boolean retryable = code == 429 || code < 400 || code >= 500;
+            throw new MailDeliveryException(code + " " + response.getMessage(), retryable);
+        }
+    }
+}
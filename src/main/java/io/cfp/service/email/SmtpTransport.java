@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2016 BreizhCamp
+ * [http://breizhcamp.org]
+ *
+ * This file is part of CFP.io.
+ *
+ * CFP.io is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.cfp.service.email;
+
+import io.cfp.model.OutboundMail;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.MailException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Component;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+
+/**
+ * Sends mails to the SMTP server configured with <code>spring.mail.*</code>, e.g. a local stand-in to load test
+ * mail throughput without the real provider.
+ */
+@Component
+@ConditionalOnProperty(name = "cfp.email.transport", havingValue = "smtp")
+public class SmtpTransport implements MailTransport {
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @Value("${cfp.email.emailsender}")
+    private String emailSender;
+
+    @Override
+    public void send(OutboundMail mail) throws MailDeliveryException {
+        MimeMessage message = mailSender.createMimeMessage();
+        try {
+            MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
+            helper.setFrom(emailSender, "CFP.io");
+            if (mail.getReplyTo() != null) {
+                helper.setReplyTo(mail.getReplyTo());
+            }
+            helper.setTo(mail.getRecipient());
+            List<String> cc = mail.getCcList();
+            helper.setCc(cc.toArray(new String[cc.size()]));
+            List<String> bcc = mail.getBccList();
+            helper.setBcc(bcc.toArray(new String[bcc.size()]));
+            if (mail.getSubject() != null) {
+                helper.setSubject(mail.getSubject());
+            }
+            helper.setText(mail.getContent(), true);
+        } catch (MessagingException | UnsupportedEncodingException e) {
+            throw new MailDeliveryException("Invalid mail: " + e.getMessage(), e, false);
+        }
+
+        try {
+            mailSender.send(message);
+        } catch (MailException e) {
+            throw new MailDeliveryException(e.getMessage(), e, true);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package io.cfp.api;
 import io.cfp.mapper.EventMapper;
 import io.cfp.mapper.UserMapper;
 import io.cfp.model.Event;
+import io.cfp.service.EventCache;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,6 +28,9 @@ public class ApplicationControllerTest {
     @MockBean
     private EventMapper eventMapper;
 
+    @MockBean
+    private EventCache eventCache;
+
     @MockBean
     private UserMapper userMapper;
 
@@ -43,7 +47,7 @@ public class ApplicationControllerTest {
         event.setDecisionDate(new Date());
 
 
-        when(eventMapper.findOne(anyString())).thenReturn(event);
+        when(eventCache.get(anyString())).thenReturn(event);
 
         mockMvc.perform(get("/api/application")
             .accept(MediaType.APPLICATION_JSON_UTF8)
@@ -60,7 +64,7 @@ public class ApplicationControllerTest {
     @Test
     public void should_return_not_found_id_no_event() throws Exception {
 
-        when(eventMapper.findOne(anyString())).thenReturn(null);
+        when(eventCache.get(anyString())).thenReturn(null);
 
         mockMvc.perform(get("/api/application")
                 .accept(MediaType.APPLICATION_JSON_UTF8)
@@ -8,7 +8,7 @@ import io.cfp.model.Proposal;
 import io.cfp.model.Role;
 import io.cfp.model.User;
 import io.cfp.model.queries.CommentQuery;
-import io.cfp.service.email.EmailingService;
+import io.cfp.service.email.CommentDigests;
 import io.cfp.utils.Utils;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -43,7 +43,7 @@ public class CommentsControllerTest {
     private ProposalMapper proposalMapper;
 
     @MockBean
-    private EmailingService emailingService;
+    private CommentDigests commentDigests;
 
     @Autowired
     private MockMvc mockMvc;
@@ -541,7 +541,7 @@ public class CommentsControllerTest {
             .andExpect(status().isNoContent())
         ;
 
-        verify(emailingService).sendNewCommentToAdmins(eq(user), eq(proposal), anyString());
+        verify(commentDigests).notifyAdmins(eq(user), eq(proposal), any(Comment.class));
     }
 
     @Test
@@ -576,7 +576,7 @@ public class CommentsControllerTest {
             .andExpect(status().isNoContent())
         ;
 
-        verify(emailingService).sendNewCommentToAdmins(eq(speaker), eq(proposal), anyString());
+        verify(commentDigests).notifyAdmins(eq(speaker), eq(proposal), any(Comment.class));
     }
 
     @Test
@@ -606,7 +606,7 @@ public class CommentsControllerTest {
             .andExpect(status().isCreated())
         ;
 
-        verify(emailingService).sendNewCommentToAdmins(eq(user), eq(proposal), anyString());
+        verify(commentDigests).notifyAdmins(eq(user), eq(proposal), any(Comment.class));
     }
 
     @Test
@@ -637,7 +637,7 @@ public class CommentsControllerTest {
             .andExpect(status().isCreated())
         ;
 
-        verify(emailingService).sendNewCommentToSpeaker(eq(speaker), eq(proposal), anyString());
+        verify(commentDigests).notifySpeaker(eq(proposal), any(Comment.class));
     }
 
     @Test
@@ -667,7 +667,7 @@ public class CommentsControllerTest {
             .andExpect(status().isCreated())
         ;
 
-        verify(emailingService).sendNewCommentToAdmins(eq(user), eq(proposal), anyString());
+        verify(commentDigests).notifyAdmins(eq(user), eq(proposal), any(Comment.class));
     }
 
 }
@@ -1,14 +1,24 @@
 package io.cfp.api;
 
+import io.cfp.domain.exception.ConflictException;
 import io.cfp.mapper.*;
 import io.cfp.model.*;
+import io.cfp.model.queries.ProposalCursor;
 import io.cfp.model.queries.ProposalQuery;
+import io.cfp.model.queries.ProposalSort;
+import io.cfp.service.EventCache;
 import io.cfp.service.PdfCardService;
+import io.cfp.service.ProposalCountService;
+import io.cfp.service.ProposalStateService;
+import io.cfp.service.RateService;
+import io.cfp.service.ReviewCoverageService;
+import io.cfp.service.ScheduleSnapshotService;
 import io.cfp.service.email.EmailingService;
 import io.cfp.utils.Utils;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -17,11 +27,17 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -53,6 +69,24 @@ public class ProposalsControllerTest {
     @MockBean
     private EventMapper eventMapper;
 
+    @MockBean
+    private EventCache eventCache;
+
+    @MockBean
+    private RateService rateService;
+
+    @MockBean
+    private ProposalStateService proposalStateService;
+
+    @MockBean
+    private ProposalCountService proposalCountService;
+
+    @MockBean
+    private ReviewCoverageService reviewCoverage;
+
+    @MockBean
+    private ScheduleSnapshotService publicSchedule;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -91,18 +125,15 @@ public class ProposalsControllerTest {
         List<Proposal> proposals = new ArrayList<>();
         proposals.add(proposal);
 
-        Rate r = new Rate();
-        r.setId(1);
-        r.setRate(3);
-        r.setAdded(new Date());
-
-        r.setUser(proposal.getSpeaker());
-        r.setTalk(proposal);
-        r.setEventId(proposal.getEventId());
-        List<Rate> rates = Collections.singletonList(r);
+        proposal.setRating(new RateSummary()
+            .setProposalId(10)
+            .setRateCount(1)
+            .setVoteCount(1)
+            .setRateTotal(3)
+            .setVoterIds("21"));
 
-        when(proposalMapper.findAll(any(ProposalQuery.class))).thenReturn(proposals);
-        when(rateMapper.findAllWithTalk(anyString())).thenReturn(rates);
+        when(proposalMapper.search(any(ProposalQuery.class))).thenReturn(proposals);
+        when(rateService.voterEmails(proposals)).thenReturn(Collections.singletonMap(21, "EMAIL"));
 
         User user = new User();
         user.setEmail("EMAIL");
@@ -120,6 +151,141 @@ public class ProposalsControllerTest {
             .andExpect(status().isOk())
             .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
             .andExpect(jsonPath("$[0].id").value("10"))
+            .andExpect(jsonPath("$[0].mean").value("3.0"))
+            .andExpect(jsonPath("$[0].voteUsersEmail[0]").value("EMAIL"))
+            .andExpect(jsonPath("$[0].rating").doesNotExist())
+        ;
+    }
+
+    @Test
+    public void should_get_a_page_of_proposals() throws Exception {
+
+        when(proposalMapper.search(any(ProposalQuery.class))).thenReturn(Collections.singletonList(proposal));
+
+        User user = new User();
+        user.setEmail("EMAIL");
+        user.addRole(Role.ADMIN);
+        String token = Utils.createTokenForUser(user);
+
+        when(userMapper.findByEmail("EMAIL")).thenReturn(user);
+
+        mockMvc.perform(get("/api/proposals")
+            .param("sort", "name")
+            .param("size", "1")
+            .accept(MediaType.APPLICATION_JSON_UTF8)
+            .header("Authorization", "Bearer " + token)
+        )
+            .andDo(print())
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].id").value("10"))
+            .andExpect(header().string(ProposalCursor.NEXT_CURSOR_HEADER,
+                ProposalCursor.after(ProposalSort.NAME, "asc", proposal).encode()))
+        ;
+    }
+
+    @Test
+    public void should_reject_cursor_of_another_sort() throws Exception {
+
+        User user = new User();
+        user.setEmail("EMAIL");
+        user.addRole(Role.ADMIN);
+        String token = Utils.createTokenForUser(user);
+
+        when(userMapper.findByEmail("EMAIL")).thenReturn(user);
+
+        mockMvc.perform(get("/api/proposals")
+            .param("sort", "name")
+            .param("size", "1")
+            .param("cursor", ProposalCursor.after(ProposalSort.ADDED, "asc", proposal).encode())
+            .accept(MediaType.APPLICATION_JSON_UTF8)
+            .header("Authorization", "Bearer " + token)
+        )
+            .andExpect(status().isBadRequest())
+        ;
+    }
+
+    @Test
+    public void should_reject_cursor_of_another_order() throws Exception {
+
+        User user = new User();
+        user.setEmail("EMAIL");
+        user.addRole(Role.ADMIN);
+        String token = Utils.createTokenForUser(user);
+
+        when(userMapper.findByEmail("EMAIL")).thenReturn(user);
+
+        mockMvc.perform(get("/api/proposals")
+            .param("sort", "name")
+            .param("order", "desc")
+            .param("size", "1")
+            .param("cursor", ProposalCursor.after(ProposalSort.NAME, "asc", proposal).encode())
+            .accept(MediaType.APPLICATION_JSON_UTF8)
+            .header("Authorization", "Bearer " + token)
+        )
+            .andExpect(status().isBadRequest())
+        ;
+    }
+
+    @Test
+    public void should_reject_pages_sorted_by_several_keys() throws Exception {
+
+        User user = new User();
+        user.setEmail("EMAIL");
+        user.addRole(Role.ADMIN);
+        String token = Utils.createTokenForUser(user);
+
+        when(userMapper.findByEmail("EMAIL")).thenReturn(user);
+
+        mockMvc.perform(get("/api/proposals")
+            .param("sort", "name,added")
+            .param("size", "1")
+            .accept(MediaType.APPLICATION_JSON_UTF8)
+            .header("Authorization", "Bearer " + token)
+        )
+            .andExpect(status().isBadRequest())
+        ;
+    }
+
+    @Test
+    public void should_get_next_proposal_to_rate() throws Exception {
+
+        User user = new User();
+        user.setId(20);
+        user.setEmail("EMAIL");
+        user.addRole(Role.REVIEWER);
+        String token = Utils.createTokenForUser(user);
+
+        when(userMapper.findByEmail("EMAIL")).thenReturn(user);
+        when(proposalMapper.findIds(any(ProposalQuery.class))).thenReturn(Arrays.asList(9, 10));
+        when(reviewCoverage.nextUnrated(anyString(), eq(20), eq(Arrays.asList(9, 10)))).thenReturn(10);
+        when(proposalMapper.findById(eq(10), anyString())).thenReturn(proposal);
+
+        mockMvc.perform(get("/api/proposals/nextToRate")
+            .accept(MediaType.APPLICATION_JSON_UTF8)
+            .header("Authorization", "Bearer " + token)
+        )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id").value("10"))
+        ;
+    }
+
+    @Test
+    public void should_not_find_next_proposal_to_rate_when_all_rated() throws Exception {
+
+        User user = new User();
+        user.setId(20);
+        user.setEmail("EMAIL");
+        user.addRole(Role.REVIEWER);
+        String token = Utils.createTokenForUser(user);
+
+        when(userMapper.findByEmail("EMAIL")).thenReturn(user);
+        when(proposalMapper.findIds(any(ProposalQuery.class))).thenReturn(Arrays.asList(9, 10));
+
+        mockMvc.perform(get("/api/proposals/nextToRate")
+            .accept(MediaType.APPLICATION_JSON_UTF8)
+            .header("Authorization", "Bearer " + token)
+        )
+            .andExpect(status().isNotFound())
         ;
     }
 
@@ -191,7 +357,7 @@ public class ProposalsControllerTest {
 
         Event event = new Event();
         event.setOpen(true);
-        when(eventMapper.findOne(anyString())).thenReturn(event);
+        when(eventCache.get(anyString())).thenReturn(event);
 
         String newProposal = Utils.getContent("/json/proposals/new_proposal.json");
 
@@ -219,7 +385,7 @@ public class ProposalsControllerTest {
 
         Event event = new Event();
         event.setOpen(true);
-        when(eventMapper.findOne(anyString())).thenReturn(event);
+        when(eventCache.get(anyString())).thenReturn(event);
 
         String invalidProposal = Utils.getContent("/json/proposals/invalid_proposal.json");
 
@@ -247,7 +413,7 @@ public class ProposalsControllerTest {
 
         Event event = new Event();
         event.setOpen(false);
-        when(eventMapper.findOne(anyString())).thenReturn(event);
+        when(eventCache.get(anyString())).thenReturn(event);
 
         String newProposal = Utils.getContent("/json/proposals/new_proposal.json");
 
@@ -325,6 +491,7 @@ public class ProposalsControllerTest {
 
         when(userMapper.findByEmail("EMAIL")).thenReturn(user);
         when(proposalMapper.findById(eq(25), anyString())).thenReturn(proposal);
+        when(proposalStateService.transition(eq(25), anyString(), eq(Proposal.Transition.CONFIRM))).thenReturn(true);
 
         String updatedProposal = Utils.getContent("/json/proposals/other_proposal.json");
 
@@ -341,6 +508,121 @@ public class ProposalsControllerTest {
         verify(emailingService).sendConfirmed(eq(user), eq(proposal));
     }
 
+    @Test
+    public void should_not_email_again_when_proposal_is_already_confirmed() throws Exception {
+
+        User user = new User();
+        user.setId(21);
+        user.setEmail("EMAIL");
+        user.addRole(Role.AUTHENTICATED);
+        String token = Utils.createTokenForUser(user);
+
+        when(userMapper.findByEmail("EMAIL")).thenReturn(user);
+        when(proposalStateService.transition(eq(25), anyString(), eq(Proposal.Transition.CONFIRM))).thenReturn(false);
+
+        mockMvc.perform(put("/api/proposals/25/confirm")
+            .header("Authorization", "Bearer " + token)
+        )
+            .andExpect(status().isNoContent())
+        ;
+
+        verify(emailingService, never()).sendConfirmed(any(User.class), any(Proposal.class));
+    }
+
+    @Test
+    public void should_not_accept_proposal_in_conflicting_state() throws Exception {
+
+        User user = new User();
+        user.setEmail("EMAIL");
+        user.addRole(Role.ADMIN);
+        String token = Utils.createTokenForUser(user);
+
+        when(userMapper.findByEmail("EMAIL")).thenReturn(user);
+        doThrow(new ConflictException()).when(proposalStateService).transition(eq(25), anyString(), eq(Proposal.Transition.ACCEPT));
+
+        mockMvc.perform(put("/api/proposals/25/accept")
+            .header("Authorization", "Bearer " + token)
+        )
+            .andExpect(status().isConflict())
+        ;
+    }
+
+    @Test
+    public void should_change_state_of_many_proposals() throws Exception {
+
+        User user = new User();
+        user.setEmail("EMAIL");
+        user.addRole(Role.ADMIN);
+        String token = Utils.createTokenForUser(user);
+
+        Map<Integer, ProposalStateChange.Outcome> outcomes = new LinkedHashMap<>();
+        outcomes.put(25, ProposalStateChange.Outcome.UPDATED);
+        outcomes.put(26, ProposalStateChange.Outcome.CONFLICT);
+
+        when(userMapper.findByEmail("EMAIL")).thenReturn(user);
+        when(proposalStateService.transitionAll(any(), anyString(), eq(Proposal.Transition.REJECT))).thenReturn(outcomes);
+
+        mockMvc.perform(put("/api/proposals/state")
+            .contentType(MediaType.APPLICATION_JSON_UTF8)
+            .header("Authorization", "Bearer " + token)
+            .content("{\"ids\": [25, 26], \"state\": \"REFUSED\"}")
+        )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.25").value("UPDATED"))
+            .andExpect(jsonPath("$.26").value("CONFLICT"))
+        ;
+    }
+
+    @Test
+    public void should_not_change_many_proposals_to_draft() throws Exception {
+
+        User user = new User();
+        user.setEmail("EMAIL");
+        user.addRole(Role.ADMIN);
+        String token = Utils.createTokenForUser(user);
+
+        when(userMapper.findByEmail("EMAIL")).thenReturn(user);
+
+        mockMvc.perform(put("/api/proposals/state")
+            .contentType(MediaType.APPLICATION_JSON_UTF8)
+            .header("Authorization", "Bearer " + token)
+            .content("{\"ids\": [25], \"state\": \"DRAFT\"}")
+        )
+            .andExpect(status().isBadRequest())
+        ;
+    }
+
+    @Test
+    public void should_save_my_rate_in_one_request() throws Exception {
+
+        User user = new User();
+        user.setId(21);
+        user.setEmail("EMAIL");
+        user.addRole(Role.REVIEWER);
+        String token = Utils.createTokenForUser(user);
+
+        Rate stored = new Rate().setId(71).setRate(4);
+
+        when(userMapper.findByEmail("EMAIL")).thenReturn(user);
+        when(rateService.save(any(Rate.class))).thenReturn(stored);
+
+        mockMvc.perform(put("/api/proposals/25/rates/me")
+            .contentType(MediaType.APPLICATION_JSON_UTF8)
+            .header("Authorization", "Bearer " + token)
+            .content("{\"rate\": 4}")
+        )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id").value(71))
+            .andExpect(jsonPath("$.rate").value(4))
+        ;
+
+        ArgumentCaptor<Rate> saved = ArgumentCaptor.forClass(Rate.class);
+        verify(rateService).save(saved.capture());
+        assertThat(saved.getValue().getTalk().getId()).isEqualTo(25);
+        assertThat(saved.getValue().getUser().getId()).isEqualTo(21);
+        assertThat(saved.getValue().getEventId()).isNotNull();
+    }
+
     /* FIXME will need to make it clearer what we consider an "invalid proposal"
     @Test
     public void should_not_update_invalid_proposals() throws Exception {
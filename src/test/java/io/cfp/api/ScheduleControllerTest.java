@@ -21,14 +21,21 @@
 package io.cfp.api;
 
 import io.cfp.mapper.*;
+import io.cfp.model.MailJobStatus;
 import io.cfp.model.Proposal;
 import io.cfp.model.Role;
+import io.cfp.model.ScheduleSaveSummary;
 import io.cfp.model.User;
 import io.cfp.model.queries.ProposalQuery;
+import io.cfp.service.ReferenceDataService;
+import io.cfp.service.ScheduleService;
+import io.cfp.service.ScheduleSnapshotService;
 import io.cfp.service.email.EmailingService;
+import io.cfp.service.email.MailOutbox;
 import io.cfp.utils.Utils;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -38,11 +45,15 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.*;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -57,13 +68,16 @@ public class ScheduleControllerTest {
     private EmailingService emailingService;
 
     @MockBean
-    private RoomMapper roomMapper;
+    private MailOutbox mailOutbox;
+
+    @MockBean
+    private ReferenceDataService referenceData;
 
     @MockBean
-    private FormatMapper formatMapper;
+    private ScheduleSnapshotService publicSchedule;
 
     @MockBean
-    private ThemeMapper themeMapper;
+    private ScheduleService scheduleService;
 
     @MockBean
     private UserMapper userMapper;
@@ -142,6 +156,64 @@ public class ScheduleControllerTest {
 
     }
 
+    @Test
+    public void should_serve_schedule_snapshot_with_etag() throws Exception {
+
+        when(publicSchedule.get(anyString())).thenReturn(new ScheduleSnapshotService.Snapshot("[{\"id\":1}]".getBytes(), "\"v1\"", null, 0));
+
+        mockMvc.perform(get("/api/schedule")
+            .accept(MediaType.APPLICATION_JSON_UTF8)
+        )
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"v1\""))
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$[0].id").value(1))
+        ;
+    }
+
+    @Test
+    public void should_not_resend_unmodified_schedule() throws Exception {
+
+        when(publicSchedule.get(anyString())).thenReturn(new ScheduleSnapshotService.Snapshot("[{\"id\":1}]".getBytes(), "\"v1\"", null, 0));
+
+        mockMvc.perform(get("/api/schedule")
+            .accept(MediaType.APPLICATION_JSON_UTF8)
+            .header("If-None-Match", "\"v1\"")
+        )
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""))
+        ;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void should_save_calendar_in_one_batch() throws Exception {
+
+        User user = new User();
+        user.setEmail("EMAIL");
+        user.addRole(Role.ADMIN);
+        String token = Utils.createTokenForUser(user);
+
+        when(userMapper.findByEmail("EMAIL")).thenReturn(user);
+        when(scheduleService.save(anyString(), any())).thenReturn(new ScheduleSaveSummary().setUpdated(1).setUnchanged(1));
+
+        mockMvc.perform(put("/api/schedule/fullcalendar")
+            .contentType(MediaType.APPLICATION_JSON_UTF8)
+            .header("Authorization", "Bearer " + token)
+            .content("{\"events\": [" +
+                "{\"id\": \"20\", \"start\": \"2042-12-31T12:00:00+01:00\", \"resourceId\": \"50\"}," +
+                "{\"id\": \"21\", \"start\": \"2042-12-31T14:00:00+01:00\"}]}")
+        )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.updated").value(1))
+            .andExpect(jsonPath("$.unchanged").value(1))
+        ;
+
+        ArgumentCaptor<List> changes = ArgumentCaptor.forClass(List.class);
+        verify(scheduleService).save(anyString(), changes.capture());
+        assertThat(changes.getValue()).hasSize(2);
+    }
+
     @Test
     public void should_send_notifications_to_all_accepted_talks() throws Exception {
         // Given
@@ -181,11 +253,38 @@ public class ScheduleControllerTest {
         )
             .andDo(print())
             .andExpect(status().isOk())
+            .andExpect(jsonPath("$.jobId").isNotEmpty())
         ;
 
         verify(emailingService, times(2)).sendSelectionned(any(Proposal.class), any(Locale.class));
     }
 
+    @Test
+    public void should_return_notification_progress() throws Exception {
+        User user = new User();
+        user.setEmail("EMAIL");
+        user.addRole(Role.ADMIN);
+        String token = Utils.createTokenForUser(user);
+
+        when(userMapper.findByEmail("EMAIL")).thenReturn(user);
+        when(mailOutbox.status(eq("job"), anyString())).thenReturn(new MailJobStatus().setJobId("job").setTotal(3).setSent(2).setPending(1));
+
+        mockMvc.perform(get("/api/schedule/notification/job")
+            .header("Authorization", "Bearer "+token)
+        )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.total").value(3))
+            .andExpect(jsonPath("$.sent").value(2))
+            .andExpect(jsonPath("$.pending").value(1))
+        ;
+
+        mockMvc.perform(get("/api/schedule/notification/unknown")
+            .header("Authorization", "Bearer "+token)
+        )
+            .andExpect(status().isNotFound())
+        ;
+    }
+
     @Test
     public void should_send_notifications_to_all_refused_talks() throws Exception {
         // Given
@@ -0,0 +1,89 @@
+package io.cfp.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private JdbcTemplate jdbc;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(16))");
+        jdbc.execute("DELETE FROM node");
+        jdbc.update("INSERT INTO node VALUES (?)", name);
+        return dataSource;
+    }
+
+    @Before
+    public void setUp() {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(database("primary"), database("replica"));
+        routing.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+
+        jdbc = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @After
+    public void tearDown() {
+        ReplicaRoutingDataSource.reset();
+    }
+
+    private String node() {
+        return jdbc.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private String node(TransactionTemplate transaction) {
+        return transaction.execute(status -> node());
+    }
+
+    @Test
+    public void should_use_primary_unless_replica_is_allowed() {
+        assertThat(node()).isEqualTo("primary");
+        assertThat(node(readOnly)).isEqualTo("primary");
+    }
+
+    @Test
+    public void should_read_from_replica_outside_transactions_and_in_read_only_ones() {
+        ReplicaRoutingDataSource.setReplicaAllowed(true);
+
+        assertThat(node()).isEqualTo("replica");
+        assertThat(node(readOnly)).isEqualTo("replica");
+    }
+
+    @Test
+    public void should_keep_read_write_transactions_on_primary() {
+        ReplicaRoutingDataSource.setReplicaAllowed(true);
+
+        assertThat(node(readWrite)).isEqualTo("primary");
+    }
+
+    @Test
+    public void should_force_primary_for_writes_outside_transactions() {
+        ReplicaRoutingDataSource.setReplicaAllowed(true);
+
+        String node = ReplicaRoutingDataSource.onPrimary(this::node);
+
+        assertThat(node).isEqualTo("primary");
+        assertThat(node()).isEqualTo("replica");
+    }
+
+}
@@ -0,0 +1,75 @@
+package io.cfp.config;
+
+import io.cfp.entity.Event;
+import io.cfp.service.email.MailJob;
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.MDC;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ThreadContextTaskDecoratorTest {
+
+    private final ThreadContextTaskDecorator decorator = new ThreadContextTaskDecorator();
+
+    @After
+    public void tearDown() {
+        MDC.clear();
+        Event.unsetCurrent();
+    }
+
+    @Test
+    public void should_propagate_context_to_worker_thread() throws Exception {
+        MDC.put("event.id", "breizhcamp");
+        MDC.put("user", "john@doe.net");
+        Event.setCurrent("breizhcamp");
+
+        AtomicReference<String> mdcEvent = new AtomicReference<>();
+        AtomicReference<String> mdcUser = new AtomicReference<>();
+        AtomicReference<String> event = new AtomicReference<>();
+        AtomicReference<MailJob> job = new AtomicReference<>();
+        AtomicReference<Runnable> task = new AtomicReference<>();
+        String jobId = MailJob.run("breizhcamp", () -> task.set(decorator.decorate(() -> {
+            mdcEvent.set(MDC.get("event.id"));
+            mdcUser.set(MDC.get("user"));
+            event.set(Event.getCurrent());
+            job.set(MailJob.current());
+        })));
+
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture.runAsync(task.get(), worker).get();
+            CompletableFuture<Boolean> cleared = CompletableFuture.supplyAsync(() ->
+                MDC.get("event.id") == null && Event.getCurrent() == null && MailJob.current() == null, worker);
+            assertThat(cleared.get()).isTrue();
+        } finally {
+            worker.shutdown();
+        }
+
+        assertThat(mdcEvent.get()).isEqualTo("breizhcamp");
+        assertThat(mdcUser.get()).isEqualTo("john@doe.net");
+        assertThat(event.get()).isEqualTo("breizhcamp");
+        assertThat(job.get().getId()).isEqualTo(jobId);
+    }
+
+    @Test
+    public void should_restore_caller_context_when_run_on_caller_thread() {
+        MDC.put("event.id", "breizhcamp");
+        Event.setCurrent("breizhcamp");
+        AtomicReference<String> event = new AtomicReference<>();
+        Runnable task = decorator.decorate(() -> event.set(Event.getCurrent()));
+        MDC.put("event.id", "other");
+        Event.setCurrent("other");
+
+        task.run();
+
+        assertThat(event.get()).isEqualTo("breizhcamp");
+        assertThat(MDC.get("event.id")).isEqualTo("other");
+        assertThat(Event.getCurrent()).isEqualTo("other");
+    }
+}
@@ -0,0 +1,52 @@
+package io.cfp.config.filter;
+
+import io.cfp.config.ReplicaRoutingDataSource;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.Cookie;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplicaRoutingFilterTest {
+
+    private final ReplicaRoutingFilter filter = new ReplicaRoutingFilter(5);
+
+    private boolean replicaAllowedDuring(MockHttpServletRequest request, MockHttpServletResponse response) throws Exception {
+        AtomicBoolean allowed = new AtomicBoolean();
+        FilterChain chain = (req, res) -> allowed.set(ReplicaRoutingDataSource.isReplicaAllowed());
+        filter.doFilter(request, response, chain);
+        return allowed.get();
+    }
+
+    @Test
+    public void should_allow_replica_for_reads() throws Exception {
+        assertThat(replicaAllowedDuring(new MockHttpServletRequest("GET", "/api/schedule"), new MockHttpServletResponse())).isTrue();
+    }
+
+    @Test
+    public void should_mark_writes_and_keep_following_reads_on_primary() throws Exception {
+        MockHttpServletResponse write = new MockHttpServletResponse();
+        assertThat(replicaAllowedDuring(new MockHttpServletRequest("POST", "/api/proposals"), write)).isFalse();
+
+        Cookie cookie = write.getCookie(ReplicaRoutingFilter.RECENT_WRITE_COOKIE);
+        assertThat(cookie.getMaxAge()).isEqualTo(5);
+
+        MockHttpServletRequest read = new MockHttpServletRequest("GET", "/api/proposals");
+        read.setCookies(cookie);
+        assertThat(replicaAllowedDuring(read, new MockHttpServletResponse())).isFalse();
+        assertThat(ReplicaRoutingDataSource.isReplicaAllowed()).isFalse();
+    }
+
+    @Test
+    public void should_not_mark_preflight_requests_as_writes() throws Exception {
+        MockHttpServletResponse preflight = new MockHttpServletResponse();
+        assertThat(replicaAllowedDuring(new MockHttpServletRequest("OPTIONS", "/api/proposals"), preflight)).isFalse();
+
+        assertThat(preflight.getCookie(ReplicaRoutingFilter.RECENT_WRITE_COOKIE)).isNull();
+    }
+
+}
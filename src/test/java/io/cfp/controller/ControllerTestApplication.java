@@ -4,10 +4,15 @@ import io.cfp.SecurityConfiguration;
 import io.cfp.WebConfiguration;
 import io.cfp.config.exception.GlobalControllerExceptionHandler;
 import io.cfp.config.filter.AuthFilter;
+import io.cfp.mapper.CacheVersionMapper;
 import io.cfp.mapper.RoleMapper;
+import io.cfp.service.CacheInvalidationBus;
 import io.cfp.service.auth.AuthUtils;
+import io.cfp.service.auth.RoleCache;
 import io.cfp.service.user.SecurityUserService;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
@@ -29,11 +34,31 @@ class ControllerTestApplication {
         return mock(RoleMapper.class);
     }
 
+    @Bean
+    public CacheVersionMapper cacheVersionMapper() {
+        return mock(CacheVersionMapper.class);
+    }
+
+    @Bean
+    public CacheInvalidationBus cacheInvalidationBus() {
+        return mock(CacheInvalidationBus.class);
+    }
+
+    @Bean
+    public CacheManager cacheManager() {
+        return new ConcurrentMapCacheManager();
+    }
+
+    @Bean
+    public RoleCache roleCache() {
+        return mock(RoleCache.class);
+    }
+
     @Bean
     public AuthFilter authFilter() {
         AuthFilter authFilter = new AuthFilter();
         authFilter.setAuthUtils(authUtils());
-        authFilter.setRoleMapper(roleMapper());
+        authFilter.setRoleCache(roleCache());
         return authFilter;
     }
 
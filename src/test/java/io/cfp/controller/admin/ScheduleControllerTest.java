@@ -23,22 +23,28 @@ package io.cfp.controller.admin;
 import com.jayway.restassured.module.mockmvc.RestAssuredMockMvc;
 import com.jayway.restassured.module.mockmvc.response.MockMvcResponse;
 import io.cfp.controller.ScheduleController;
+import io.cfp.dto.FullCalendar;
 import io.cfp.mapper.ProposalMapper;
 import io.cfp.mapper.RoomMapper;
 import io.cfp.mapper.UserMapper;
 import io.cfp.model.Proposal;
+import io.cfp.model.ScheduleChange;
 import io.cfp.model.User;
 import io.cfp.model.queries.ProposalQuery;
 import io.cfp.repository.TalkRepo;
+import io.cfp.service.ScheduleService;
 import io.cfp.service.TalkUserService;
 import io.cfp.service.email.EmailingService;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -46,7 +52,10 @@ import java.util.Set;
 import static com.jayway.restassured.module.mockmvc.RestAssuredMockMvc.given;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -59,6 +68,9 @@ public class ScheduleControllerTest {
     @Mock
     private TalkUserService talkUserService;
 
+    @Captor
+    private ArgumentCaptor<List<ScheduleChange>> changes;
+
     @Mock
     private EmailingService emailingService;
 
@@ -74,11 +86,14 @@ public class ScheduleControllerTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private ScheduleService scheduleService;
+
     private ScheduleController scheduleController;
 
     @Before
     public void setup() {
-        scheduleController = new ScheduleController(talkUserService, proposalMapper, talks, roomMapper, userMapper, emailingService);
+        scheduleController = new ScheduleController(talkUserService, proposalMapper, talks, roomMapper, userMapper, emailingService, scheduleService);
         RestAssuredMockMvc.standaloneSetup(scheduleController);
     }
 
@@ -143,4 +158,26 @@ public class ScheduleControllerTest {
                 .body("[1].speakers", containsString("Alain Connu")).body("[2].speakers", equalTo("John Doe"));
     }
 
+    @Test
+    public void should_save_the_whole_calendar_at_once() {
+        FullCalendar.Event first = new FullCalendar.Event();
+        first.setId("1");
+        first.setStart("2017-03-22T10:00:00+01:00");
+        first.setResourceId("2");
+        FullCalendar.Event second = new FullCalendar.Event();
+        second.setId("3");
+        second.setStart("2017-03-22T11:00:00+01:00");
+        second.setResourceId("4");
+        FullCalendar calendar = new FullCalendar();
+        calendar.setEvents(Arrays.asList(first, second));
+
+        scheduleController.getFullCalendar(calendar, "EVENT");
+
+        verify(scheduleService).save(eq("EVENT"), changes.capture());
+        List<ScheduleChange> saved = changes.getValue();
+        assertThat(saved).extracting(ScheduleChange::getProposalId).containsExactly(1, 3);
+        assertThat(saved.get(0).getScheduleHour()).isEqualTo("10:00");
+        assertThat(saved.get(1).getRoomId()).isEqualTo(4);
+    }
+
 }
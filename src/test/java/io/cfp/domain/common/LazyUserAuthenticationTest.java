@@ -0,0 +1,63 @@
+package io.cfp.domain.common;
+
+import io.cfp.model.Role;
+import io.cfp.model.User;
+import org.junit.Test;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LazyUserAuthenticationTest {
+
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    private LazyUserAuthentication authentication(User user, Authentication fallback) {
+        return new LazyUserAuthentication(() -> {
+            lookups.incrementAndGet();
+            return user;
+        }, fallback);
+    }
+
+    @Test
+    public void should_not_resolve_user_until_needed() {
+        LazyUserAuthentication authentication = authentication(new User().setEmail("EMAIL"), null);
+
+        assertThat(authentication.isResolved()).isFalse();
+        assertThat(lookups.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void should_resolve_user_once() {
+        User user = new User().setEmail("EMAIL").addRole(Role.ADMIN);
+        LazyUserAuthentication authentication = authentication(user, null);
+
+        assertThat(authentication.getPrincipal()).isSameAs(user);
+        assertThat(authentication.isAuthenticated()).isTrue();
+        assertThat(AuthorityUtils.authorityListToSet(authentication.getAuthorities())).contains(Role.ADMIN, Role.AUTHENTICATED);
+        assertThat(authentication.getName()).isEqualTo("EMAIL");
+
+        assertThat(lookups.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_fall_back_to_previous_authentication() {
+        Authentication guest = new AnonymousAuthenticationToken("key", "guest", AuthorityUtils.createAuthorityList("ROLE_GUEST"));
+        LazyUserAuthentication authentication = authentication(null, guest);
+
+        assertThat(authentication.getPrincipal()).isEqualTo("guest");
+        assertThat(AuthorityUtils.authorityListToSet(authentication.getAuthorities())).containsExactly("ROLE_GUEST");
+    }
+
+    @Test
+    public void should_be_anonymous_without_user_nor_previous_authentication() {
+        LazyUserAuthentication authentication = authentication(null, null);
+
+        assertThat(authentication.getPrincipal()).isEqualTo("anonymousUser");
+        assertThat(AuthorityUtils.authorityListToSet(authentication.getAuthorities())).containsExactly("ROLE_ANONYMOUS");
+    }
+
+}
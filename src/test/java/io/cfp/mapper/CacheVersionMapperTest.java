@@ -0,0 +1,52 @@
+package io.cfp.mapper;
+
+import io.cfp.model.CacheVersion;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@RunWith(SpringRunner.class)
+@MybatisTest
+public class CacheVersionMapperTest {
+
+    @Autowired
+    private CacheVersionMapper cacheVersionMapper;
+
+    @Test
+    public void should_create_version_on_first_increment() {
+        assertThat(cacheVersionMapper.findAll()).isEmpty();
+
+        cacheVersionMapper.increment("roles", "EVENT_ID");
+
+        assertThat(cacheVersionMapper.findAll())
+            .extracting(CacheVersion::getName, CacheVersion::getScope, CacheVersion::getVersion)
+            .containsExactly(tuple("roles", "EVENT_ID", 1L));
+    }
+
+    @Test
+    public void should_increment_version_of_scope_only() {
+        cacheVersionMapper.increment("roles", "EVENT_ID");
+        cacheVersionMapper.increment("roles", "OTHER");
+        cacheVersionMapper.increment("roles", "EVENT_ID");
+
+        assertThat(cacheVersionMapper.findAll())
+            .extracting(CacheVersion::getScope, CacheVersion::getVersion)
+            .containsOnly(tuple("EVENT_ID", 2L), tuple("OTHER", 1L));
+    }
+
+    @Test
+    public void should_find_version_of_scope() {
+        assertThat(cacheVersionMapper.findVersion("roles", "EVENT_ID")).isNull();
+
+        cacheVersionMapper.increment("roles", "EVENT_ID");
+        cacheVersionMapper.increment("roles", "EVENT_ID");
+
+        assertThat(cacheVersionMapper.findVersion("roles", "EVENT_ID")).isEqualTo(2L);
+    }
+
+}
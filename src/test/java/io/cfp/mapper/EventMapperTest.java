@@ -32,6 +32,11 @@ public class EventMapperTest {
         assertThat(openEvents).isNotEmpty();
     }
 
+    @Test
+    public void should_find_all_event_ids() {
+        assertThat(eventMapper.findIds()).contains("demo");
+    }
+
     @Test
     public void should_find_all_passed_Event() {
         List<Event> openEvents = eventMapper.findOpen();
@@ -0,0 +1,181 @@
+package io.cfp.mapper;
+
+import io.cfp.model.OutboundMail;
+import io.cfp.model.Stat;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@MybatisTest
+public class MailOutboxMapperTest {
+
+    private static final String EVENT_ID = "EVENT_ID";
+    private static final String JOB_ID = "job";
+    private static final String TOKEN = "token";
+
+    @Autowired
+    private MailOutboxMapper mailOutboxMapper;
+
+    private OutboundMail enqueue(Date nextAttempt) {
+        OutboundMail mail = new OutboundMail()
+            .setJobId(JOB_ID)
+            .setEventId(EVENT_ID)
+            .setReplyTo("contact@cfp.io")
+            .setRecipient("john@doe.net")
+            .setCc("jane@doe.net,jim@doe.net")
+            .setSubject("Selected")
+            .setContent("<p>Congratulations</p>")
+            .setStatus(OutboundMail.Status.PENDING)
+            .setNextAttempt(nextAttempt)
+            .setCreated(new Date());
+        mailOutboxMapper.insert(mail);
+        return mail;
+    }
+
+    private OutboundMail reserve(Date created) {
+        OutboundMail mail = new OutboundMail()
+            .setJobId(JOB_ID)
+            .setEventId(EVENT_ID)
+            .setRecipient("john@doe.net")
+            .setSubject("Selected")
+            .setContent("")
+            .setStatus(OutboundMail.Status.RENDERING)
+            .setNextAttempt(created)
+            .setCreated(created);
+        mailOutboxMapper.insert(mail);
+        return mail;
+    }
+
+    @Test
+    public void should_find_due_mails_only() {
+        Date now = new Date();
+        OutboundMail due = enqueue(new Date(now.getTime() - 1000));
+        enqueue(new Date(now.getTime() + 60_000));
+
+        List<OutboundMail> mails = mailOutboxMapper.findDue(now, 10);
+
+        assertThat(mails).extracting(OutboundMail::getId).containsExactly(due.getId());
+        assertThat(mails.get(0).getCcList()).containsExactly("jane@doe.net", "jim@doe.net");
+        assertThat(mails.get(0).getContent()).isEqualTo("<p>Congratulations</p>");
+    }
+
+    @Test
+    public void should_claim_a_mail_once() {
+        Date now = new Date();
+        OutboundMail mail = enqueue(now);
+
+        assertThat(mailOutboxMapper.claim(mail.getId(), TOKEN, now)).isEqualTo(1);
+        assertThat(mailOutboxMapper.claim(mail.getId(), TOKEN, now)).isEqualTo(0);
+        assertThat(mailOutboxMapper.findDue(now, 10)).isEmpty();
+    }
+
+    @Test
+    public void should_release_stale_claims() {
+        Date now = new Date();
+        OutboundMail mail = enqueue(now);
+        mailOutboxMapper.claim(mail.getId(), TOKEN, new Date(now.getTime() - 60_000));
+
+        assertThat(mailOutboxMapper.releaseStale(now)).isEqualTo(1);
+        assertThat(mailOutboxMapper.findOne(mail.getId()).getStatus()).isEqualTo(OutboundMail.Status.PENDING);
+    }
+
+    @Test
+    public void should_only_update_a_mail_under_its_current_claim() {
+        Date now = new Date();
+        OutboundMail mail = enqueue(now);
+        mailOutboxMapper.claim(mail.getId(), TOKEN, new Date(now.getTime() - 60_000));
+        mailOutboxMapper.releaseStale(now);
+        mailOutboxMapper.claim(mail.getId(), "other", now);
+
+        assertThat(mailOutboxMapper.renewClaim(mail.getId(), TOKEN, now)).isEqualTo(0);
+        assertThat(mailOutboxMapper.markSent(mail.getId(), TOKEN, now)).isEqualTo(0);
+        assertThat(mailOutboxMapper.renewClaim(mail.getId(), "other", now)).isEqualTo(1);
+        assertThat(mailOutboxMapper.markSent(mail.getId(), "other", now)).isEqualTo(1);
+        assertThat(mailOutboxMapper.findOne(mail.getId()).getAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_reschedule_a_failed_mail() {
+        Date now = new Date();
+        OutboundMail mail = enqueue(now);
+        mailOutboxMapper.claim(mail.getId(), TOKEN, now);
+
+        mailOutboxMapper.reschedule(mail.getId(), TOKEN, 1, new Date(now.getTime() + 60_000), "503 Unavailable");
+
+        OutboundMail stored = mailOutboxMapper.findOne(mail.getId());
+        assertThat(stored.getStatus()).isEqualTo(OutboundMail.Status.PENDING);
+        assertThat(stored.getAttempts()).isEqualTo(1);
+        assertThat(stored.getLastError()).isEqualTo("503 Unavailable");
+        assertThat(mailOutboxMapper.findDue(now, 10)).isEmpty();
+    }
+
+    @Test
+    public void should_count_job_mails_by_status() {
+        Date now = new Date();
+        OutboundMail sent = enqueue(now);
+        OutboundMail failed = enqueue(now);
+        enqueue(now);
+        mailOutboxMapper.claim(sent.getId(), TOKEN, now);
+        mailOutboxMapper.claim(failed.getId(), TOKEN, now);
+        mailOutboxMapper.markSent(sent.getId(), TOKEN, now);
+        mailOutboxMapper.markFailed(failed.getId(), TOKEN, 6, "550 Unknown user");
+
+        List<Stat> counts = mailOutboxMapper.countByStatus(JOB_ID, EVENT_ID);
+
+        assertThat(counts).extracting(Stat::getName).containsOnly("PENDING", "SENT", "FAILED");
+        assertThat(counts).extracting(Stat::getCount).containsOnly(1L);
+        assertThat(mailOutboxMapper.countByStatus(JOB_ID, "OTHER_EVENT")).isEmpty();
+    }
+
+    @Test
+    public void should_deliver_mails_once_rendered() {
+        Date now = new Date();
+        OutboundMail mail = reserve(now);
+        assertThat(mailOutboxMapper.findDue(now, 10)).extracting(OutboundMail::getId).doesNotContain(mail.getId());
+
+        assertThat(mailOutboxMapper.rendered(mail.getId(), "contact@cfp.io", "<p>Rendered</p>", now)).isEqualTo(1);
+
+        assertThat(mailOutboxMapper.findDue(now, 10)).extracting(OutboundMail::getId).contains(mail.getId());
+        assertThat(mailOutboxMapper.findOne(mail.getId()).getContent()).isEqualTo("<p>Rendered</p>");
+        assertThat(mailOutboxMapper.rendered(mail.getId(), "contact@cfp.io", "<p>Again</p>", now)).isZero();
+    }
+
+    @Test
+    public void should_fail_mails_whose_rendering_was_lost() {
+        Date now = new Date();
+        OutboundMail lost = reserve(new Date(now.getTime() - 60_000));
+        OutboundMail recent = reserve(now);
+
+        assertThat(mailOutboxMapper.failRendering(null, new Date(now.getTime() - 1000), "Rendering was interrupted")).isEqualTo(1);
+
+        assertThat(mailOutboxMapper.findOne(lost.getId()).getStatus()).isEqualTo(OutboundMail.Status.FAILED);
+        assertThat(mailOutboxMapper.findOne(recent.getId()).getStatus()).isEqualTo(OutboundMail.Status.RENDERING);
+    }
+
+    @Test
+    public void should_update_pending_digest_until_claimed() {
+        Date now = new Date();
+        OutboundMail digest = enqueue(now);
+        digest.setDigestKey("comment:1:2:admins").setDigestItems("1").setContent("first");
+        mailOutboxMapper.insert(digest);
+
+        OutboundMail pending = mailOutboxMapper.findPendingDigest("comment:1:2:admins");
+        assertThat(pending.getId()).isEqualTo(digest.getId());
+        assertThat(pending.getDigestItemList()).containsExactly(1);
+
+        assertThat(mailOutboxMapper.updateDigest(pending.setContent("first, second").setDigestItems("1,2"))).isEqualTo(1);
+        assertThat(mailOutboxMapper.findOne(digest.getId()).getContent()).isEqualTo("first, second");
+
+        mailOutboxMapper.claim(digest.getId(), TOKEN, now);
+        assertThat(mailOutboxMapper.findPendingDigest("comment:1:2:admins")).isNull();
+        assertThat(mailOutboxMapper.updateDigest(pending.setContent("too late"))).isZero();
+    }
+}
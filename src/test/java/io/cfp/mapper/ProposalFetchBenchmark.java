@@ -0,0 +1,164 @@
+package io.cfp.mapper;
+
+import io.cfp.model.Proposal;
+import io.cfp.model.queries.ProposalQuery;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares loading proposals with their cospeakers joined vs in two phases, on 2,000 proposals having up to 3
+ * cospeakers each. Not part of the test suite, run with <code>mvn test -Dtest=ProposalFetchBenchmark</code>.
+ */
+@RunWith(SpringRunner.class)
+@MybatisTest
+public class ProposalFetchBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProposalFetchBenchmark.class);
+
+    private static final String EVENT_ID = "BENCHMARK";
+    private static final int PROPOSALS = 2000;
+    private static final int USERS = 100;
+    private static final int ITERATIONS = 20;
+
+    @Autowired
+    private ProposalMapper proposalMapper;
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    private SqlSessionTemplate sqlSession;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbc;
+
+    @Before
+    public void setUp() {
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("INSERT INTO events (id, short_description) VALUES (?, ?)", EVENT_ID, "benchmark");
+
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(new Object[]{ 1000 + i, "speaker" + i + "@benchmark", StringUtils.repeat("bio ", 150) });
+        }
+        jdbc.batchUpdate("INSERT INTO users (id, email, bio) VALUES (?, ?, ?)", users);
+
+        List<Object[]> proposals = new ArrayList<>();
+        List<Object[]> cospeakers = new ArrayList<>();
+        for (int i = 0; i < PROPOSALS; i++) {
+            int id = 10000 + i;
+            proposals.add(new Object[]{ id, "DRAFT", "Proposal " + i, StringUtils.repeat("description ", 200), 1000 + i % USERS, EVENT_ID });
+            for (int c = 1; c <= i % 4; c++) {
+                cospeakers.add(new Object[]{ 1000 + (i + c) % USERS, id });
+            }
+        }
+        jdbc.batchUpdate("INSERT INTO proposals (id, state, name, description, user, event_id, added) VALUES (?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)", proposals);
+        jdbc.batchUpdate("INSERT INTO cospeakers (user_id, proposal_id) VALUES (?, ?)", cospeakers);
+    }
+
+    @Test
+    public void compare_joined_and_batched_cospeakers() throws SQLException {
+        Supplier<ProposalQuery> query = () -> new ProposalQuery().setEventId(EVENT_ID).addSort("added").setOrder("asc");
+
+        List<Proposal> joined = proposalMapper.findAll(query.get());
+        List<Proposal> batched = proposalMapper.findAllInTwoPhases(query.get());
+        assertThat(batched).hasSameSizeAs(joined);
+        for (int i = 0; i < joined.size(); i++) {
+            assertThat(batched.get(i).getCospeakers()).isEqualTo(joined.get(i).getCospeakers());
+        }
+
+        Transfer join = transfer("findAll", query.get());
+        Transfer proposalsOnly = transfer("findAll", query.get().setJoinCospeakers(false));
+        List<Integer> ids = batched.stream().map(Proposal::getId).collect(Collectors.toList());
+        Transfer cospeakers = transfer("findCospeakers", Collections.singletonMap("proposalIds", ids));
+
+        LOGGER.info("join      : {} rows, {} bytes, {} ms", join.rows, join.bytes, time(() -> proposalMapper.findAll(query.get())));
+        LOGGER.info("two phases: {} rows, {} bytes, {} ms", proposalsOnly.rows + cospeakers.rows,
+            proposalsOnly.bytes + cospeakers.bytes, time(() -> proposalMapper.findAllInTwoPhases(query.get())));
+
+        Supplier<ProposalQuery> page = () -> query.get().page(50, null);
+        LOGGER.info("page of 50, join      : {} ms", time(() -> proposalMapper.findAll(page.get())));
+        LOGGER.info("page of 50, two phases: {} ms", time(() -> proposalMapper.findAllInTwoPhases(page.get())));
+    }
+
+    /**
+     * Average time to load and map proposals, in ms
+     */
+    private double time(Supplier<List<Proposal>> load) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            sqlSession.clearCache();
+            load.get();
+        }
+        long elapsed = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            // don't let the session cache answer
+            sqlSession.clearCache();
+            long start = System.nanoTime();
+            load.get();
+            elapsed += System.nanoTime() - start;
+        }
+        return elapsed / 1_000_000.0 / ITERATIONS;
+    }
+
+    /**
+     * Run the SQL of a ProposalMapper statement with plain JDBC, to count what the database sends back
+     */
+    private Transfer transfer(String statement, Object parameter) throws SQLException {
+        MappedStatement mappedStatement = sqlSessionFactory.getConfiguration().getMappedStatement(ProposalMapper.class.getName() + "." + statement);
+        BoundSql sql = mappedStatement.getBoundSql(parameter);
+
+        Transfer transfer = new Transfer();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement ps = connection.prepareStatement(sql.getSql())) {
+            new DefaultParameterHandler(mappedStatement, parameter, sql).setParameters(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                int columns = rs.getMetaData().getColumnCount();
+                while (rs.next()) {
+                    transfer.rows++;
+                    for (int i = 1; i <= columns; i++) {
+                        String value = rs.getString(i);
+                        transfer.bytes += value != null ? value.getBytes(StandardCharsets.UTF_8).length : 0;
+                    }
+                }
+            }
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+        return transfer;
+    }
+
+    private static class Transfer {
+        long rows;
+        long bytes;
+    }
+}
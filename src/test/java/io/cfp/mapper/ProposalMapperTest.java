@@ -1,6 +1,8 @@
 package io.cfp.mapper;
 
 import io.cfp.model.Proposal;
+import io.cfp.model.StateCount;
+import io.cfp.model.User;
 import io.cfp.model.queries.ProposalQuery;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -8,9 +10,12 @@ import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 @RunWith(SpringRunner.class)
 @MybatisTest
@@ -41,6 +46,103 @@ public class ProposalMapperTest {
         assertThat(allProposals).hasSize(2);
     }
 
+    @Test
+    public void should_find_proposals_page_by_page() {
+        ProposalQuery query = new ProposalQuery().setEventId(EVENT_ID).addSort("added").setOrder("asc").page(1, null);
+        List<Proposal> firstPage = proposalMapper.findAll(query);
+        assertThat(firstPage).extracting(Proposal::getId).containsExactly(20);
+        assertThat(firstPage.get(0).getCospeakers()).hasSize(1);
+
+        query = new ProposalQuery().setEventId(EVENT_ID).addSort("added").setOrder("asc").page(1, query.nextCursor(firstPage));
+        List<Proposal> secondPage = proposalMapper.findAll(query);
+        assertThat(secondPage).extracting(Proposal::getId).containsExactly(21);
+
+        query = new ProposalQuery().setEventId(EVENT_ID).addSort("added").setOrder("asc").page(1, query.nextCursor(secondPage));
+        assertThat(proposalMapper.findAll(query)).isEmpty();
+    }
+
+    @Test
+    public void should_find_proposals_page_by_page_sorted_by_mean() {
+        ProposalQuery query = new ProposalQuery().setEventId(EVENT_ID).addSort("mean").setOrder("desc").page(1, null);
+        List<Proposal> firstPage = proposalMapper.findAll(query);
+        assertThat(firstPage).extracting(Proposal::getId).containsExactly(20);
+
+        // unrated proposals come last
+        query = new ProposalQuery().setEventId(EVENT_ID).addSort("mean").setOrder("desc").page(1, query.nextCursor(firstPage));
+        List<Proposal> secondPage = proposalMapper.findAll(query);
+        assertThat(secondPage).extracting(Proposal::getId).containsExactly(21);
+
+        query = new ProposalQuery().setEventId(EVENT_ID).addSort("mean").setOrder("desc").page(1, query.nextCursor(secondPage));
+        assertThat(proposalMapper.findAll(query)).isEmpty();
+    }
+
+    @Test
+    public void should_sort_proposals_by_vote_count() {
+        ProposalQuery query = new ProposalQuery().setEventId(EVENT_ID).addSort("votes").setOrder("desc");
+        List<Proposal> proposals = proposalMapper.findAll(query);
+        assertThat(proposals).extracting(Proposal::getId).containsExactly(20, 21);
+    }
+
+    @Test
+    public void should_find_proposal_ids_except_excluded_ones() {
+        ProposalQuery query = new ProposalQuery().setEventId(EVENT_ID).addSort("added").setOrder("asc");
+        assertThat(proposalMapper.findIds(query)).containsExactly(20, 21);
+
+        query.setExcludedIds(Collections.singletonList(20));
+        assertThat(proposalMapper.findIds(query)).containsExactly(21);
+    }
+
+    @Test
+    public void should_find_schedules_of_event_proposals() {
+        List<Proposal> schedules = proposalMapper.findSchedules(Arrays.asList(PROPOSAL_ID, 999), EVENT_ID);
+
+        assertThat(schedules).hasSize(1);
+        assertThat(schedules.get(0).getState()).isEqualTo(Proposal.State.ACCEPTED);
+        assertThat(schedules.get(0).getScheduleHour()).isEqualTo("12H00");
+        assertThat(schedules.get(0).getRoomId()).isEqualTo(ROOM_ID);
+        assertThat(proposalMapper.findSchedules(Collections.singletonList(PROPOSAL_ID), "OTHER_EVENT")).isEmpty();
+    }
+
+    @Test
+    public void should_find_proposals_with_cospeakers_in_two_phases() {
+        ProposalQuery query = new ProposalQuery().setEventId(EVENT_ID).addSort("added").setOrder("asc");
+        List<Proposal> proposals = proposalMapper.findAllInTwoPhases(query);
+        assertThat(query.isJoinCospeakers()).isTrue();
+        assertThat(proposals).extracting(Proposal::getId).containsExactly(20, 21);
+        assertThat(proposals.get(0).getCospeakers()).extracting(User::getEmail).containsExactly("COSPEAKERS_EMAIL");
+        assertThat(proposals.get(1).getCospeakers()).isEmpty();
+    }
+
+    @Test
+    public void should_update_state_from_expected_states() {
+        assertThat(proposalMapper.updateStateFrom(PROPOSAL_ID, EVENT_ID, Proposal.State.REFUSED, Proposal.Transition.REJECT.getFrom())).isEqualTo(1);
+
+        assertThat(proposalMapper.findById(PROPOSAL_ID, EVENT_ID).getState()).isEqualTo(Proposal.State.REFUSED);
+    }
+
+    @Test
+    public void should_not_update_state_from_unexpected_state() {
+        // proposal is ACCEPTED, not DRAFT
+        assertThat(proposalMapper.updateStateFrom(PROPOSAL_ID, EVENT_ID, Proposal.State.CONFIRMED, Proposal.Transition.CONFIRM.getFrom())).isZero();
+        assertThat(proposalMapper.updateStateFrom(PROPOSAL_ID, "OTHER_EVENT", Proposal.State.REFUSED, Proposal.Transition.REJECT.getFrom())).isZero();
+
+        assertThat(proposalMapper.findById(PROPOSAL_ID, EVENT_ID).getState()).isEqualTo(Proposal.State.ACCEPTED);
+        assertThat(proposalMapper.findById(PROPOSAL_ID, "OTHER_EVENT")).isNull();
+    }
+
+    @Test
+    public void should_update_state_of_many_proposals() {
+        // 20 is ACCEPTED, 21 CONFIRMED
+        assertThat(proposalMapper.lockStates(Arrays.asList(20, 21, 99), EVENT_ID))
+            .extracting(Proposal::getId, Proposal::getState, p -> p.getSpeaker().getId())
+            .containsOnly(tuple(20, Proposal.State.ACCEPTED, USER_ID), tuple(21, Proposal.State.CONFIRMED, USER_ID));
+
+        proposalMapper.updateAllStateFrom(Arrays.asList(20, 21), EVENT_ID, Proposal.State.BACKUP, Collections.singleton(Proposal.State.CONFIRMED));
+
+        assertThat(proposalMapper.findById(20, EVENT_ID).getState()).isEqualTo(Proposal.State.ACCEPTED);
+        assertThat(proposalMapper.findById(21, EVENT_ID).getState()).isEqualTo(Proposal.State.BACKUP);
+    }
+
     @Test
     public void should_count_all_proposals() {
         Integer numberOfProposals = proposalMapper.count(new ProposalQuery());
@@ -77,6 +179,38 @@ public class ProposalMapperTest {
         assertThat(numberOfProposals).isEqualTo(2);
     }
 
+    @Test
+    public void should_count_proposals_of_event_per_state() {
+        assertThat(proposalMapper.countByState(EVENT_ID, null))
+            .extracting(StateCount::getState, StateCount::getTotal)
+            .containsOnly(tuple(Proposal.State.ACCEPTED, 1), tuple(Proposal.State.CONFIRMED, 1));
+        assertThat(proposalMapper.countByState(EVENT_ID, 999)).isEmpty();
+    }
+
+    @Test
+    public void should_adjust_proposal_counts() {
+        proposalMapper.adjustCount(EVENT_ID, USER_ID, Proposal.State.CONFIRMED, -1);
+        proposalMapper.adjustCount(EVENT_ID, USER_ID, Proposal.State.ACCEPTED, 1);
+        proposalMapper.adjustCount(EVENT_ID, USER_ID, Proposal.State.REFUSED, 1);
+
+        assertThat(proposalMapper.countByState(EVENT_ID, USER_ID))
+            .extracting(StateCount::getState, StateCount::getTotal)
+            .containsOnly(tuple(Proposal.State.ACCEPTED, 2), tuple(Proposal.State.CONFIRMED, 0), tuple(Proposal.State.REFUSED, 1));
+    }
+
+    @Test
+    public void should_count_again_proposals_of_event() {
+        proposalMapper.updateAllStateWhere(EVENT_ID, Proposal.State.REFUSED, Proposal.State.CONFIRMED);
+
+        proposalMapper.deleteCounts(EVENT_ID);
+        assertThat(proposalMapper.countByState(EVENT_ID, null)).isEmpty();
+
+        proposalMapper.insertCounts(EVENT_ID);
+        assertThat(proposalMapper.countByState(EVENT_ID, null))
+            .extracting(StateCount::getState, StateCount::getTotal)
+            .containsOnly(tuple(Proposal.State.ACCEPTED, 1), tuple(Proposal.State.REFUSED, 1));
+    }
+
     @Test
     public void should_find_a_proposal_by_id() {
         Proposal foundProposal = proposalMapper.findById(PROPOSAL_ID, EVENT_ID);
@@ -101,6 +235,10 @@ public class ProposalMapperTest {
         assertThat(foundProposal.getSpeaker().getEmail()).isEqualTo("EMAIL");
         assertThat(foundProposal.getVideo()).isEqualTo("PROPOSAL_VIDEO");
         assertThat(foundProposal.getSlides()).isEqualTo("PROPOSAL_SLIDES");
+        assertThat(foundProposal.getRating()).isNotNull();
+        assertThat(foundProposal.getRating().getVoteCount()).isEqualTo(1);
+        assertThat(foundProposal.getRating().getMean()).isEqualTo("2.0");
+        assertThat(foundProposal.getRating().getVoterUserIds()).containsExactly(USER_ID);
     }
 
     @Test
@@ -1,8 +1,11 @@
 package io.cfp.mapper;
 
+import io.cfp.model.Proposal;
 import io.cfp.model.Rate;
+import io.cfp.model.RateSummary;
 import io.cfp.model.Stat;
 import io.cfp.model.User;
+import io.cfp.model.queries.RateQuery;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
@@ -21,6 +24,8 @@ public class RateMapperTest {
     private static final int RATE_ID = 71;
     private static final String EVENT_ID = "EVENT_ID";
     private static final int USER_ID = 10;
+    private static final int PROPOSAL_ID = 20;
+    private static final int OTHER_USER_ID = 12;
 
     @Autowired
     private RateMapper rateMapper;
@@ -51,5 +56,75 @@ public class RateMapperTest {
         assertThat(updatedLines).isEqualTo(1);
     }
 
+    @Test
+    public void should_find_rate_summary() {
+        RateSummary summary = rateMapper.findSummary(PROPOSAL_ID);
+
+        assertThat(summary).isNotNull();
+        assertThat(summary.getRateCount()).isEqualTo(1);
+        assertThat(summary.getRateTotal()).isEqualTo(2);
+        assertThat(summary.getVoterIds()).isEqualTo("10");
+    }
+
+    @Test
+    public void should_update_rate_summary() {
+        RateSummary summary = new RateSummary()
+            .setProposalId(PROPOSAL_ID)
+            .setRateCount(2)
+            .setVoteCount(2)
+            .setRateTotal(7)
+            .setVoterIds("10,12");
+
+        int updatedLines = rateMapper.updateSummary(summary);
+
+        assertThat(updatedLines).isEqualTo(1);
+        assertThat(rateMapper.findSummary(PROPOSAL_ID).getRateTotal()).isEqualTo(7);
+    }
+
+    @Test
+    public void should_delete_rate_summaries_for_event() {
+        int deletedLines = rateMapper.deleteSummariesForEvent(EVENT_ID);
+
+        assertThat(deletedLines).isEqualTo(1);
+        assertThat(rateMapper.findSummary(PROPOSAL_ID)).isNull();
+    }
+
+    @Test
+    public void should_overwrite_existing_rate_on_upsert() {
+        Rate rate = new Rate()
+            .setRate(4)
+            .setAdded(new Date())
+            .setTalk(new Proposal().setId(PROPOSAL_ID))
+            .setUser(new User().setId(USER_ID))
+            .setEventId(EVENT_ID);
+
+        rateMapper.upsert(rate);
+
+        Rate stored = rateMapper.findMyRate(PROPOSAL_ID, USER_ID, EVENT_ID);
+        assertThat(stored.getId()).isEqualTo(RATE_ID);
+        assertThat(stored.getRate()).isEqualTo(4);
+    }
+
+    @Test
+    public void should_insert_new_rate_on_upsert() {
+        Rate rate = new Rate()
+            .setRate(3)
+            .setAdded(new Date())
+            .setTalk(new Proposal().setId(PROPOSAL_ID))
+            .setUser(new User().setId(OTHER_USER_ID))
+            .setEventId(EVENT_ID);
+
+        rateMapper.upsert(rate);
+
+        assertThat(rateMapper.findMyRate(PROPOSAL_ID, OTHER_USER_ID, EVENT_ID).getRate()).isEqualTo(3);
+        assertThat(rateMapper.findAll(new RateQuery().setEventId(EVENT_ID).setProposalId(PROPOSAL_ID))).hasSize(2);
+    }
+
+    @Test
+    public void should_lock_proposal_of_event_only() {
+        assertThat(rateMapper.lockProposal(PROPOSAL_ID, EVENT_ID)).isEqualTo(PROPOSAL_ID);
+        assertThat(rateMapper.lockProposal(PROPOSAL_ID, "OTHER_EVENT")).isNull();
+    }
+
 
 }
@@ -13,6 +13,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 @RunWith(SpringRunner.class)
 @MybatisTest
@@ -70,6 +71,12 @@ public class UserMapperTest {
         assertThat(foundEmails).isNotEmpty();
     }
 
+    @Test
+    public void should_find_emails_of_users() {
+        List<User> users = userMapper.findEmails(Arrays.asList(USER_ID, 999));
+        assertThat(users).extracting(User::getId, User::getEmail).containsExactly(tuple(USER_ID, "EMAIL"));
+    }
+
     @Test
     public void should_create_a_user() {
         User user = new User();
@@ -108,5 +115,24 @@ public class UserMapperTest {
         assertThat(deletedLines).isEqualTo(1);
     }
 
+    @Test
+    public void should_provision_a_new_user() {
+        User user = new User().setEmail("new@cfp.io");
+
+        assertThat(userMapper.provision(user)).isEqualTo(1);
+
+        assertThat(user.getId()).isPositive();
+        assertThat(userMapper.findByEmail("new@cfp.io").getId()).isEqualTo(user.getId());
+    }
+
+    @Test
+    public void should_not_provision_a_known_user_twice() {
+        User user = new User().setEmail("EMAIL");
+
+        assertThat(userMapper.provision(user)).isEqualTo(0);
+
+        assertThat(user.getId()).isEqualTo(USER_ID);
+        assertThat(userMapper.findByEmail("EMAIL").getFirstname()).isEqualTo("FIRSTNAME");
+    }
 
 }
@@ -0,0 +1,90 @@
+package io.cfp.multitenant;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.servlet.FilterChain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class TenantBulkheadFilterTest {
+
+    private TenantBulkheads bulkheads = new TenantBulkheads();
+
+    private TenantBulkheadFilter filter = new TenantBulkheadFilter();
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(bulkheads, "maxConcurrent", 1);
+        ReflectionTestUtils.setField(bulkheads, "heavyMaxConcurrent", 1);
+        ReflectionTestUtils.setField(bulkheads, "retryAfterSeconds", 5);
+        filter.setBulkheads(bulkheads);
+    }
+
+    private MockHttpServletRequest request(String tenant, String method, String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setAttribute("tenantId", tenant);
+        return request;
+    }
+
+    @Test
+    public void should_reject_request_once_tenant_budget_is_exhausted() throws Exception {
+        assertThat(bulkheads.tryAcquire("big", false)).isTrue();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(request("big", "GET", "/api/proposals"), response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("5");
+        verifyZeroInteractions(chain);
+        assertThat(bulkheads.metrics()).extracting("name", "value")
+            .contains(tuple("tenant.big.active", 1), tuple("tenant.big.saturation", 50), tuple("tenant.big.rejected", 1L));
+    }
+
+    @Test
+    public void should_not_starve_other_tenants() throws Exception {
+        assertThat(bulkheads.tryAcquire("big", false)).isTrue();
+        MockHttpServletRequest request = request("small", "GET", "/api/proposals");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        assertThat(bulkheads.tryAcquire("small", false)).isTrue();
+    }
+
+    @Test
+    public void should_queue_heavy_requests_separately() throws Exception {
+        assertThat(bulkheads.tryAcquire("big", true)).isTrue();
+        FilterChain chain = mock(FilterChain.class);
+
+        MockHttpServletResponse export = new MockHttpServletResponse();
+        filter.doFilter(request("big", "GET", "/api/admin/sessions/export/sessions.csv"), export, chain);
+        assertThat(export.getStatus()).isEqualTo(429);
+
+        MockHttpServletRequest request = request("big", "GET", "/api/proposals");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        verify(chain).doFilter(request, response);
+    }
+
+    @Test
+    public void should_classify_heavy_requests() {
+        assertThat(TenantBulkheadFilter.isHeavy(request("t", "GET", "/api/proposals/export/cards.pdf"))).isTrue();
+        assertThat(TenantBulkheadFilter.isHeavy(request("t", "POST", "/api/schedule/notification"))).isTrue();
+        assertThat(TenantBulkheadFilter.isHeavy(request("t", "POST", "/api/events/t/archive"))).isTrue();
+        assertThat(TenantBulkheadFilter.isHeavy(request("t", "GET", "/api/schedule/notification/job"))).isFalse();
+        assertThat(TenantBulkheadFilter.isHeavy(request("t", "GET", "/api/schedule"))).isFalse();
+    }
+
+}
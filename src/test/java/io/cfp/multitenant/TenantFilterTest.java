@@ -20,12 +20,22 @@
 
 package io.cfp.multitenant;
 
+import io.cfp.config.filter.CorsFilter;
 import io.cfp.multitenant.TenantFilter;
 import org.junit.Test;
 import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.Servlet;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
 
 /**
  * @author <a href="mailto:nicolas.deloof@gmail.com">Nicolas De Loof</a>
@@ -63,4 +73,53 @@ public class TenantFilterTest {
         assertEquals("test", filter.extractTenant(request));
     }
 
+    @Test
+    public void should_reject_unknown_tenant() throws Exception {
+        TenantRegistry registry = mock(TenantRegistry.class);
+        when(registry.exists("test")).thenReturn(false);
+        filter.setTenantRegistry(registry);
+        request.setServerName("test.cfp.io");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals(404, response.getStatus());
+        verifyZeroInteractions(chain);
+    }
+
+    @Test
+    public void should_let_browsers_read_unknown_tenant_rejection() throws Exception {
+        TenantRegistry registry = mock(TenantRegistry.class);
+        when(registry.exists("test")).thenReturn(false);
+        filter.setTenantRegistry(registry);
+        request.setMethod("GET");
+        request.setScheme("https");
+        request.setServerName("api.cfp.io");
+        request.setServerPort(443);
+        request.addHeader(HttpHeaders.ORIGIN, "https://test.cfp.io");
+        request.addHeader(HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS, "Authorization");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        new MockFilterChain(mock(Servlet.class), new CorsFilter(), filter).doFilter(request, response);
+
+        assertEquals(404, response.getStatus());
+        assertEquals("https://test.cfp.io", response.getHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN));
+    }
+
+    @Test
+    public void should_accept_known_tenant() throws Exception {
+        TenantRegistry registry = mock(TenantRegistry.class);
+        when(registry.exists("test")).thenReturn(true);
+        filter.setTenantRegistry(registry);
+        request.setServerName("test.cfp.io");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        assertEquals("test", request.getAttribute("tenantId"));
+    }
+
 }
@@ -0,0 +1,79 @@
+package io.cfp.multitenant;
+
+import io.cfp.mapper.EventMapper;
+import io.cfp.service.CacheInvalidationBus;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TenantRegistryTest {
+
+    @InjectMocks
+    private TenantRegistry registry;
+
+    @Mock
+    private CacheInvalidationBus bus;
+
+    @Mock
+    private EventMapper eventMapper;
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(registry, "unknownTtlSeconds", 60L);
+        ReflectionTestUtils.setField(registry, "unknownCacheSize", 100L);
+        when(eventMapper.findIds()).thenReturn(Arrays.asList("demo", "DevFest"));
+        registry.init();
+    }
+
+    @Test
+    public void should_know_loaded_events_without_query() {
+        assertThat(registry.exists("demo")).isTrue();
+        assertThat(registry.exists("devfest")).isTrue();
+
+        verify(eventMapper, never()).exists("demo");
+    }
+
+    @Test
+    public void should_query_unknown_event_once() {
+        for (int i = 0; i < 10; i++) {
+            assertThat(registry.exists("random")).isFalse();
+        }
+
+        verify(eventMapper, times(1)).exists("random");
+    }
+
+    @Test
+    public void should_find_event_created_on_another_node() {
+        when(eventMapper.exists("other")).thenReturn(true);
+
+        assertThat(registry.exists("other")).isTrue();
+        assertThat(registry.exists("other")).isTrue();
+
+        verify(eventMapper, times(1)).exists("other");
+    }
+
+    @Test
+    public void should_forget_unknown_events_on_refresh() {
+        registry.exists("new");
+        when(eventMapper.findIds()).thenReturn(Arrays.asList("demo", "new"));
+
+        registry.refresh();
+
+        verify(bus).publish(TenantRegistry.NAME, null);
+        assertThat(registry.exists("new")).isTrue();
+    }
+
+}
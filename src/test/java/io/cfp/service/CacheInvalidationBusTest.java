@@ -0,0 +1,121 @@
+package io.cfp.service;
+
+import io.cfp.mapper.CacheVersionMapper;
+import io.cfp.model.CacheVersion;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CacheInvalidationBusTest {
+
+    @InjectMocks
+    private CacheInvalidationBus bus;
+
+    @Mock
+    private CacheVersionMapper cacheVersionMapper;
+
+    @Mock
+    private SqlSessionFactory sqlSessionFactory;
+
+    private final List<String> evicted = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        bus.register("roles", evicted::add);
+        when(cacheVersionMapper.findAll()).thenReturn(Arrays.asList(version("roles", "demo", 1), version("roles", "devfest", 1)));
+        // baseline, as on startup
+        bus.poll();
+    }
+
+    @Test
+    public void should_not_evict_on_first_poll() {
+        assertThat(evicted).isEmpty();
+    }
+
+    @Test
+    public void should_evict_changed_scopes_only() {
+        when(cacheVersionMapper.findAll()).thenReturn(Arrays.asList(version("roles", "demo", 2), version("roles", "devfest", 1)));
+
+        bus.poll();
+        bus.poll();
+
+        assertThat(evicted).containsExactly("demo");
+    }
+
+    @Test
+    public void should_evict_new_scopes() {
+        when(cacheVersionMapper.findAll()).thenReturn(Arrays.asList(version("roles", "demo", 1), version("roles", "devfest", 1), version("roles", "new", 1)));
+
+        bus.poll();
+
+        assertThat(evicted).containsExactly("new");
+    }
+
+    @Test
+    public void should_ignore_unregistered_regions() {
+        when(cacheVersionMapper.findAll()).thenReturn(Arrays.asList(version("roles", "demo", 1), version("roles", "devfest", 1), version("other", "demo", 1)));
+
+        bus.poll();
+
+        assertThat(evicted).isEmpty();
+    }
+
+    @Test
+    public void should_publish_with_empty_scope() {
+        bus.publish("tenants", null);
+
+        verify(cacheVersionMapper).increment("tenants", "");
+    }
+
+    @Test
+    public void should_skip_own_versions() {
+        when(cacheVersionMapper.findVersion("roles", "demo")).thenReturn(2L);
+        bus.publish("roles", "demo");
+        when(cacheVersionMapper.findAll()).thenReturn(Arrays.asList(version("roles", "demo", 2), version("roles", "devfest", 1)));
+
+        bus.poll();
+
+        assertThat(evicted).isEmpty();
+    }
+
+    @Test
+    public void should_evict_own_scope_changed_by_another_node() {
+        when(cacheVersionMapper.findVersion("roles", "demo")).thenReturn(3L);
+        bus.publish("roles", "demo");
+        when(cacheVersionMapper.findAll()).thenReturn(Arrays.asList(version("roles", "demo", 3), version("roles", "devfest", 1)));
+
+        bus.poll();
+
+        assertThat(evicted).containsExactly("demo");
+    }
+
+    @Test
+    public void should_evict_once_own_version_was_polled() {
+        when(cacheVersionMapper.findVersion("roles", "demo")).thenReturn(2L);
+        bus.publish("roles", "demo");
+        when(cacheVersionMapper.findAll()).thenReturn(Arrays.asList(version("roles", "demo", 2), version("roles", "devfest", 1)));
+        bus.poll();
+        when(cacheVersionMapper.findAll()).thenReturn(Arrays.asList(version("roles", "demo", 3), version("roles", "devfest", 1)));
+
+        bus.poll();
+
+        assertThat(evicted).containsExactly("demo");
+    }
+
+    private static CacheVersion version(String name, String scope, long version) {
+        return new CacheVersion().setName(name).setScope(scope).setVersion(version);
+    }
+}
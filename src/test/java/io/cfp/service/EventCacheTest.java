@@ -0,0 +1,89 @@
+package io.cfp.service;
+
+import io.cfp.config.ReplicaRoutingDataSource;
+import io.cfp.mapper.EventMapper;
+import io.cfp.model.Event;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EventCacheTest {
+
+    private static final String EVENT_ID = "EVENT_ID";
+
+    @InjectMocks
+    private EventCache eventCache;
+
+    @Mock
+    private CacheInvalidationBus bus;
+
+    @Mock
+    private EventMapper eventMapper;
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(eventCache, "cacheManager", new ConcurrentMapCacheManager(EventCache.NAME));
+        eventCache.init();
+        when(eventMapper.findOne(EVENT_ID)).thenReturn(new Event().setId(EVENT_ID).setOpen(true));
+    }
+
+    @Test
+    public void should_load_event_once() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(eventCache.get(EVENT_ID).isOpen()).isTrue();
+        }
+
+        verify(eventMapper, times(1)).findOne(EVENT_ID);
+    }
+
+    @Test
+    public void should_not_share_cached_instance() {
+        eventCache.get(EVENT_ID).setOpen(false);
+
+        assertThat(eventCache.get(EVENT_ID).isOpen()).isTrue();
+    }
+
+    @Test
+    public void should_reload_evicted_event() {
+        eventCache.get(EVENT_ID);
+        when(eventMapper.findOne(EVENT_ID)).thenReturn(new Event().setId(EVENT_ID).setOpen(false));
+
+        eventCache.evict(EVENT_ID);
+
+        assertThat(eventCache.get(EVENT_ID).isOpen()).isFalse();
+    }
+
+    @Test
+    public void should_remember_unknown_event_until_evicted() {
+        assertThat(eventCache.get("unknown")).isNull();
+        assertThat(eventCache.get("unknown")).isNull();
+
+        verify(eventMapper, times(1)).findOne("unknown");
+    }
+
+    @Test
+    public void should_load_from_primary_when_replica_is_allowed() {
+        when(eventMapper.findOne("routed")).thenAnswer(invocation ->
+            new Event().setId(ReplicaRoutingDataSource.isReplicaAllowed() ? "replica" : "primary"));
+
+        ReplicaRoutingDataSource.setReplicaAllowed(true);
+        try {
+            assertThat(eventCache.get("routed").getId()).isEqualTo("primary");
+            assertThat(ReplicaRoutingDataSource.isReplicaAllowed()).isTrue();
+        } finally {
+            ReplicaRoutingDataSource.reset();
+        }
+    }
+
+}
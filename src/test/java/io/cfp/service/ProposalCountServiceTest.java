@@ -0,0 +1,91 @@
+package io.cfp.service;
+
+import io.cfp.mapper.ProposalMapper;
+import io.cfp.model.Proposal;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mybatis.spring.annotation.MapperScan;
+import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Proposal counts against H2: every write keeps them equal to counting the proposals again
+ */
+@RunWith(SpringRunner.class)
+@MybatisTest
+public class ProposalCountServiceTest {
+
+    private static final String EVENT_ID = "EVENT_ID";
+    private static final int USER_ID = 10;
+
+    @Configuration
+    @MapperScan("io.cfp.mapper")
+    @Import({ProposalCountService.class, ProposalStateService.class})
+    static class Config {
+    }
+
+    @Autowired
+    private ProposalCountService proposalCounts;
+
+    @Autowired
+    private ProposalStateService proposalStates;
+
+    @Autowired
+    private ProposalMapper proposalMapper;
+
+    @Test
+    public void should_count_proposals_of_event_per_state() {
+        Map<Proposal.State, Integer> counts = proposalCounts.countStates(EVENT_ID, null);
+        assertThat(counts).containsEntry(Proposal.State.ACCEPTED, 1)
+                          .containsEntry(Proposal.State.CONFIRMED, 1)
+                          .containsEntry(Proposal.State.DRAFT, 0)
+                          .hasSize(Proposal.State.values().length);
+        assertThat(proposalCounts.countStates(EVENT_ID, 999)).containsEntry(Proposal.State.ACCEPTED, 0);
+    }
+
+    @Test
+    public void should_count_proposal_transitions() {
+        proposalStates.transition(21, EVENT_ID, Proposal.Transition.ACCEPT);
+
+        assertThat(proposalCounts.countStates(EVENT_ID, USER_ID)).containsEntry(Proposal.State.ACCEPTED, 2)
+                                                                .containsEntry(Proposal.State.CONFIRMED, 0);
+        assertCountedAgain();
+    }
+
+    @Test
+    public void should_count_bulk_transitions() {
+        proposalStates.transitionAll(Arrays.asList(20, 21), EVENT_ID, Proposal.Transition.REJECT);
+
+        assertThat(proposalCounts.countStates(EVENT_ID, null)).containsEntry(Proposal.State.REFUSED, 2)
+                                                             .containsEntry(Proposal.State.ACCEPTED, 0)
+                                                             .containsEntry(Proposal.State.CONFIRMED, 0);
+        assertCountedAgain();
+    }
+
+    @Test
+    public void should_count_added_and_removed_proposals() {
+        Proposal proposal = proposalMapper.findById(21, EVENT_ID).setState(Proposal.State.DRAFT);
+        proposalMapper.insert(proposal);
+        proposalCounts.add(EVENT_ID, USER_ID, Proposal.State.DRAFT);
+        proposalMapper.deleteForEvent(20, EVENT_ID);
+        proposalCounts.remove(EVENT_ID, USER_ID, Proposal.State.ACCEPTED);
+
+        assertThat(proposalCounts.countStates(EVENT_ID, null)).containsEntry(Proposal.State.DRAFT, 1)
+                                                             .containsEntry(Proposal.State.ACCEPTED, 0);
+        assertCountedAgain();
+    }
+
+    private void assertCountedAgain() {
+        Map<Proposal.State, Integer> counts = proposalCounts.countStates(EVENT_ID, null);
+        proposalCounts.recount(EVENT_ID);
+        assertThat(proposalCounts.countStates(EVENT_ID, null)).isEqualTo(counts);
+    }
+}
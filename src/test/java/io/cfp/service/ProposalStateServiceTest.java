@@ -0,0 +1,116 @@
+package io.cfp.service;
+
+import io.cfp.domain.exception.ConflictException;
+import io.cfp.domain.exception.NotFoundException;
+import io.cfp.mapper.ProposalMapper;
+import io.cfp.model.Proposal;
+import io.cfp.model.ProposalStateChange;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ProposalStateServiceTest {
+
+    private static final String EVENT_ID = "EVENT_ID";
+    private static final int PROPOSAL_ID = 20;
+
+    @InjectMocks
+    private ProposalStateService proposalStateService;
+
+    @Mock
+    private ProposalMapper proposalMapper;
+
+    @Mock
+    private ProposalCountService proposalCountService;
+
+    @Test
+    public void should_transition_proposal_state() {
+        when(proposalMapper.updateStateFrom(PROPOSAL_ID, EVENT_ID, Proposal.State.REFUSED, Collections.singleton(Proposal.State.ACCEPTED))).thenReturn(1);
+
+        assertThat(proposalStateService.transition(PROPOSAL_ID, EVENT_ID, Proposal.Transition.REJECT)).isTrue();
+
+        verify(proposalCountService).move(EVENT_ID, PROPOSAL_ID, Proposal.State.ACCEPTED, Proposal.State.REFUSED);
+        // the first allowed state, CONFIRMED, didn't match, the following ones aren't tried
+        verify(proposalMapper).updateStateFrom(PROPOSAL_ID, EVENT_ID, Proposal.State.REFUSED, Collections.singleton(Proposal.State.CONFIRMED));
+        verify(proposalMapper, never()).updateStateFrom(PROPOSAL_ID, EVENT_ID, Proposal.State.REFUSED, Collections.singleton(Proposal.State.BACKUP));
+        verify(proposalMapper, never()).findById(anyInt(), anyString());
+    }
+
+    @Test
+    public void should_do_nothing_when_proposal_is_already_in_target_state() {
+        current(Proposal.State.ACCEPTED);
+
+        assertThat(proposalStateService.transition(PROPOSAL_ID, EVENT_ID, Proposal.Transition.ACCEPT)).isFalse();
+
+        verify(proposalCountService, never()).move(anyString(), anyInt(), any(Proposal.State.class), any(Proposal.State.class));
+    }
+
+    @Test
+    public void should_not_accept_again_a_proposal_whose_speaker_is_present() {
+        current(Proposal.State.PRESENT);
+
+        assertThat(proposalStateService.transition(PROPOSAL_ID, EVENT_ID, Proposal.Transition.ACCEPT)).isFalse();
+    }
+
+    @Test(expected = ConflictException.class)
+    public void should_not_transition_from_unexpected_state() {
+        current(Proposal.State.ACCEPTED);
+
+        proposalStateService.transition(PROPOSAL_ID, EVENT_ID, Proposal.Transition.CONFIRM);
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void should_not_transition_proposal_of_another_event() {
+        proposalStateService.transition(PROPOSAL_ID, "OTHER_EVENT", Proposal.Transition.REJECT);
+    }
+
+    @Test
+    public void should_transition_many_proposals() {
+        when(proposalMapper.lockStates(Arrays.asList(20, 21, 22, 23, 99), EVENT_ID)).thenReturn(Arrays.asList(
+            new Proposal().setId(20).setState(Proposal.State.DRAFT),
+            new Proposal().setId(21).setState(Proposal.State.CONFIRMED),
+            new Proposal().setId(22).setState(Proposal.State.ACCEPTED),
+            new Proposal().setId(23).setState(Proposal.State.PRESENT)));
+
+        Map<Integer, ProposalStateChange.Outcome> outcomes =
+            proposalStateService.transitionAll(Arrays.asList(20, 21, 22, 23, 99), EVENT_ID, Proposal.Transition.ACCEPT);
+
+        assertThat(outcomes).containsEntry(20, ProposalStateChange.Outcome.CONFLICT)
+            .containsEntry(21, ProposalStateChange.Outcome.UPDATED)
+            .containsEntry(22, ProposalStateChange.Outcome.UNCHANGED)
+            .containsEntry(23, ProposalStateChange.Outcome.UNCHANGED)
+            .containsEntry(99, ProposalStateChange.Outcome.NOT_FOUND);
+        verify(proposalMapper).updateAllStateFrom(Collections.singletonList(21), EVENT_ID, Proposal.State.ACCEPTED, Proposal.Transition.ACCEPT.getFrom());
+    }
+
+    @Test
+    public void should_not_update_when_no_proposal_can_transition() {
+        when(proposalMapper.lockStates(Collections.singletonList(22), EVENT_ID))
+            .thenReturn(Collections.singletonList(new Proposal().setId(22).setState(Proposal.State.REFUSED)));
+
+        proposalStateService.transitionAll(Collections.singletonList(22), EVENT_ID, Proposal.Transition.REJECT);
+
+        verify(proposalMapper, never()).updateAllStateFrom(anyCollectionOf(Integer.class), anyString(), eq(Proposal.State.REFUSED), anyCollectionOf(Proposal.State.class));
+    }
+
+    private void current(Proposal.State state) {
+        when(proposalMapper.findById(PROPOSAL_ID, EVENT_ID)).thenReturn(new Proposal().setId(PROPOSAL_ID).setState(state));
+    }
+}
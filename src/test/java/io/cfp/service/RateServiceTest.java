@@ -0,0 +1,144 @@
+package io.cfp.service;
+
+import io.cfp.domain.exception.NotFoundException;
+import io.cfp.mapper.RateMapper;
+import io.cfp.mapper.UserMapper;
+import io.cfp.model.Proposal;
+import io.cfp.model.Rate;
+import io.cfp.model.RateSummary;
+import io.cfp.model.User;
+import io.cfp.model.queries.RateQuery;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RateServiceTest {
+
+    private static final String EVENT_ID = "EVENT_ID";
+    private static final int PROPOSAL_ID = 20;
+
+    @InjectMocks
+    private RateService rateService;
+
+    @Mock
+    private RateMapper rateMapper;
+
+    @Mock
+    private ReviewCoverageService reviewCoverage;
+
+    @Mock
+    private UserMapper userMapper;
+
+    @Test
+    public void should_refresh_summary_when_adding_a_rate() {
+        Rate rate = rate("EMAIL", 4);
+        rate.getUser().setId(10);
+        Rate other = rate("OTHER_EMAIL", 0);
+        other.getUser().setId(12);
+
+        when(rateMapper.lockProposal(PROPOSAL_ID, EVENT_ID)).thenReturn(PROPOSAL_ID);
+        when(rateMapper.findAll(any(RateQuery.class))).thenReturn(Arrays.asList(rate, other));
+        when(rateMapper.updateSummary(any(RateSummary.class))).thenReturn(0);
+
+        rateService.add(rate);
+
+        verify(rateMapper).insert(rate);
+        ArgumentCaptor<RateSummary> summary = ArgumentCaptor.forClass(RateSummary.class);
+        verify(rateMapper).insertSummary(summary.capture());
+        assertThat(summary.getValue().getProposalId()).isEqualTo(PROPOSAL_ID);
+        assertThat(summary.getValue().getRateCount()).isEqualTo(2);
+        assertThat(summary.getValue().getVoteCount()).isEqualTo(1);
+        assertThat(summary.getValue().getMean()).isEqualTo("4.0");
+        assertThat(summary.getValue().getVoterUserIds()).containsExactly(10, 12);
+        verify(reviewCoverage).refresh(EVENT_ID, PROPOSAL_ID, Arrays.asList(rate, other));
+    }
+
+    @Test
+    public void should_not_insert_summary_when_already_existing() {
+        Rate rate = rate("EMAIL", 3);
+
+        when(rateMapper.lockProposal(PROPOSAL_ID, EVENT_ID)).thenReturn(PROPOSAL_ID);
+        when(rateMapper.findAll(any(RateQuery.class))).thenReturn(Arrays.asList(rate));
+        when(rateMapper.updateSummary(any(RateSummary.class))).thenReturn(1);
+
+        rateService.update(rate);
+
+        verify(rateMapper).update(rate);
+        verify(rateMapper, never()).insertSummary(any(RateSummary.class));
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void should_not_rate_unknown_proposal() {
+        Rate rate = rate("EMAIL", 3);
+
+        when(rateMapper.lockProposal(PROPOSAL_ID, EVENT_ID)).thenReturn(null);
+
+        try {
+            rateService.add(rate);
+        } finally {
+            verify(rateMapper, never()).insert(any(Rate.class));
+        }
+    }
+
+    @Test
+    public void should_look_up_current_emails_of_voters() {
+        Proposal rated = new Proposal().setId(PROPOSAL_ID).setRating(new RateSummary().setVoterIds("10,12"));
+        Proposal unrated = new Proposal().setId(21);
+
+        when(userMapper.findEmails(new HashSet<>(Arrays.asList(10, 12))))
+            .thenReturn(Collections.singletonList(new User().setId(10).setEmail("NEW_EMAIL")));
+
+        Map<Integer, String> emails = rateService.voterEmails(Arrays.asList(rated, unrated));
+
+        assertThat(emails).containsOnly(entry(10, "NEW_EMAIL"));
+        // deleted reviewer 12 is left out
+        assertThat(rated.getRating().getVoterEmails(emails)).containsExactly("NEW_EMAIL");
+    }
+
+    @Test
+    public void should_return_stored_rate_when_saving() {
+        Rate rate = rate("EMAIL", 4);
+        rate.getUser().setId(10);
+        Rate stored = rate("EMAIL", 4).setId(71);
+        stored.getUser().setId(10);
+        Rate other = rate("OTHER_EMAIL", 2);
+        other.getUser().setId(12);
+
+        when(rateMapper.lockProposal(PROPOSAL_ID, EVENT_ID)).thenReturn(PROPOSAL_ID);
+        when(rateMapper.findAll(any(RateQuery.class))).thenReturn(Arrays.asList(other, stored));
+        when(rateMapper.updateSummary(any(RateSummary.class))).thenReturn(1);
+
+        Rate saved = rateService.save(rate);
+
+        verify(rateMapper).upsert(rate);
+        assertThat(saved.getId()).isEqualTo(71);
+        ArgumentCaptor<RateSummary> summary = ArgumentCaptor.forClass(RateSummary.class);
+        verify(rateMapper).updateSummary(summary.capture());
+        assertThat(summary.getValue().getRateCount()).isEqualTo(2);
+    }
+
+    private Rate rate(String email, int mark) {
+        Rate rate = new Rate();
+        rate.setRate(mark);
+        rate.setEventId(EVENT_ID);
+        rate.setUser(new User().setEmail(email));
+        rate.setTalk(new Proposal().setId(PROPOSAL_ID));
+        return rate;
+    }
+}
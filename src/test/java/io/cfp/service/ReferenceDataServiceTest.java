@@ -0,0 +1,81 @@
+package io.cfp.service;
+
+import io.cfp.mapper.FormatMapper;
+import io.cfp.mapper.RoomMapper;
+import io.cfp.mapper.ThemeMapper;
+import io.cfp.model.Format;
+import io.cfp.model.ReferenceData;
+import io.cfp.model.Room;
+import io.cfp.model.Theme;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReferenceDataServiceTest {
+
+    private static final String EVENT_ID = "EVENT_ID";
+
+    @InjectMocks
+    private ReferenceDataService referenceData;
+
+    @Mock
+    private CacheInvalidationBus bus;
+
+    @Mock
+    private FormatMapper formatMapper;
+
+    @Mock
+    private ThemeMapper themeMapper;
+
+    @Mock
+    private RoomMapper roomMapper;
+
+    @Before
+    public void setUp() {
+        when(formatMapper.findByEvent(EVENT_ID)).thenReturn(Arrays.asList(new Format().setId(11).setName("Conference")));
+        when(themeMapper.findByEvent(EVENT_ID)).thenReturn(Arrays.asList(new Theme().setId(13).setLibelle("Web")));
+        when(roomMapper.findByEvent(EVENT_ID)).thenReturn(Collections.singletonList(new Room().setId(12).setName("Amphi A")));
+    }
+
+    @Test
+    public void should_index_reference_data_by_id() {
+        ReferenceData reference = referenceData.get(EVENT_ID);
+
+        assertThat(reference.format(11).getName()).isEqualTo("Conference");
+        assertThat(reference.theme(13).getLibelle()).isEqualTo("Web");
+        assertThat(reference.room(12).getName()).isEqualTo("Amphi A");
+        assertThat(reference.room(99)).isNull();
+        assertThat(reference.format(null)).isNull();
+    }
+
+    @Test
+    public void should_load_each_event_once() {
+        referenceData.get(EVENT_ID);
+        referenceData.get(EVENT_ID);
+
+        verify(formatMapper, times(1)).findByEvent(EVENT_ID);
+        verify(roomMapper, times(1)).findByEvent(EVENT_ID);
+    }
+
+    @Test
+    public void should_reload_after_invalidation() {
+        ReferenceData before = referenceData.get(EVENT_ID);
+
+        referenceData.invalidate(EVENT_ID);
+
+        assertThat(referenceData.get(EVENT_ID)).isNotSameAs(before);
+        verify(themeMapper, times(2)).findByEvent(EVENT_ID);
+    }
+}
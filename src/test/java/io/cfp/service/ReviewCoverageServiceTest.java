@@ -0,0 +1,144 @@
+package io.cfp.service;
+
+import io.cfp.mapper.RateMapper;
+import io.cfp.model.Proposal;
+import io.cfp.model.Rate;
+import io.cfp.model.User;
+import io.cfp.model.queries.RateQuery;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReviewCoverageServiceTest {
+
+    private static final String EVENT_ID = "EVENT_ID";
+    private static final int REVIEWER = 10;
+    private static final int OTHER_REVIEWER = 11;
+
+    @InjectMocks
+    private ReviewCoverageService reviewCoverage;
+
+    @Mock
+    private RateMapper rateMapper;
+
+    @Mock
+    private CacheInvalidationBus bus;
+
+    @Before
+    public void setUp() {
+        when(rateMapper.findAll(any(RateQuery.class))).thenReturn(Arrays.asList(
+            rate(REVIEWER, 20),
+            rate(OTHER_REVIEWER, 21)));
+    }
+
+    @Test
+    public void should_know_who_rated_what() {
+        assertThat(reviewCoverage.hasRated(EVENT_ID, REVIEWER, 20)).isTrue();
+        assertThat(reviewCoverage.hasRated(EVENT_ID, REVIEWER, 21)).isFalse();
+        assertThat(reviewCoverage.ratedBy(EVENT_ID, OTHER_REVIEWER).get(21)).isTrue();
+        assertThat(reviewCoverage.ratedBy(EVENT_ID, 42).isEmpty()).isTrue();
+
+        verify(rateMapper, times(1)).findAll(any(RateQuery.class));
+    }
+
+    @Test
+    public void should_find_next_unrated_proposal() {
+        assertThat(reviewCoverage.nextUnrated(EVENT_ID, REVIEWER, Arrays.asList(20, 21, 22))).isEqualTo(21);
+        assertThat(reviewCoverage.nextUnrated(EVENT_ID, REVIEWER, Collections.singletonList(20))).isNull();
+    }
+
+    @Test
+    public void should_refresh_reviewers_of_a_proposal() {
+        reviewCoverage.hasRated(EVENT_ID, REVIEWER, 20);
+
+        reviewCoverage.refresh(EVENT_ID, 20, Collections.singletonList(rate(OTHER_REVIEWER, 20)));
+
+        assertThat(reviewCoverage.hasRated(EVENT_ID, REVIEWER, 20)).isFalse();
+        assertThat(reviewCoverage.hasRated(EVENT_ID, OTHER_REVIEWER, 20)).isTrue();
+        verify(bus).publish(ReviewCoverageService.PROPOSALS, "EVENT_ID:20");
+        verify(bus, never()).publish(ReviewCoverageService.NAME, EVENT_ID);
+        verify(rateMapper, times(1)).findAll(any(RateQuery.class));
+    }
+
+    @Test
+    public void should_reload_only_the_proposal_rated_on_another_node() {
+        reviewCoverage.init();
+        ArgumentCaptor<Consumer<String>> reload = consumerCaptor();
+        verify(bus).register(eq(ReviewCoverageService.PROPOSALS), reload.capture());
+        reviewCoverage.hasRated(EVENT_ID, REVIEWER, 20);
+        when(rateMapper.findAll(new RateQuery().setEventId(EVENT_ID).setProposalId(21)))
+            .thenReturn(Collections.singletonList(rate(REVIEWER, 21)));
+
+        reload.getValue().accept(ReviewCoverageService.scope(EVENT_ID, 21));
+
+        assertThat(reviewCoverage.hasRated(EVENT_ID, REVIEWER, 21)).isTrue();
+        assertThat(reviewCoverage.hasRated(EVENT_ID, OTHER_REVIEWER, 21)).isFalse();
+        assertThat(reviewCoverage.hasRated(EVENT_ID, REVIEWER, 20)).isTrue();
+    }
+
+    @Test
+    public void should_reload_invalidated_event() {
+        reviewCoverage.hasRated(EVENT_ID, REVIEWER, 20);
+
+        reviewCoverage.invalidate(EVENT_ID);
+        reviewCoverage.hasRated(EVENT_ID, REVIEWER, 20);
+
+        verify(rateMapper, times(2)).findAll(any(RateQuery.class));
+        verify(bus).publish(ReviewCoverageService.NAME, EVENT_ID);
+    }
+
+    @Test
+    public void should_apply_refresh_to_a_load_in_progress() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // the load reads the rates as they were before the refreshed commit
+        when(rateMapper.findAll(any(RateQuery.class))).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return Collections.singletonList(rate(REVIEWER, 20));
+        });
+
+        Thread reader = new Thread(() -> reviewCoverage.hasRated(EVENT_ID, REVIEWER, 20));
+        reader.start();
+        loading.await();
+        Thread writer = new Thread(() -> reviewCoverage.refresh(EVENT_ID, 20, Collections.singletonList(rate(OTHER_REVIEWER, 20))));
+        writer.start();
+        Thread.sleep(100);
+        release.countDown();
+        reader.join();
+        writer.join();
+
+        assertThat(reviewCoverage.hasRated(EVENT_ID, REVIEWER, 20)).isFalse();
+        assertThat(reviewCoverage.hasRated(EVENT_ID, OTHER_REVIEWER, 20)).isTrue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<Consumer<String>> consumerCaptor() {
+        return ArgumentCaptor.forClass((Class<Consumer<String>>) (Class<?>) Consumer.class);
+    }
+
+    private Rate rate(int userId, int proposalId) {
+        Rate rate = new Rate();
+        rate.setUser(new User().setId(userId));
+        rate.setTalk(new Proposal().setId(proposalId));
+        return rate;
+    }
+}
@@ -0,0 +1,83 @@
+package io.cfp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.cfp.mapper.CacheVersionMapper;
+import io.cfp.mapper.ProposalMapper;
+import io.cfp.model.CacheVersion;
+import io.cfp.model.Proposal;
+import io.cfp.model.ScheduleChange;
+import io.cfp.model.ScheduleSaveSummary;
+import io.cfp.model.StateCount;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mybatis.spring.annotation.MapperScan;
+import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * {@link ScheduleService} against H2, with the real {@link CacheInvalidationBus}: the version bump of the schedule
+ * must go through the batch session of the transaction
+ */
+@RunWith(SpringRunner.class)
+@MybatisTest
+public class ScheduleServiceDatabaseTest {
+
+    private static final String EVENT_ID = "EVENT_ID";
+
+    @Configuration
+    @MapperScan("io.cfp.mapper")
+    @Import({ScheduleService.class, ScheduleSnapshotService.class, ReferenceDataService.class, CacheInvalidationBus.class})
+    static class Config {
+
+        @Bean
+        public ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+
+        @Bean
+        public CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager();
+        }
+    }
+
+    @Autowired
+    private ScheduleService scheduleService;
+
+    @Autowired
+    private ProposalMapper proposalMapper;
+
+    @Autowired
+    private CacheVersionMapper cacheVersionMapper;
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void should_publish_schedule_change_within_batch_transaction() {
+        ScheduleSaveSummary summary = scheduleService.save(EVENT_ID, Collections.singletonList(
+            ScheduleChange.of(21, LocalDateTime.of(2042, 12, 31, 14, 0), "50", Proposal.State.ACCEPTED)));
+
+        assertThat(summary.getUpdated()).isEqualTo(1);
+        assertThat(proposalMapper.findById(21, EVENT_ID).getScheduleHour()).isEqualTo("14:00");
+        assertThat(cacheVersionMapper.findAll())
+            .extracting(CacheVersion::getName, CacheVersion::getScope, CacheVersion::getVersion)
+            .contains(tuple(ScheduleSnapshotService.NAME, EVENT_ID, 1L));
+        // proposal was CONFIRMED
+        assertThat(proposalMapper.countByState(EVENT_ID, null))
+            .extracting(StateCount::getState, StateCount::getTotal)
+            .containsOnly(tuple(Proposal.State.ACCEPTED, 2), tuple(Proposal.State.CONFIRMED, 0));
+    }
+
+}
@@ -0,0 +1,96 @@
+package io.cfp.service;
+
+import io.cfp.mapper.ProposalMapper;
+import io.cfp.model.Proposal;
+import io.cfp.model.ScheduleChange;
+import io.cfp.model.ScheduleSaveSummary;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mybatis.spring.SqlSessionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ScheduleServiceTest {
+
+    private static final String EVENT_ID = "EVENT_ID";
+    private static final LocalDateTime START = LocalDateTime.of(2042, 12, 31, 12, 0);
+
+    @InjectMocks
+    private ScheduleService scheduleService;
+
+    @Mock
+    private SqlSessionTemplate batchSession;
+
+    @Mock
+    private ProposalMapper proposalMapper;
+
+    @Mock
+    private ScheduleSnapshotService publicSchedule;
+
+    @Before
+    public void setUp() {
+        when(batchSession.getMapper(ProposalMapper.class)).thenReturn(proposalMapper);
+    }
+
+    @Test
+    public void should_only_write_moved_sessions() {
+        Proposal unchanged = ScheduleChange.of(20, START, "50", Proposal.State.ACCEPTED).applyTo(new Proposal().setId(20));
+        Proposal moved = ScheduleChange.of(21, START, "50", Proposal.State.ACCEPTED).applyTo(new Proposal().setId(21));
+        when(proposalMapper.findSchedules(anyCollectionOf(Integer.class), anyString())).thenReturn(Arrays.asList(unchanged, moved));
+
+        ScheduleSaveSummary summary = scheduleService.save(EVENT_ID, Arrays.asList(
+            ScheduleChange.of(20, START, null, Proposal.State.ACCEPTED),
+            ScheduleChange.of(21, START.plusHours(1), "51", Proposal.State.ACCEPTED),
+            ScheduleChange.of(22, START, "50", Proposal.State.ACCEPTED)));
+
+        assertThat(summary.getUpdated()).isEqualTo(1);
+        assertThat(summary.getUnchanged()).isEqualTo(1);
+        assertThat(summary.getNotFound()).containsExactly(22);
+
+        ArgumentCaptor<Proposal> updated = ArgumentCaptor.forClass(Proposal.class);
+        verify(proposalMapper).updateSchedule(updated.capture());
+        assertThat(updated.getValue().getId()).isEqualTo(21);
+        assertThat(updated.getValue().getRoomId()).isEqualTo(51);
+        assertThat(updated.getValue().getScheduleHour()).isEqualTo("13:00");
+        verify(batchSession).flushStatements();
+        verify(publicSchedule).invalidate(EVENT_ID);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void should_load_current_schedules_in_one_query() {
+        scheduleService.save(EVENT_ID, Arrays.asList(
+            ScheduleChange.of(20, START, "50", Proposal.State.ACCEPTED),
+            ScheduleChange.of(21, START, "50", Proposal.State.ACCEPTED),
+            ScheduleChange.of(20, START.plusHours(2), "50", Proposal.State.ACCEPTED)));
+
+        ArgumentCaptor<Collection> ids = ArgumentCaptor.forClass(Collection.class);
+        verify(proposalMapper).findSchedules(ids.capture(), any());
+        assertThat(ids.getValue()).containsExactly(20, 21);
+    }
+
+    @Test
+    public void should_not_invalidate_schedule_when_nothing_moved() {
+        scheduleService.save(EVENT_ID, Collections.emptyList());
+
+        verify(proposalMapper, never()).findSchedules(anyCollectionOf(Integer.class), anyString());
+        verify(publicSchedule, never()).invalidate(anyString());
+    }
+}
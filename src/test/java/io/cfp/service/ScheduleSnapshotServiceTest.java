@@ -0,0 +1,176 @@
+package io.cfp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.cfp.mapper.ProposalMapper;
+import io.cfp.model.Format;
+import io.cfp.model.Proposal;
+import io.cfp.model.ReferenceData;
+import io.cfp.model.Room;
+import io.cfp.model.User;
+import io.cfp.model.queries.ProposalQuery;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ScheduleSnapshotServiceTest {
+
+    private static final String EVENT_ID = "EVENT_ID";
+
+    @InjectMocks
+    private ScheduleSnapshotService publicSchedule;
+
+    @Mock
+    private CacheInvalidationBus bus;
+
+    @Mock
+    private ProposalMapper proposalMapper;
+
+    @Mock
+    private ReferenceDataService referenceData;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    private ReferenceData reference;
+
+    @Before
+    public void setUp() {
+        User speaker = new User().setId(0).setFirstname("John").setLastname("Doe");
+
+        Proposal scheduled = new Proposal()
+            .setId(1)
+            .setName("A talk 1")
+            .setSpeaker(speaker)
+            .setFormat(11)
+            .setRoomId(12)
+            .setSchedule(new Date(0));
+
+        Proposal unknownRoom = new Proposal()
+            .setId(2)
+            .setName("A talk 2")
+            .setSpeaker(speaker)
+            .setFormat(11)
+            .setRoomId(99)
+            .setSchedule(new Date(0));
+
+        Proposal unscheduled = new Proposal()
+            .setId(3)
+            .setName("A talk 3")
+            .setSpeaker(speaker)
+            .setFormat(11);
+
+        reference = reference();
+
+        when(proposalMapper.findAll(any(ProposalQuery.class))).thenReturn(Arrays.asList(scheduled, unknownRoom, unscheduled));
+        when(referenceData.get(EVENT_ID)).thenReturn(reference);
+    }
+
+    @Test
+    public void should_serialize_scheduled_talks() throws Exception {
+        ScheduleSnapshotService.Snapshot snapshot = publicSchedule.get(EVENT_ID);
+
+        String json = new String(snapshot.getJson(), "UTF-8");
+        assertThat(json).contains("\"format\":\"Conference\"", "\"venue\":\"Amphi A\"", "\"venue\":\"TBD\"");
+        assertThat(json).contains("\"event_end\":\"1970-01-01T00:50:00Z\"");
+        assertThat(json).doesNotContain("A talk 3");
+        assertThat(snapshot.getEtag()).startsWith("\"").endsWith("\"");
+    }
+
+    @Test
+    public void should_build_snapshot_once() {
+        ScheduleSnapshotService.Snapshot first = publicSchedule.get(EVENT_ID);
+
+        assertThat(publicSchedule.get(EVENT_ID)).isSameAs(first);
+        verify(proposalMapper, times(1)).findAll(any(ProposalQuery.class));
+    }
+
+    @Test
+    public void should_rebuild_after_invalidation() {
+        ScheduleSnapshotService.Snapshot first = publicSchedule.get(EVENT_ID);
+
+        publicSchedule.invalidate(EVENT_ID);
+
+        ScheduleSnapshotService.Snapshot second = publicSchedule.get(EVENT_ID);
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getEtag()).isEqualTo(first.getEtag());
+        verify(proposalMapper, times(2)).findAll(any(ProposalQuery.class));
+    }
+
+    @Test
+    public void should_rebuild_when_reference_data_changed() {
+        ScheduleSnapshotService.Snapshot first = publicSchedule.get(EVENT_ID);
+
+        when(referenceData.get(EVENT_ID)).thenReturn(reference());
+
+        assertThat(publicSchedule.get(EVENT_ID)).isNotSameAs(first);
+    }
+
+    @Test
+    public void should_not_block_invalidation_while_building() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(proposalMapper.findAll(any(ProposalQuery.class))).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Collections.emptyList();
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ScheduleSnapshotService.Snapshot first;
+        try {
+            Future<ScheduleSnapshotService.Snapshot> building = executor.submit(() -> publicSchedule.get(EVENT_ID));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            publicSchedule.invalidate(EVENT_ID);
+
+            release.countDown();
+            first = building.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(publicSchedule.get(EVENT_ID)).isNotSameAs(first);
+        verify(proposalMapper, times(2)).findAll(any(ProposalQuery.class));
+    }
+
+    @Test
+    public void should_rebuild_after_failed_build() {
+        when(proposalMapper.findAll(any(ProposalQuery.class)))
+            .thenThrow(new IllegalStateException("down"))
+            .thenReturn(Collections.emptyList());
+        try {
+            publicSchedule.get(EVENT_ID);
+            fail("build should have failed");
+        } catch (IllegalStateException expected) {
+            // next access rebuilds
+        }
+
+        assertThat(publicSchedule.get(EVENT_ID).getJson()).isEqualTo("[]".getBytes());
+    }
+
+    private static ReferenceData reference() {
+        return new ReferenceData(
+            Collections.singletonList(new Format().setId(11).setName("Conference").setDuration(50)),
+            Collections.emptyList(),
+            Collections.singletonList(new Room().setId(12).setName("Amphi A")));
+    }
+}
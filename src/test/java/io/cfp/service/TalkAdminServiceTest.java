@@ -4,10 +4,8 @@ import io.cfp.dto.TalkAdmin;
 import io.cfp.entity.Format;
 import io.cfp.entity.Track;
 import io.cfp.mapper.ProposalMapper;
-import io.cfp.mapper.RateMapper;
 import io.cfp.model.Proposal;
 import io.cfp.model.queries.ProposalQuery;
-import io.cfp.model.queries.RateQuery;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
@@ -15,6 +13,7 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
 
@@ -34,7 +33,10 @@ public class TalkAdminServiceTest {
     private ProposalMapper proposalMapper;
 
     @Mock
-    private RateMapper rateMapper;
+    private ReviewCoverageService reviewCoverage;
+
+    @Mock
+    private RateService rateService;
 
     @Test
     public void should_return_all_talkAdmins() {
@@ -58,17 +60,12 @@ public class TalkAdminServiceTest {
         talksAdminList.add(talk);
         when(proposalMapper.findAll(any(ProposalQuery.class))).thenReturn(talksAdminList);
 
-        List<io.cfp.model.Rate> rates = new ArrayList<>();
-
-        io.cfp.model.Rate rate = new io.cfp.model.Rate();
-
-        rate.setUser(adminUser);
-        rate.setTalk(talk);
-
-        rates.add(rate);
-        when(rateMapper.findAll(any(RateQuery.class))).thenReturn(rates);
+        BitSet reviewed = new BitSet();
+        reviewed.set(20);
+        when(reviewCoverage.ratedBy("EVENT_ID", USER_ID)).thenReturn(reviewed);
 
         List<TalkAdmin> returnedTalkAdminList = talkAdminService.findAll("EVENT_ID", USER_ID);
         assertThat(returnedTalkAdminList).isNotEmpty();
+        assertThat(returnedTalkAdminList.get(0).isReviewed()).isTrue();
     }
 }
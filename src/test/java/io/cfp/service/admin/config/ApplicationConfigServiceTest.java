@@ -2,6 +2,7 @@ package io.cfp.service.admin.config;
 
 
 import io.cfp.mapper.EventMapper;
+import io.cfp.service.EventCache;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
@@ -24,6 +25,9 @@ public class ApplicationConfigServiceTest {
     @Mock
     private EventMapper eventMapper;
 
+    @Mock
+    private EventCache eventCache;
+
     @Test
     public void should_close_CFP() {
 
@@ -38,6 +42,7 @@ public class ApplicationConfigServiceTest {
         applicationConfigService.closeCfp("EVENT_ID");
 
         verify(eventMapper).update(eq(event));
+        verify(eventCache).evict("EVENT_ID");
 
         assertThat(event.isOpen()).isFalse();
     }
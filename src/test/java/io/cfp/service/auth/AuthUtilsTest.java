@@ -0,0 +1,157 @@
+package io.cfp.service.auth;
+
+import io.cfp.entity.Role;
+import io.cfp.mapper.UserMapper;
+import io.cfp.model.User;
+import io.cfp.service.CacheInvalidationBus;
+import io.cfp.utils.Utils;
+import io.jsonwebtoken.SignatureException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AuthUtilsTest {
+
+    private static final String EMAIL = "john@doe.net";
+
+    @InjectMocks
+    private AuthUtils authUtils;
+
+    @Mock
+    private UserMapper userMapper;
+
+    @Mock
+    private CacheInvalidationBus bus;
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(authUtils, "signingKey", "secret");
+        ReflectionTestUtils.setField(authUtils, "cacheSize", 100L);
+        ReflectionTestUtils.setField(authUtils, "cacheTtlMinutes", 10L);
+        authUtils.init();
+
+        when(userMapper.findByEmail(EMAIL)).thenReturn(new User().setId(10).setEmail(EMAIL));
+    }
+
+    private MockHttpServletRequest request(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+
+    @Test
+    public void should_resolve_a_token_once() {
+        String token = Utils.createTokenForUser(new User().setEmail(EMAIL));
+
+        User first = authUtils.getAuthUser(request(token));
+        first.addRole(Role.ADMIN);
+        User second = authUtils.getAuthUser(request(token));
+
+        assertThat(second.getId()).isEqualTo(10);
+        assertThat(second.getRoles()).containsOnly(Role.AUTHENTICATED);
+        verify(userMapper, times(1)).findByEmail(EMAIL);
+        assertThat(authUtils.metrics()).extracting("name", "value")
+            .contains(org.assertj.core.groups.Tuple.tuple("auth.token-cache.hit", 1L));
+    }
+
+    @Test
+    public void should_reload_user_once_invalidated() {
+        String token = Utils.createTokenForUser(new User().setEmail(EMAIL));
+        authUtils.getAuthUser(request(token));
+
+        when(userMapper.findByEmail(EMAIL)).thenReturn(new User().setId(10).setEmail(EMAIL).setFirstname("John"));
+        authUtils.invalidate(10);
+
+        assertThat(authUtils.getAuthUser(request(token)).getFirstname()).isEqualTo("John");
+        verify(bus).publish(AuthUtils.NAME, "10");
+    }
+
+    @Test
+    public void should_reload_user_invalidated_on_another_node() {
+        ArgumentCaptor<Consumer<String>> evict = consumerCaptor();
+        verify(bus).register(eq(AuthUtils.NAME), evict.capture());
+        String token = Utils.createTokenForUser(new User().setEmail(EMAIL));
+        authUtils.getAuthUser(request(token));
+
+        when(userMapper.findByEmail(EMAIL)).thenReturn(new User().setId(10).setEmail(EMAIL).setFirstname("John"));
+        evict.getValue().accept("10");
+
+        assertThat(authUtils.getAuthUser(request(token)).getFirstname()).isEqualTo("John");
+    }
+
+    @Test
+    public void should_return_null_without_token() {
+        assertThat(authUtils.getAuthUser(new MockHttpServletRequest())).isNull();
+    }
+
+    @Test(expected = SignatureException.class)
+    public void should_reject_token_signed_with_another_key() {
+        String token = Utils.createTokenForUser(new User().setEmail(EMAIL));
+        authUtils.getAuthUser(request(token));
+
+        // a forged token has another hash, it is verified again
+        authUtils.getAuthUser(request(token.substring(0, token.length() - 2) + "xx"));
+    }
+
+    @Test
+    public void should_provision_new_user_once_for_concurrent_first_requests() throws Exception {
+        String email = "new@cfp.io";
+        CountDownLatch provisioning = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userMapper.provision(any(User.class))).thenAnswer(invocation -> {
+            provisioning.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            ((User) invocation.getArguments()[0]).setId(42);
+            return 1;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<User>> users = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                String token = Utils.createTokenForUser(new User().setEmail(email));
+                users.add(executor.submit(() -> authUtils.getAuthUser(request(token))));
+            }
+            provisioning.await(5, TimeUnit.SECONDS);
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<User> user : users) {
+                assertThat(user.get(5, TimeUnit.SECONDS).getId()).isEqualTo(42);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(userMapper, times(1)).provision(any(User.class));
+        verify(userMapper, never()).insert(any(User.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<Consumer<String>> consumerCaptor() {
+        return ArgumentCaptor.forClass((Class<Consumer<String>>) (Class<?>) Consumer.class);
+    }
+}
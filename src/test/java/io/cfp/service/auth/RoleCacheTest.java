@@ -0,0 +1,102 @@
+package io.cfp.service.auth;
+
+import io.cfp.mapper.RoleMapper;
+import io.cfp.model.Role;
+import io.cfp.model.queries.RoleQuery;
+import io.cfp.service.CacheInvalidationBus;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RoleCacheTest {
+
+    private static final String EVENT_ID = "EVENT_ID";
+    private static final int USER_ID = 1;
+
+    @InjectMocks
+    private RoleCache roleCache;
+
+    @Mock
+    private RoleMapper roleMapper;
+
+    @Mock
+    private CacheInvalidationBus bus;
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(roleCache, "ttlSeconds", 60L);
+        roleCache.init();
+        when(roleMapper.findAll(any(RoleQuery.class))).thenReturn(Arrays.asList(new Role().setName(Role.ADMIN)));
+    }
+
+    @Test
+    public void should_query_roles_once_per_user_and_event() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(roleCache.get(EVENT_ID, USER_ID)).containsExactly(Role.ADMIN);
+        }
+        assertThat(roleCache.get("OTHER", USER_ID)).containsExactly(Role.ADMIN);
+
+        verify(roleMapper, times(2)).findAll(any(RoleQuery.class));
+    }
+
+    @Test
+    public void should_reload_roles_of_event_after_local_change() {
+        roleCache.get(EVENT_ID, USER_ID);
+        roleCache.get("OTHER", USER_ID);
+        when(roleMapper.findAll(any(RoleQuery.class))).thenReturn(Collections.emptyList());
+
+        roleCache.invalidate(EVENT_ID);
+
+        verify(bus).publish(RoleCache.NAME, EVENT_ID);
+        assertThat(roleCache.get(EVENT_ID, USER_ID)).isEmpty();
+        assertThat(roleCache.get("OTHER", USER_ID)).containsExactly(Role.ADMIN);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void should_reload_roles_once_another_node_changed_them() {
+        ArgumentCaptor<Consumer> evict = ArgumentCaptor.forClass(Consumer.class);
+        verify(bus).register(eq(RoleCache.NAME), evict.capture());
+
+        roleCache.get(EVENT_ID, USER_ID);
+        when(roleMapper.findAll(any(RoleQuery.class))).thenReturn(Collections.emptyList());
+        assertThat(roleCache.get(EVENT_ID, USER_ID)).containsExactly(Role.ADMIN);
+
+        evict.getValue().accept(EVENT_ID);
+        assertThat(roleCache.get(EVENT_ID, USER_ID)).isEmpty();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void should_not_cache_roles_loaded_before_an_eviction() {
+        ArgumentCaptor<Consumer> evict = ArgumentCaptor.forClass(Consumer.class);
+        verify(bus).register(eq(RoleCache.NAME), evict.capture());
+        // the role is revoked and evicted while the load is running
+        when(roleMapper.findAll(any(RoleQuery.class))).thenAnswer(invocation -> {
+            evict.getValue().accept(EVENT_ID);
+            return Arrays.asList(new Role().setName(Role.ADMIN));
+        });
+        assertThat(roleCache.get(EVENT_ID, USER_ID)).containsExactly(Role.ADMIN);
+
+        when(roleMapper.findAll(any(RoleQuery.class))).thenReturn(Collections.emptyList());
+        assertThat(roleCache.get(EVENT_ID, USER_ID)).isEmpty();
+    }
+
+}
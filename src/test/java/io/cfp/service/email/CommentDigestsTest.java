@@ -0,0 +1,121 @@
+package io.cfp.service.email;
+
+import io.cfp.mapper.CommentMapper;
+import io.cfp.model.Comment;
+import io.cfp.model.OutboundMail;
+import io.cfp.model.Proposal;
+import io.cfp.model.User;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CommentDigestsTest {
+
+    private static final String EVENT_ID = "EVENT_ID";
+
+    @InjectMocks
+    private CommentDigests digests;
+
+    @Mock
+    private EmailingService emailingService;
+
+    @Mock
+    private MailOutbox outbox;
+
+    @Mock
+    private CommentMapper comments;
+
+    private final User speaker = new User().setId(21).setEmail("speaker@cfp.io");
+    private final User admin = new User().setId(20).setEmail("admin@cfp.io");
+    private final Proposal proposal = new Proposal().setId(25).setName("PROPOSAL_NAME").setSpeaker(speaker);
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(digests, "windowMinutes", 60L);
+        when(emailingService.newCommentToAdmins(any(User.class), any(Proposal.class), anyString()))
+            .thenAnswer(invocation -> new OutboundMail().setContent((String) invocation.getArguments()[2]));
+        when(emailingService.newCommentToSpeaker(any(User.class), any(Proposal.class), anyString()))
+            .thenAnswer(invocation -> new OutboundMail().setContent((String) invocation.getArguments()[2]));
+    }
+
+    private Comment comment(int id, String text) {
+        Comment comment = new Comment().setId(id).setComment(text).setEventId(EVENT_ID);
+        when(comments.findById(id, EVENT_ID)).thenReturn(comment);
+        return comment;
+    }
+
+    @Test
+    public void should_enqueue_first_comment_for_the_end_of_the_window() {
+        long before = System.currentTimeMillis();
+
+        digests.notifyAdmins(speaker, proposal, comment(1, "first"));
+
+        ArgumentCaptor<OutboundMail> mail = ArgumentCaptor.forClass(OutboundMail.class);
+        verify(emailingService).send(mail.capture());
+        assertThat(mail.getValue().getContent()).isEqualTo("first");
+        assertThat(mail.getValue().getDigestKey()).isEqualTo(CommentDigests.key(proposal, speaker, true));
+        assertThat(mail.getValue().getDigestItems()).isEqualTo("1");
+        assertThat(mail.getValue().getNextAttempt().getTime()).isGreaterThanOrEqualTo(before + 3_600_000);
+    }
+
+    @Test
+    public void should_merge_comments_into_the_pending_mail() {
+        comment(1, "first");
+        when(outbox.pendingDigest(CommentDigests.key(proposal, speaker, true))).thenReturn(new OutboundMail().setId(7).setDigestItems("1"));
+
+        digests.notifyAdmins(speaker, proposal, comment(2, "second"));
+
+        ArgumentCaptor<OutboundMail> mail = ArgumentCaptor.forClass(OutboundMail.class);
+        verify(outbox).updateDigest(mail.capture());
+        assertThat(mail.getValue().getId()).isEqualTo(7);
+        assertThat(mail.getValue().getContent()).isEqualTo("first" + CommentDigests.SEPARATOR + "second");
+        assertThat(mail.getValue().getDigestItems()).isEqualTo("1,2");
+        verify(emailingService, never()).send(any(OutboundMail.class));
+    }
+
+    @Test
+    public void should_keep_latest_version_of_edited_comment() {
+        when(outbox.pendingDigest(CommentDigests.key(proposal, speaker, false))).thenReturn(new OutboundMail().setId(7).setDigestItems("1"));
+
+        digests.notifySpeaker(proposal, comment(1, "final"));
+
+        ArgumentCaptor<OutboundMail> mail = ArgumentCaptor.forClass(OutboundMail.class);
+        verify(outbox).updateDigest(mail.capture());
+        assertThat(mail.getValue().getContent()).isEqualTo("final");
+        assertThat(mail.getValue().getDigestItems()).isEqualTo("1");
+    }
+
+    @Test
+    public void should_send_one_digest_per_recipient() {
+        assertThat(CommentDigests.key(proposal, speaker, false)).isNotEqualTo(CommentDigests.key(proposal, speaker, true));
+        assertThat(CommentDigests.key(proposal, speaker, true)).isNotEqualTo(CommentDigests.key(proposal, admin, true));
+    }
+
+    @Test
+    public void should_send_right_away_without_window() {
+        ReflectionTestUtils.setField(digests, "windowMinutes", 0L);
+
+        digests.notifyAdmins(admin, proposal, comment(1, "internal"));
+
+        ArgumentCaptor<OutboundMail> mail = ArgumentCaptor.forClass(OutboundMail.class);
+        verify(emailingService).send(mail.capture());
+        assertThat(mail.getValue().getContent()).isEqualTo("internal");
+        assertThat(mail.getValue().getNextAttempt()).isNull();
+        verify(outbox, never()).pendingDigest(anyString());
+        verify(emailingService).newCommentToAdmins(eq(admin), eq(proposal), eq("internal"));
+    }
+}
@@ -30,20 +30,29 @@ import io.cfp.dto.user.UserProfil;
 import io.cfp.entity.Event;
 import io.cfp.entity.Talk;
 import io.cfp.entity.User;
+import io.cfp.mapper.CacheVersionMapper;
 import io.cfp.mapper.EventMapper;
 import io.cfp.mapper.UserMapper;
+import io.cfp.model.OutboundMail;
 import io.cfp.model.Proposal;
+import io.cfp.service.CacheInvalidationBus;
+import io.cfp.service.EventCache;
 import io.cfp.service.admin.config.ApplicationConfigService;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.MockitoAnnotations;
 import org.mockito.Spy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
@@ -67,7 +76,7 @@ public class EmailingServiceTest {
     private EmailingService emailingService;
 
     @Autowired
-    private EventMapper eventMapper;
+    private EventCache eventCache;
 
     @Autowired
     private UserMapper userMapper;
@@ -144,12 +153,14 @@ public class EmailingServiceTest {
 
         Event.setCurrent("test");
 
-        when(eventMapper.findOne("test")).thenReturn(newEvent);
+        when(eventCache.get("test")).thenReturn(newEvent);
 
         MockitoAnnotations.initMocks(this);
 
-        ReflectionTestUtils.setField(emailingService, "userMapper", userMapper);
-        ReflectionTestUtils.setField(emailingService, "eventMapper", eventMapper);
+        MailContexts contexts = new MailContexts();
+        ReflectionTestUtils.setField(contexts, "users", userMapper);
+        ReflectionTestUtils.setField(contexts, "events", eventCache);
+        ReflectionTestUtils.setField(emailingService, "contexts", contexts);
         ReflectionTestUtils.setField(emailingService, "freemarker", freemarkerCfg);
         ReflectionTestUtils.setField(emailingService, "emailSender", emailSender);
         ReflectionTestUtils.setField(emailingService, "hostname", "demo.cfp.io");
@@ -362,6 +373,23 @@ public class EmailingServiceTest {
         assertEquals(false, content.contains("$"));
     }
 
+    @Test
+    public void should_reserve_mail_then_render_it() {
+        MailOutbox outbox = mock(MailOutbox.class);
+        when(outbox.reserve(any(OutboundMail.class))).thenAnswer(invocation -> ((OutboundMail) invocation.getArguments()[0]).setId(7));
+        ReflectionTestUtils.setField(emailingService, "outbox", outbox);
+        ReflectionTestUtils.setField(emailingService, "mailExecutor", new SyncTaskExecutor());
+        ReflectionTestUtils.setField(emailingService, "send", true);
+
+        emailingService.sendPending(talkUser, Locale.FRENCH);
+
+        ArgumentCaptor<OutboundMail> reserved = ArgumentCaptor.forClass(OutboundMail.class);
+        verify(outbox).reserve(reserved.capture());
+        assertEquals(JOHN_DOE_EMAIL, reserved.getValue().getRecipient());
+        verify(outbox).rendered(eq(7), eq(CONTACT_MAIL), contains("My amazing user talk 1"));
+        verify(outbox, never()).enqueue(any(OutboundMail.class));
+    }
+
     @After
     public void cleanup() {
         testSmtp.stop();
@@ -399,6 +427,31 @@ public class EmailingServiceTest {
             return mock(EventMapper.class);
         }
 
+        @Bean
+        public EventCache eventCache() {
+            return mock(EventCache.class);
+        }
+
+        @Bean // field injection of EventCache
+        public CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager();
+        }
+
+        @Bean // field injection of EventCache
+        public CacheInvalidationBus cacheInvalidationBus() {
+            return mock(CacheInvalidationBus.class);
+        }
+
+        @Bean // field injection of CacheInvalidationBus
+        public CacheVersionMapper cacheVersionMapper() {
+            return mock(CacheVersionMapper.class);
+        }
+
+        @Bean // field injection of CacheInvalidationBus
+        public SqlSessionFactory sqlSessionFactory() {
+            return mock(SqlSessionFactory.class);
+        }
+
         @Bean
         public UserMapper userMapper() {
             return mock(UserMapper.class);
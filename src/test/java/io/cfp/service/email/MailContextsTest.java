@@ -0,0 +1,83 @@
+package io.cfp.service.email;
+
+import io.cfp.mapper.UserMapper;
+import io.cfp.model.Event;
+import io.cfp.model.Role;
+import io.cfp.service.CacheInvalidationBus;
+import io.cfp.service.EventCache;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MailContextsTest {
+
+    private static final String EVENT_ID = "EVENT_ID";
+
+    @InjectMocks
+    private MailContexts contexts;
+
+    @Mock
+    private CacheInvalidationBus bus;
+
+    @Mock
+    private EventCache eventCache;
+
+    @Mock
+    private UserMapper userMapper;
+
+    @Before
+    public void setUp() {
+        when(eventCache.get(EVENT_ID)).thenReturn(new Event().setId(EVENT_ID));
+        when(userMapper.findEmailByRole(Role.ADMIN, EVENT_ID)).thenReturn(Arrays.asList("admin@cfp.io"));
+    }
+
+    @Test
+    public void should_load_admins_once_for_a_batch_of_mails() {
+        for (int i = 0; i < 600; i++) {
+            MailContexts.MailContext context = contexts.get(EVENT_ID);
+            assertThat(context.getContactMail()).isEqualTo(MailContexts.DEFAULT_CONTACT);
+            assertThat(context.getAdmins()).containsExactly("admin@cfp.io");
+        }
+
+        verify(userMapper, times(1)).findEmailByRole(Role.ADMIN, EVENT_ID);
+    }
+
+    @Test
+    public void should_see_event_changes_without_invalidation() {
+        contexts.get(EVENT_ID);
+        when(eventCache.get(EVENT_ID)).thenReturn(new Event().setId(EVENT_ID).setContactMail("team@cfp.io"));
+
+        assertThat(contexts.get(EVENT_ID).getContactMail()).isEqualTo("team@cfp.io");
+    }
+
+    @Test
+    public void should_reload_invalidated_admins() {
+        contexts.get(EVENT_ID);
+        when(userMapper.findEmailByRole(Role.ADMIN, EVENT_ID)).thenReturn(Arrays.asList("admin@cfp.io", "other@cfp.io"));
+
+        contexts.invalidate(EVENT_ID);
+
+        assertThat(contexts.get(EVENT_ID).getAdmins()).containsExactly("admin@cfp.io", "other@cfp.io");
+    }
+
+    @Test
+    public void should_not_cache_unknown_event() {
+        assertThat(contexts.get("unknown")).isNull();
+        contexts.get("unknown");
+
+        verify(eventCache, times(2)).get("unknown");
+        verify(userMapper, never()).findEmailByRole(Role.ADMIN, "unknown");
+    }
+}
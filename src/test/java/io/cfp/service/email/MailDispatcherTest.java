@@ -0,0 +1,174 @@
+package io.cfp.service.email;
+
+import com.google.common.util.concurrent.RateLimiter;
+import io.cfp.mapper.MailOutboxMapper;
+import io.cfp.model.OutboundMail;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MailDispatcherTest {
+
+    private static final String TOKEN = "token";
+
+    @InjectMocks
+    private MailDispatcher dispatcher;
+
+    @Mock
+    private MailOutboxMapper mails;
+
+    @Mock
+    private MailTransport transport;
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(dispatcher, "limiter", RateLimiter.create(1000));
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(dispatcher, "backoffSeconds", 30L);
+        when(mails.renewClaim(anyInt(), eq(TOKEN), any(Date.class))).thenReturn(1);
+    }
+
+    private OutboundMail mail(int attempts) {
+        return new OutboundMail().setId(1).setRecipient("john@doe.net").setAttempts(attempts).setClaimToken(TOKEN);
+    }
+
+    @Test
+    public void should_mark_delivered_mail_as_sent() throws Exception {
+        dispatcher.dispatch(mail(0));
+
+        verify(transport).send(any(OutboundMail.class));
+        verify(mails).markSent(eq(1), eq(TOKEN), any(Date.class));
+    }
+
+    @Test
+    public void should_retry_later_when_delivery_fails() throws Exception {
+        doThrow(new MailDeliveryException("503 Unavailable", true)).when(transport).send(any(OutboundMail.class));
+
+        long before = System.currentTimeMillis();
+        dispatcher.dispatch(mail(1));
+
+        ArgumentCaptor<Date> next = ArgumentCaptor.forClass(Date.class);
+        verify(mails).reschedule(eq(1), eq(TOKEN), eq(2), next.capture(), eq("503 Unavailable"));
+        assertThat(next.getValue().getTime()).isGreaterThanOrEqualTo(before + 60_000);
+        verify(mails, never()).markSent(anyInt(), anyString(), any(Date.class));
+    }
+
+    @Test
+    public void should_give_up_after_max_attempts() throws Exception {
+        doThrow(new MailDeliveryException("503 Unavailable", true)).when(transport).send(any(OutboundMail.class));
+
+        dispatcher.dispatch(mail(2));
+
+        verify(mails).markFailed(1, TOKEN, 3, "503 Unavailable");
+        verify(mails, never()).reschedule(anyInt(), anyString(), anyInt(), any(Date.class), anyString());
+    }
+
+    @Test
+    public void should_not_retry_rejected_mail() throws Exception {
+        doThrow(new MailDeliveryException("400 Bad request", false)).when(transport).send(any(OutboundMail.class));
+
+        dispatcher.dispatch(mail(0));
+
+        verify(mails).markFailed(1, TOKEN, 1, "400 Bad request");
+    }
+
+    @Test
+    public void should_not_send_mail_whose_claim_was_lost() throws Exception {
+        OutboundMail released = new OutboundMail().setId(2).setRecipient("jane@doe.net").setClaimToken("stale");
+
+        dispatcher.dispatch(Arrays.asList(mail(0), released));
+
+        verify(transport).send(mail(0));
+        verify(mails, never()).markSent(eq(2), anyString(), any(Date.class));
+    }
+
+    @Test
+    public void should_double_backoff_after_each_attempt() {
+        assertThat(dispatcher.backoff(1)).isEqualTo(30);
+        assertThat(dispatcher.backoff(2)).isEqualTo(60);
+        assertThat(dispatcher.backoff(3)).isEqualTo(120);
+        assertThat(dispatcher.backoff(40)).isEqualTo(MailDispatcher.MAX_BACKOFF_SECONDS);
+    }
+
+    @Test
+    public void should_send_identical_messages_in_one_call() throws Exception {
+        OutboundMail first = new OutboundMail().setId(1).setRecipient("john@doe.net").setSubject("Selected").setContent("Hi").setClaimToken(TOKEN);
+        OutboundMail second = new OutboundMail().setId(2).setRecipient("jane@doe.net").setSubject("Selected").setContent("Hi").setClaimToken(TOKEN);
+
+        dispatcher.dispatch(Arrays.asList(first, second));
+
+        verify(transport).send(Arrays.asList(first, second));
+        verify(mails).markSent(eq(1), eq(TOKEN), any(Date.class));
+        verify(mails).markSent(eq(2), eq(TOKEN), any(Date.class));
+    }
+
+    @Test
+    public void should_claim_no_more_calls_than_sent_before_claims_go_stale() {
+        assertThat(MailDispatcher.capacity(2, 0.5)).isEqualTo(4);
+        assertThat(MailDispatcher.capacity(100, 0.1)).isEqualTo(30);
+        assertThat(MailDispatcher.capacity(2, 0.001)).isEqualTo(1);
+    }
+
+    @Test
+    public void should_claim_mails_of_free_calls_only() throws Exception {
+        OutboundMail first = new OutboundMail().setId(1).setSubject("Selected").setContent("Hi");
+        OutboundMail second = new OutboundMail().setId(2).setSubject("Selected").setContent("Hi");
+        OutboundMail other = new OutboundMail().setId(3).setSubject("Refused").setContent("Hi");
+        ThreadPoolExecutor workerPool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+        ReflectionTestUtils.setField(dispatcher, "slots", new Semaphore(1));
+        ReflectionTestUtils.setField(dispatcher, "workerPool", workerPool);
+        when(transport.batchSize()).thenReturn(2);
+        when(mails.findDue(any(Date.class), eq(2))).thenReturn(Arrays.asList(first, second, other));
+        when(mails.claim(anyInt(), anyString(), any(Date.class))).thenReturn(1);
+
+        dispatcher.poll();
+        workerPool.shutdown();
+        workerPool.awaitTermination(10, TimeUnit.SECONDS);
+
+        verify(mails).claim(eq(1), anyString(), any(Date.class));
+        verify(mails).claim(eq(2), anyString(), any(Date.class));
+        verify(mails, never()).claim(eq(3), anyString(), any(Date.class));
+    }
+
+    @Test
+    public void should_batch_identical_messages_without_copies() {
+        OutboundMail first = new OutboundMail().setId(1).setSubject("Selected").setContent("Hi");
+        OutboundMail second = new OutboundMail().setId(2).setSubject("Selected").setContent("Hi");
+        OutboundMail withCc = new OutboundMail().setId(3).setSubject("Selected").setContent("Hi").setCc("jane@doe.net");
+        OutboundMail other = new OutboundMail().setId(4).setSubject("Refused").setContent("Hi");
+        OutboundMail third = new OutboundMail().setId(5).setSubject("Selected").setContent("Hi");
+
+        List<List<OutboundMail>> batches = MailDispatcher.batches(Arrays.asList(first, second, withCc, other, third), 2);
+
+        assertThat(batches).hasSize(4);
+        assertThat(batches.get(0)).containsExactly(first, second);
+        assertThat(batches.get(1)).containsExactly(third);
+        assertThat(batches.get(2)).containsExactly(withCc);
+        assertThat(batches.get(3)).containsExactly(other);
+        assertThat(MailDispatcher.batches(Arrays.asList(first, second), 1)).hasSize(2);
+    }
+}
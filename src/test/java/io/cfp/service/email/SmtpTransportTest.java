@@ -0,0 +1,69 @@
+package io.cfp.service.email;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.cfp.model.OutboundMail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.mail.Message;
+import javax.mail.internet.MimeMessage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SmtpTransportTest {
+
+    private GreenMail smtp;
+
+    private SmtpTransport transport;
+
+    @Before
+    public void setUp() {
+        smtp = new GreenMail(ServerSetupTest.SMTP);
+        smtp.start();
+
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(ServerSetupTest.SMTP.getPort());
+
+        transport = new SmtpTransport();
+        ReflectionTestUtils.setField(transport, "mailSender", mailSender);
+        ReflectionTestUtils.setField(transport, "emailSender", "sender@cfp.io");
+    }
+
+    @After
+    public void tearDown() {
+        smtp.stop();
+    }
+
+    @Test
+    public void should_send_mail_to_smtp_server() throws Exception {
+        transport.send(new OutboundMail()
+            .setReplyTo("contact@cfp.io")
+            .setRecipient("john@doe.net")
+            .setCc("jane@doe.net")
+            .setSubject("Selected")
+            .setContent("<p>Congratulations</p>"));
+
+        MimeMessage[] received = smtp.getReceivedMessages();
+        // one copy per recipient
+        assertThat(received).hasSize(2);
+        MimeMessage message = received[0];
+        assertThat(message.getSubject()).isEqualTo("Selected");
+        assertThat(message.getReplyTo()[0].toString()).isEqualTo("contact@cfp.io");
+        assertThat(message.getRecipients(Message.RecipientType.TO)[0].toString()).isEqualTo("john@doe.net");
+        assertThat(message.getRecipients(Message.RecipientType.CC)[0].toString()).isEqualTo("jane@doe.net");
+        assertThat(GreenMailUtil.getBody(message)).contains("Congratulations");
+    }
+
+    @Test(expected = MailDeliveryException.class)
+    public void should_fail_when_server_is_down() throws Exception {
+        smtp.stop();
+
+        transport.send(new OutboundMail().setRecipient("john@doe.net").setSubject("Selected").setContent("Hi"));
+    }
+}